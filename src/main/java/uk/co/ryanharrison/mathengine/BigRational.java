@@ -413,7 +413,32 @@ public class BigRational extends Number implements Comparable<BigRational>, Clon
 	 */
 	public BigRational(final long num, final long den)
 	{
-		this(BigInteger.valueOf(num), BigInteger.valueOf(den));
+		if (num == Long.MIN_VALUE || den == Long.MIN_VALUE)
+		{
+			// cannot be negated as a long
+			final BigRational reduced = new BigRational(BigInteger.valueOf(num), BigInteger.valueOf(den));
+			numerator = reduced.numerator;
+			denominator = reduced.denominator;
+			return;
+		}
+		if (den == 0)
+		{
+			throw new IllegalArgumentException("Zero denominator");
+		}
+
+		// reduce with long arithmetic rather than BigInteger.gcd
+		long a = Math.abs(num);
+		long b = Math.abs(den);
+		while (b != 0)
+		{
+			final long t = a % b;
+			a = b;
+			b = t;
+		}
+
+		final long sign = den < 0 ? -1 : 1;
+		numerator = BigInteger.valueOf(sign * num / a);
+		denominator = BigInteger.valueOf(sign * den / a);
 	}
 
 	/**
@@ -1,9 +1,12 @@
 package uk.co.ryanharrison.mathengine;
 
 import uk.co.ryanharrison.mathengine.parser.AngleUnit;
+import uk.co.ryanharrison.mathengine.parser.CompiledExpression;
 import uk.co.ryanharrison.mathengine.parser.Evaluator;
 import uk.co.ryanharrison.mathengine.parser.nodes.Node;
 
+import java.util.function.DoubleUnaryOperator;
+
 /**
  * Class representing a function of one variable that can be evaluated
  *
@@ -32,6 +35,18 @@ public final class Function {
      */
     private Evaluator evaluator;
 
+    /**
+     * The equation compiled against the variable of this function. This gets
+     * lazily initialised when needed
+     */
+    private CompiledExpression compiled;
+
+    /**
+     * The compiled equation as a primitive operator. This gets lazily
+     * initialised when needed
+     */
+    private DoubleUnaryOperator operator;
+
     /**
      * Construct a new function with the specified equation
      *
@@ -73,6 +88,8 @@ public final class Function {
         this.variable = variable;
         this.angleUnit = angleUnit;
         this.evaluator = null;
+        this.compiled = null;
+        this.operator = null;
     }
 
     /**
@@ -90,19 +107,37 @@ public final class Function {
     /**
      * Evaluate the function at a specified point
      * <p>
-     * The variable of this function will become the value doing evaluation
+     * The variable of this function will become the value doing evaluation. The
+     * compiled equation is evaluated in double arithmetic, so results follow IEEE
+     * 754: {@code 1/x} at 0 is infinity rather than an error, NaN and infinite
+     * points give NaN or infinite results, and intermediate values are not
+     * converted to exact fractions, so {@code 1/x} at 1e-5 is
+     * 99999.99999999999. Use {@link #evaluateAt(String)} for the exact
+     * arithmetic of the evaluator
      *
      * @param at The point to evaluate at
      * @return The function evaluated at the specified point
      */
     public double evaluateAt(double at) {
-        return evaluateAt(Double.toString(at));
+        return toOperator().applyAsDouble(at);
+    }
+
+    /**
+     * Evaluate the function at each of a set of points
+     *
+     * @param at  The points to evaluate at
+     * @param out The array to write the function evaluated at each point to
+     */
+    public void evaluateAll(double[] at, double[] out) {
+        compile().evaluateAll(at, out);
     }
 
     /**
      * Evaluate the function at a specified point
      * <p>
-     * The variable of this function will become the value doing evaluation
+     * The variable of this function will become the value doing evaluation. The
+     * equation is evaluated by the evaluator, with exact fractions where possible,
+     * so dividing by zero throws an exception
      *
      * @param at The point to evaluate at. This itself can be an expression
      * @return The function evaluated at the specified point
@@ -117,6 +152,38 @@ public final class Function {
         return this.evaluator.evaluateDouble(equation);
     }
 
+    /**
+     * Get this function compiled into a reusable expression. The equation is
+     * parsed only once and the variable is bound to a double slot, so
+     * evaluating the result involves no parsing or String conversions
+     *
+     * @return This function compiled against its variable
+     */
+    public CompiledExpression compile() {
+        if (this.compiled == null) {
+            if (this.evaluator == null)
+                initEvaluator();
+
+            this.compiled = evaluator.compile(equation, variable);
+        }
+
+        return this.compiled;
+    }
+
+    /**
+     * Get this function as a primitive operator. Equations made up of
+     * arithmetic, powers, logarithms and trig functions are compiled to
+     * bytecode, otherwise the compiled expression is evaluated
+     *
+     * @return An operator evaluating this function
+     */
+    public DoubleUnaryOperator toOperator() {
+        if (this.operator == null)
+            this.operator = compile().toUnaryOperator();
+
+        return this.operator;
+    }
+
     /**
      * Get the equation of this function
      *
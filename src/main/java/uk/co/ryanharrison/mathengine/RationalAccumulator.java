@@ -0,0 +1,113 @@
+package uk.co.ryanharrison.mathengine;
+
+import java.math.BigInteger;
+
+/**
+ * A mutable sum of fractions.
+ * <p>
+ * Adding a fraction to a {@link BigRational} multiplies out both denominators and reduces the
+ * result, so summing many fractions repeats a full gcd over ever larger numbers. The
+ * accumulator instead keeps the least common multiple of the denominators it has seen, so each
+ * addition only scales the running numerator, and reduces the numerator against it once when
+ * the sum is requested. The sum is held in longs until it overflows them.
+ */
+public final class RationalAccumulator {
+
+    private long numerator;
+    private long denominator = 1;
+
+    // used instead of the longs once they overflow
+    private BigInteger bigNumerator;
+    private BigInteger bigDenominator;
+
+    /**
+     * Add a fraction
+     *
+     * @param num The numerator
+     * @param den The denominator, which must be positive
+     * @return This accumulator
+     */
+    public RationalAccumulator add(long num, long den) {
+        if (bigNumerator == null) {
+            try {
+                if (den == denominator) {
+                    numerator = Math.addExact(numerator, num);
+                } else {
+                    long gcd = gcd(denominator, den);
+                    long scale = den / gcd;
+                    long sum = Math.addExact(Math.multiplyExact(numerator, scale), Math.multiplyExact(num, denominator / gcd));
+                    denominator = Math.multiplyExact(denominator, scale);
+                    numerator = sum;
+                }
+                return this;
+            } catch (ArithmeticException e) {
+                // the longs are unchanged if the sum overflowed
+                bigNumerator = BigInteger.valueOf(numerator);
+                bigDenominator = BigInteger.valueOf(denominator);
+            }
+        }
+
+        return add(BigInteger.valueOf(num), BigInteger.valueOf(den));
+    }
+
+    /**
+     * Add a fraction
+     *
+     * @param value The fraction to add
+     * @return This accumulator
+     */
+    public RationalAccumulator add(BigRational value) {
+        BigInteger num = value.getNumerator();
+        BigInteger den = value.getDenominator();
+
+        if (bigNumerator == null) {
+            if (num.bitLength() < 64 && den.bitLength() < 64)
+                return add(num.longValue(), den.longValue());
+
+            bigNumerator = BigInteger.valueOf(numerator);
+            bigDenominator = BigInteger.valueOf(denominator);
+        }
+        return add(num, den);
+    }
+
+    private RationalAccumulator add(BigInteger num, BigInteger den) {
+        if (den.equals(bigDenominator)) {
+            bigNumerator = bigNumerator.add(num);
+        } else {
+            BigInteger gcd = bigDenominator.gcd(den);
+            BigInteger scale = den.divide(gcd);
+            bigNumerator = bigNumerator.multiply(scale).add(num.multiply(bigDenominator.divide(gcd)));
+            bigDenominator = bigDenominator.multiply(scale);
+        }
+        return this;
+    }
+
+    /**
+     * Get the sum of the fractions added so far in lowest terms
+     *
+     * @return The sum
+     */
+    public BigRational toBigRational() {
+        if (bigNumerator == null)
+            return new BigRational(numerator, denominator);
+
+        BigRational sum = new BigRational(bigNumerator, bigDenominator);
+        bigNumerator = sum.getNumerator();
+        bigDenominator = sum.getDenominator();
+        return sum;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return toBigRational().toString();
+    }
+}
@@ -1,14 +1,25 @@
 package uk.co.ryanharrison.mathengine;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Various useful statistical functions
+ * <p>
+ * Sums, products, variances and extremes are reduced in blocks of a fixed size, which run in
+ * parallel for large data sets. The results of the blocks are combined in order, so a result
+ * never depends on how many threads were used, and a data set of a single block is reduced
+ * sequentially from start to end
  *
  * @author Ryan Harrison
  */
 public final class StatUtils {
 
+    private static final int BLOCK_SIZE = 1 << 12;
+
+    // below this the overhead of reducing blocks in parallel outweighs the gain
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
     /**
      * Not permitted to create an instance of this class
      */
@@ -84,6 +95,32 @@ public final class StatUtils {
         return data.length / sum;
     }
 
+    /**
+     * Find the index of the maximum or largest value in a data set
+     * <p>
+     * Values which aren't numbers are ignored unless the first value isn't a number, in which
+     * case its index is returned
+     *
+     * @param data The data to use
+     * @return The first index of the largest value in the data set
+     */
+    public static int indexOfMax(double[] data) {
+        return indexOfExtreme(data, 1);
+    }
+
+    /**
+     * Find the index of the minimum or smallest value in a data set
+     * <p>
+     * Values which aren't numbers are ignored unless the first value isn't a number, in which
+     * case its index is returned
+     *
+     * @param data The data to use
+     * @return The first index of the smallest value in the data set
+     */
+    public static int indexOfMin(double[] data) {
+        return indexOfExtreme(data, -1);
+    }
+
     /**
      * Calculate the interquartile range of a data set
      * <p>
@@ -126,15 +163,7 @@ public final class StatUtils {
      * @return The maximum or largest value in the data set
      */
     public static double max(double[] data) {
-        double max = data[0];
-
-        for (int i = 1; i < data.length; i++) {
-            if (data[i] > max) {
-                max = data[i];
-            }
-        }
-
-        return max;
+        return data[indexOfMax(data)];
     }
 
     /**
@@ -166,15 +195,7 @@ public final class StatUtils {
      * @return The minimum or smallest value in the data set
      */
     public static double min(double[] data) {
-        double min = data[0];
-
-        for (int i = 1; i < data.length; i++) {
-            if (data[i] < min) {
-                min = data[i];
-            }
-        }
-
-        return min;
+        return data[indexOfMin(data)];
     }
 
     /**
@@ -190,8 +211,11 @@ public final class StatUtils {
      *                                  inclusive
      */
     public static double percentile(double[] data, double n) {
+        if (!(n >= 0 && n <= 1)) {
+            throw new IllegalArgumentException("Percentile must be between zero and one inclusive");
+        }
+
         double[] ndata = data.clone();
-        Arrays.sort(ndata);
 
         double result;
 
@@ -204,13 +228,22 @@ public final class StatUtils {
         // Get the integer value of that index
         int indexNum = (int) Math.floor(index) - 1;
 
+        // only the values at indexNum and the one after it in sorted order are needed
+        select(ndata, indexNum);
+
         if (remainder == 0) {
             // we have an integer value, no interpolation needed
             result = ndata[indexNum];
         } else {
-            // we need to interpolate
+            // we need to interpolate, the next value is the smallest of those after indexNum
             double value = ndata[indexNum];
-            double interpolationValue = (ndata[indexNum + 1] - value) * remainder;
+            double next = ndata[indexNum + 1];
+            for (int i = indexNum + 2; i < ndata.length; i++) {
+                if (Double.compare(ndata[i], next) < 0) {
+                    next = ndata[i];
+                }
+            }
+            double interpolationValue = (next - value) * remainder;
             result = value + interpolationValue;
         }
 
@@ -320,8 +353,8 @@ public final class StatUtils {
     public static double product(double[] data) {
         double product = 1.0;
 
-        for (int i = 0; i < data.length; i++) {
-            product *= data[i];
+        for (double[] block : reduceBlocks(data, StatUtils::product)) {
+            product *= block[0];
         }
 
         return product;
@@ -351,6 +384,58 @@ public final class StatUtils {
         return Math.sqrt(sumOfSquares(data) / data.length);
     }
 
+    /**
+     * Partially sort a data set so that the value at an index is the one which would be there if
+     * the data set was sorted, with no larger values before it and no smaller values after it
+     * <p>
+     * Values are ordered as by {@link java.util.Arrays#sort(double[])}. This takes linear time on
+     * average rather than sorting the whole data set
+     *
+     * @param data The data to partially sort in place
+     * @param k    The index
+     */
+    public static void select(double[] data, int k) {
+        int lo = 0;
+        int hi = data.length - 1;
+
+        while (lo < hi) {
+            double pivot = medianOfThree(data[lo], data[(lo + hi) >>> 1], data[hi]);
+            int i = lo;
+            int j = hi;
+
+            while (i <= j) {
+                while (Double.compare(data[i], pivot) < 0) {
+                    i++;
+                }
+                while (Double.compare(data[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    double temp = data[i];
+                    data[i++] = data[j];
+                    data[j--] = temp;
+                }
+            }
+
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        if (Double.compare(a, b) > 0) {
+            double temp = a;
+            a = b;
+            b = temp;
+        }
+        return Double.compare(b, c) <= 0 ? b : Double.compare(a, c) >= 0 ? a : c;
+    }
+
     /**
      * Calculate the skewness of a data set
      *
@@ -392,8 +477,8 @@ public final class StatUtils {
     public static double sum(double[] data) {
         double sum = 0;
 
-        for (int i = 0; i < data.length; i++) {
-            sum += data[i];
+        for (double[] block : reduceBlocks(data, StatUtils::sum)) {
+            sum += block[0];
         }
 
         return sum;
@@ -449,17 +534,24 @@ public final class StatUtils {
 
     /**
      * Calculate the variance of a data set
+     * <p>
+     * The squared deviations of each block from its own mean are combined as by Chan, Golub and
+     * LeVeque, which for a single block is the sum of the squared deviations from the mean
      *
      * @param data The data to use
      * @return The variance of the data set
      */
     public static double variance(double[] data) {
-        double mean = mean(data);
-
+        double count = 0;
+        double mean = 0;
         double sumOfSquaredDeviations = 0;
 
-        for (int i = 0; i < data.length; i++) {
-            sumOfSquaredDeviations += Math.pow(data[i] - mean, 2);
+        for (double[] block : reduceBlocks(data, StatUtils::moments)) {
+            double total = count + block[0];
+            double delta = block[1] - mean;
+            sumOfSquaredDeviations += block[2] + delta * delta * count * block[0] / total;
+            mean += delta * block[0] / total;
+            count = total;
         }
 
         return sumOfSquaredDeviations / (data.length - 1);
@@ -491,4 +583,87 @@ public final class StatUtils {
 
         return numerator / denominator;
     }
+
+    private interface BlockReducer {
+        double[] reduce(double[] data, int from, int to);
+    }
+
+    // the result of each block in order
+    private static double[][] reduceBlocks(double[] data, BlockReducer reducer) {
+        int blocks = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream indices = IntStream.range(0, blocks);
+        if (data.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+
+        return indices.mapToObj(block -> reducer.reduce(data, block * BLOCK_SIZE, Math.min(data.length, (block + 1) * BLOCK_SIZE)))
+                .toArray(double[][]::new);
+    }
+
+    private static double[] sum(double[] data, int from, int to) {
+        double sum = 0;
+
+        for (int i = from; i < to; i++) {
+            sum += data[i];
+        }
+
+        return new double[]{sum};
+    }
+
+    private static double[] product(double[] data, int from, int to) {
+        double product = 1.0;
+
+        for (int i = from; i < to; i++) {
+            product *= data[i];
+        }
+
+        return new double[]{product};
+    }
+
+    // the count, mean and sum of squared deviations from the mean
+    private static double[] moments(double[] data, int from, int to) {
+        double mean = sum(data, from, to)[0] / (to - from);
+        double sumOfSquaredDeviations = 0;
+
+        for (int i = from; i < to; i++) {
+            sumOfSquaredDeviations += Math.pow(data[i] - mean, 2);
+        }
+
+        return new double[]{to - from, mean, sumOfSquaredDeviations};
+    }
+
+    // the first index of the most extreme value in the direction of sign
+    private static int indexOfExtreme(double[] data, int sign) {
+        if (Double.isNaN(data[0])) {
+            return 0;
+        }
+
+        int index = 0;
+
+        for (double[] block : reduceBlocks(data, (d, from, to) -> indexOfExtreme(d, from, to, sign))) {
+            int candidate = (int) block[0];
+            if (candidate >= 0 && isBeyond(data[candidate], data[index], sign)) {
+                index = candidate;
+            }
+        }
+
+        return index;
+    }
+
+    // ignoring values which aren't numbers, -1 if there are none
+    private static double[] indexOfExtreme(double[] data, int from, int to, int sign) {
+        int index = -1;
+
+        for (int i = from; i < to; i++) {
+            if (!Double.isNaN(data[i]) && (index < 0 || isBeyond(data[i], data[index], sign))) {
+                index = i;
+            }
+        }
+
+        return new double[]{index};
+    }
+
+    private static boolean isBeyond(double value, double extreme, int sign) {
+        return sign < 0 ? value < extreme : value > extreme;
+    }
 }
@@ -0,0 +1,372 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.Operator;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.*;
+import uk.co.ryanharrison.mathengine.parser.operators.unary.simple.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Compiles bound expression trees of scalar operations into generated classes implementing
+ * {@link DoubleUnaryOperator} or {@link DoubleBinaryOperator}, so that evaluating them runs
+ * as plain JVM arithmetic without creating any nodes.
+ * <p>
+ * Only the arithmetic operators, pow, abs, ln and the trig functions are supported. Any
+ * subtree without variables is evaluated once by the {@link RecursiveDescentParser} and
+ * folded into a constant, and the angle unit of the context is applied at compile time.
+ * When the tree contains anything else, or a constant subtree fails to evaluate, the compile
+ * methods return null and the caller should fall back to interpreting the tree, which reports
+ * the error.
+ * <p>
+ * The generated code follows IEEE 754 arithmetic, so it gives infinity or NaN where the
+ * interpreter divides by an exact zero and throws, as for {@code 1 / sin(x)} at 0.
+ * <p>
+ * Each generated class is defined in its own class loader so that it can be unloaded once
+ * the operator is no longer referenced.
+ */
+final class BytecodeCompiler {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final String PACKAGE = "uk/co/ryanharrison/mathengine/parser/";
+    private static final String MATH = "java/lang/Math";
+
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private final EvaluationContext context;
+    private final ConstantPool pool = new ConstantPool();
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private int depth;
+    private int maxDepth;
+
+    private BytecodeCompiler(EvaluationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Compile a tree whose only variable is bound to slot 0
+     *
+     * @param context The context the tree was bound in
+     * @param tree    The bound tree
+     * @return The compiled operator, or null if the tree cannot be compiled
+     */
+    static DoubleUnaryOperator compileUnary(EvaluationContext context, Node tree) {
+        return (DoubleUnaryOperator) compile(context, tree, 1);
+    }
+
+    /**
+     * Compile a tree whose two variables are bound to slots 0 and 1
+     *
+     * @param context The context the tree was bound in
+     * @param tree    The bound tree
+     * @return The compiled operator, or null if the tree cannot be compiled
+     */
+    static DoubleBinaryOperator compileBinary(EvaluationContext context, Node tree) {
+        return (DoubleBinaryOperator) compile(context, tree, 2);
+    }
+
+    private static Object compile(EvaluationContext context, Node tree, int arity) {
+        BytecodeCompiler compiler = new BytecodeCompiler(context);
+        try {
+            compiler.emit(tree, arity);
+            compiler.op(DRETURN, -2);
+
+            String name = PACKAGE + "GeneratedExpression$" + COUNTER.incrementAndGet();
+            byte[] bytes = compiler.toClassFile(name, arity);
+            Class<?> generated = new GeneratedClassLoader().define(name.replace('/', '.'), bytes);
+            return generated.getDeclaredConstructor().newInstance();
+        } catch (UnsupportedNodeException e) {
+            return null;
+        } catch (ReflectiveOperationException | LinkageError | IOException e) {
+            // fall back to the interpreter rather than failing to evaluate
+            return null;
+        }
+    }
+
+    private void emit(Node node, int arity) {
+        if (node instanceof NodeSlot) {
+            int index = ((NodeSlot) node).getIndex();
+            if (index >= arity)
+                throw new UnsupportedNodeException();
+
+            op(DLOAD, 2);
+            code.write(1 + 2 * index);
+        } else if (node instanceof NodeExpression) {
+            if (TreeSimplifier.isConstant(node)) {
+                emitConstant(fold(node));
+            } else {
+                emitExpression((NodeExpression) node, arity);
+            }
+        } else if (node instanceof NodeNumber) {
+            emitConstant(node);
+        } else {
+            throw new UnsupportedNodeException();
+        }
+    }
+
+    private void emitExpression(NodeExpression expression, int arity) {
+        Operator operator = expression.getOperator();
+        Class<?> type = operator.getClass();
+
+        if (expression.getArgTwo() != null) {
+            emit(expression.getArgOne(), arity);
+            emit(expression.getArgTwo(), arity);
+
+            if (type == Add.class) {
+                op(DADD, -2);
+            } else if (type == Subtract.class) {
+                op(DSUB, -2);
+            } else if (type == Multiply.class) {
+                op(DMUL, -2);
+            } else if (type == Divide.class) {
+                op(DDIV, -2);
+            } else if (type == Pow.class) {
+                invokeMath("pow", "(DD)D", -2);
+            } else {
+                throw new UnsupportedNodeException();
+            }
+        } else {
+            if (type == Sine.class || type == Cosine.class || type == Tangent.class) {
+                emit(expression.getArgOne(), arity);
+                emitToRadians();
+                invokeMath(type == Sine.class ? "sin" : type == Cosine.class ? "cos" : "tan", "(D)D", 0);
+            } else if (type == Ln.class) {
+                emit(expression.getArgOne(), arity);
+                invokeMath("log", "(D)D", 0);
+            } else if (type == Abs.class) {
+                emit(expression.getArgOne(), arity);
+                invokeMath("abs", "(D)D", 0);
+            } else {
+                throw new UnsupportedNodeException();
+            }
+        }
+    }
+
+    // mirrors the conversion made by TrigOperator
+    private void emitToRadians() {
+        switch (context.getAngleUnit()) {
+            case Degrees:
+                emitDouble(Math.PI);
+                op(DMUL, -2);
+                emitDouble(180.0);
+                op(DDIV, -2);
+                break;
+            case Gradians:
+                emitDouble(Math.PI / 200);
+                op(DMUL, -2);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void emitConstant(Node node) {
+        if (!(node instanceof NodeNumber) || node instanceof NodePercent)
+            throw new UnsupportedNodeException();
+
+        emitDouble(((NodeNumber) node).doubleValue());
+    }
+
+    private void emitDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (bits == 0L) {
+            op(DCONST_0, 2);
+        } else if (bits == Double.doubleToRawLongBits(1.0)) {
+            op(DCONST_1, 2);
+        } else {
+            op(LDC2_W, 2);
+            writeShort(pool.doubleConstant(value));
+        }
+    }
+
+    private void invokeMath(String name, String descriptor, int stackChange) {
+        op(INVOKESTATIC, stackChange);
+        writeShort(pool.methodRef(MATH, name, descriptor));
+    }
+
+    private Node fold(Node node) {
+        try {
+            return new RecursiveDescentParser(context).parse(node);
+        } catch (RuntimeException e) {
+            throw new UnsupportedNodeException();
+        }
+    }
+
+    private void op(int opcode, int stackChange) {
+        code.write(opcode);
+        depth += stackChange;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void writeShort(int value) {
+        code.write(value >>> 8);
+        code.write(value);
+    }
+
+    private byte[] toClassFile(String name, int arity) throws IOException {
+        String iface = arity == 1 ? "java/util/function/DoubleUnaryOperator" : "java/util/function/DoubleBinaryOperator";
+        String descriptor = arity == 1 ? "(D)D" : "(DD)D";
+
+        int thisClass = pool.classRef(name);
+        int superClass = pool.classRef("java/lang/Object");
+        int interfaceClass = pool.classRef(iface);
+        int superInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int applyName = pool.utf8("applyAsDouble");
+        int applyDescriptor = pool.utf8(descriptor);
+        int codeName = pool.utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(55);
+        pool.write(out);
+
+        out.writeShort(0x0031); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(interfaceClass);
+        out.writeShort(0);
+
+        out.writeShort(2);
+
+        byte[] init = {ALOAD_0, (byte) INVOKESPECIAL, (byte) (superInit >>> 8), (byte) superInit, (byte) RETURN};
+        writeMethod(out, initName, initDescriptor, codeName, 1, 1, init);
+        writeMethod(out, applyName, applyDescriptor, codeName, maxDepth, 1 + 2 * arity, code.toByteArray());
+
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001); // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> out.writeUTF(value));
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return entry("C" + name, 1, () -> {
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int classIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, 1, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, 1, () -> {
+                out.writeByte(10);
+                out.writeShort(classIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            return entry("D" + bits, 2, () -> {
+                out.writeByte(6);
+                out.writeLong(bits);
+            });
+        }
+
+        private int entry(String key, int size, Writer writer) {
+            Integer index = entries.get(key);
+            if (index != null)
+                return index;
+
+            try {
+                if (key.charAt(0) == 'U')
+                    out.writeByte(1);
+                writer.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+
+            entries.put(key, count);
+            count += size;
+            return count - size;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            target.write(bytes.toByteArray());
+        }
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader() {
+            super(BytecodeCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class UnsupportedNodeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedNodeException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An expression that has been parsed once into a reusable tree. The variables of the
+ * expression are bound to indexed double slots and any other named constants are
+ * resolved when the expression is compiled, so evaluating it performs no parsing and
+ * no name lookups. The bound tree is then simplified, folding any parts which do not
+ * depend on the variables. Trees which only use scalar arithmetic are evaluated on
+ * primitive doubles without creating any nodes.
+ * <p>
+ * Instances are not thread safe as the slot values are shared between evaluations. The
+ * evaluateAll methods do not use the shared slots and may be called concurrently.
+ */
+public final class CompiledExpression {
+
+    /**
+     * The number of rows below which a parallel evaluation is not split any further
+     */
+    private static final int PARALLEL_THRESHOLD = 16 * ScalarProgram.CHUNK_SIZE;
+
+    private final EvaluationContext context;
+    private final Node tree;
+    private final String[] variables;
+    private final double[] slots;
+    private final RecursiveDescentParser parser;
+    private final ScalarProgram program;
+
+    CompiledExpression(EvaluationContext context, Node tree, String[] variables) {
+        this.context = context;
+        this.variables = variables.clone();
+        this.slots = new double[variables.length];
+        this.tree = TreeSimplifier.simplify(context, bind(context, tree));
+        this.parser = new RecursiveDescentParser(context, slots);
+        this.program = ScalarProgram.compile(context, this.tree);
+    }
+
+    private Node bind(EvaluationContext context, Node node) {
+        if (node instanceof NodeVariable) {
+            String var = ((NodeVariable) node).getVariable();
+            for (int i = 0; i < variables.length; i++) {
+                if (variables[i].equals(var))
+                    return new NodeSlot(var, i);
+            }
+            return context.isConstant(var) ? context.getConstant(var) : node;
+        }
+
+        return TreeWalker.mapChildren(node, child -> bind(context, child));
+    }
+
+    /**
+     * Evaluate this expression with its single variable set to the specified value
+     *
+     * @param value The value of the variable
+     * @return The result of the expression as a double
+     */
+    public double evaluate(double value) {
+        if (slots.length != 1)
+            throw new IllegalArgumentException("Expected " + slots.length + " arguments");
+
+        slots[0] = value;
+        return evaluate();
+    }
+
+    /**
+     * Evaluate this expression with its variables set to the specified values, given in
+     * the same order the variables were compiled with
+     *
+     * @param values The values of the variables
+     * @return The result of the expression as a double
+     */
+    public double evaluate(double... values) {
+        if (values.length != slots.length)
+            throw new IllegalArgumentException("Expected " + slots.length + " arguments");
+
+        System.arraycopy(values, 0, slots, 0, values.length);
+        return evaluate();
+    }
+
+    private double evaluate() {
+        if (program != null)
+            return program.evaluate(slots);
+
+        return toDouble(parser.parse(tree));
+    }
+
+    private static double toDouble(NodeConstant r) {
+        if (r instanceof NodeNumber) {
+            return r.getTransformer().toNodeNumber().doubleValue();
+        } else {
+            throw new UnsupportedOperationException("Expression does not return a double value");
+        }
+    }
+
+    /**
+     * Evaluate this expression of one variable at every value of xs
+     *
+     * @param xs  The values of the variable
+     * @param out The array to write each result to, at the same index as its value
+     */
+    public void evaluateAll(double[] xs, double[] out) {
+        evaluateAll(new double[][]{xs}, out);
+    }
+
+    /**
+     * Evaluate this expression for every row of a set of columns. Scalar expressions are
+     * evaluated a column at a time, so that each operation is applied to a block of rows
+     * before moving on to the next
+     *
+     * @param columns The values of each variable, in the order the variables were compiled with
+     * @param out     The array to write the result of each row to
+     */
+    public void evaluateAll(double[][] columns, double[] out) {
+        checkColumns(columns, out);
+        evaluateRange(columns, out, 0, out.length);
+    }
+
+    /**
+     * Evaluate this expression for every row of a set of columns as in
+     * {@link #evaluateAll(double[][], double[])}, splitting the rows between the threads of
+     * the common fork join pool
+     *
+     * @param columns The values of each variable, in the order the variables were compiled with
+     * @param out     The array to write the result of each row to
+     */
+    public void evaluateAllParallel(double[][] columns, double[] out) {
+        checkColumns(columns, out);
+        ForkJoinPool.commonPool().invoke(new EvaluateTask(columns, out, 0, out.length));
+    }
+
+    private void checkColumns(double[][] columns, double[] out) {
+        if (columns.length != variables.length)
+            throw new IllegalArgumentException("Expected " + variables.length + " columns");
+
+        for (double[] column : columns) {
+            if (column.length != out.length)
+                throw new IllegalArgumentException("Columns must be the same length as the output");
+        }
+    }
+
+    private void evaluateRange(double[][] columns, double[] out, int from, int to) {
+        if (program != null) {
+            program.evaluateAll(columns, out, from, to);
+            return;
+        }
+
+        // uses its own slots so that ranges can be evaluated concurrently
+        double[] rowSlots = new double[columns.length];
+        RecursiveDescentParser rowParser = new RecursiveDescentParser(context, rowSlots);
+        for (int row = from; row < to; row++) {
+            for (int i = 0; i < columns.length; i++) {
+                rowSlots[i] = columns[i][row];
+            }
+            out[row] = toDouble(rowParser.parse(tree));
+        }
+    }
+
+    private final class EvaluateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] columns;
+        private final double[] out;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(double[][] columns, double[] out, int from, int to) {
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                evaluateRange(columns, out, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(columns, out, from, middle),
+                        new EvaluateTask(columns, out, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Get this expression of one variable as a primitive operator. Scalar expressions are
+     * compiled to bytecode, with constants and the angle unit fixed at the time of this call,
+     * and the resulting operator is stateless and thread safe. Any other expression falls
+     * back to evaluating this instance.
+     * <p>
+     * The compiled operator runs in double arithmetic, so results follow IEEE 754 rather than
+     * the exact fractions of the evaluator: {@code 1 / sin(x)} at 0 is infinity rather than an
+     * error. A constant part of the expression which fails to evaluate, such as {@code 1 / 0},
+     * is not compiled, and the fallback throws the error of the evaluator instead.
+     *
+     * @return An operator evaluating this expression
+     */
+    public DoubleUnaryOperator toUnaryOperator() {
+        if (variables.length != 1)
+            throw new IllegalStateException("Expression has " + variables.length + " variables, not 1");
+
+        DoubleUnaryOperator compiled = BytecodeCompiler.compileUnary(context, tree);
+        return compiled != null ? compiled : value -> evaluate(value);
+    }
+
+    /**
+     * Get this expression of two variables as a primitive operator, in the same way as
+     * {@link #toUnaryOperator()}
+     *
+     * @return An operator evaluating this expression
+     */
+    public DoubleBinaryOperator toBinaryOperator() {
+        if (variables.length != 2)
+            throw new IllegalStateException("Expression has " + variables.length + " variables, not 2");
+
+        DoubleBinaryOperator compiled = BytecodeCompiler.compileBinary(context, tree);
+        return compiled != null ? compiled : (left, right) -> evaluate(left, right);
+    }
+
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    /**
+     * Determines whether this expression is evaluated on primitive doubles rather than by
+     * interpreting its tree
+     *
+     * @return True if the expression only uses scalar arithmetic, otherwise false
+     */
+    public boolean isScalar() {
+        return program != null;
+    }
+
+    public Node getTree() {
+        return tree;
+    }
+}
@@ -0,0 +1,240 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.CustomOperator;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Records which names each variable and function definition reads, so that redefining a
+ * name recomputes only the variables which depend on it.
+ * <p>
+ * A variable defined with := depends on every variable and function its expression reads,
+ * and on everything those functions read in turn. Functions are evaluated when they are
+ * called, so redefining a function or a name it reads recomputes the variables which call
+ * it. Dependents are recomputed in topological order, so each is evaluated once after
+ * everything it reads is up to date, and the work is proportional to the number of
+ * dependents rather than the number of definitions.
+ * <p>
+ * A definition which reads its own name uses the previous value and does not depend on
+ * itself. Any other cycle between variables is rejected before the definition is evaluated.
+ * <p>
+ * Access to the graph is synchronized, dependents are recomputed outside of the lock.
+ */
+public final class DependencyGraph {
+
+    private final Map<String, Node> definitions = new HashMap<>();
+    private final Map<String, Set<String>> reads = new HashMap<>();
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+    private final Map<String, Set<String>> functionReads = new HashMap<>();
+
+    private long recomputations;
+
+    DependencyGraph() {
+    }
+
+    /**
+     * Evaluate a tree, recording it if it is a definition and recomputing everything which
+     * depends on the name it defines
+     *
+     * @param tree      The tree to evaluate
+     * @param evaluator Evaluates a tree in the shared context
+     * @return The result of the tree
+     */
+    NodeConstant evaluate(Node tree, Function<Node, NodeConstant> evaluator) {
+        if (tree instanceof NodeAddVariable) {
+            String name = ((NodeAddVariable) tree).getVariable();
+            Set<String> names = readsOf(((NodeAddVariable) tree).getNode(), Collections.emptyList());
+            names.remove(name);
+
+            checkAcyclic(name, names);
+            NodeConstant result = evaluator.apply(tree);
+            recompute(defineVariable(name, tree, names), evaluator);
+            return result;
+        } else if (tree instanceof NodeFunction && !((NodeFunction) tree).getIdentifier().isEmpty()) {
+            NodeFunction function = (NodeFunction) tree;
+            NodeConstant result = evaluator.apply(tree);
+            recompute(defineFunction(function), evaluator);
+            return result;
+        }
+
+        return evaluator.apply(tree);
+    }
+
+    private void recompute(List<String> order, Function<Node, NodeConstant> evaluator) {
+        for (String name : order) {
+            Node definition;
+            synchronized (this) {
+                definition = definitions.get(name);
+                if (definition == null)
+                    continue;
+
+                // the functions it calls may now read different names
+                Set<String> names = readsOf(((NodeAddVariable) definition).getNode(), Collections.emptyList());
+                names.remove(name);
+                setReads(name, expand(names));
+                recomputations++;
+            }
+            evaluator.apply(definition);
+        }
+    }
+
+    private synchronized void checkAcyclic(String name, Set<String> names) {
+        Set<String> cycle = new HashSet<>(expand(names));
+        cycle.retainAll(dependentsOf(name));
+        if (!cycle.isEmpty())
+            throw new IllegalArgumentException("Circular definition of " + name + " through " + cycle);
+    }
+
+    private synchronized List<String> defineVariable(String name, Node tree, Set<String> names) {
+        definitions.put(name, tree);
+        setReads(name, expand(names));
+        return recomputeOrder(name);
+    }
+
+    private synchronized List<String> defineFunction(NodeFunction function) {
+        String[] variables = function.getVariables();
+        Set<String> names = readsOf(function.getNode(), variables == null ? Collections.emptyList() : Arrays.asList(variables));
+        functionReads.put(function.getIdentifier(), names);
+        return recomputeOrder(function.getIdentifier());
+    }
+
+    private void setReads(String name, Set<String> names) {
+        Set<String> previous = reads.put(name, names);
+        if (previous != null) {
+            for (String read : previous) {
+                Set<String> set = dependents.get(read);
+                if (set != null)
+                    set.remove(name);
+            }
+        }
+
+        for (String read : names) {
+            dependents.computeIfAbsent(read, k -> new HashSet<>()).add(name);
+        }
+    }
+
+    // the names read by a set of names, following the bodies of any functions among them
+    private Set<String> expand(Set<String> names) {
+        Set<String> result = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(names);
+        while (!pending.isEmpty()) {
+            String name = pending.pop();
+            if (result.add(name)) {
+                Set<String> body = functionReads.get(name);
+                if (body != null)
+                    pending.addAll(body);
+            }
+        }
+        return result;
+    }
+
+    private Set<String> dependentsOf(String name) {
+        Set<String> result = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(dependents.getOrDefault(name, Collections.emptySet()));
+        while (!pending.isEmpty()) {
+            String dependent = pending.pop();
+            if (result.add(dependent))
+                pending.addAll(dependents.getOrDefault(dependent, Collections.emptySet()));
+        }
+        return result;
+    }
+
+    // reverse post order of a depth first search, so every variable follows what it reads
+    private List<String> recomputeOrder(String name) {
+        List<String> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<Iterator<String>> stack = new ArrayDeque<>();
+        Deque<String> path = new ArrayDeque<>();
+
+        visited.add(name);
+        stack.push(dependents.getOrDefault(name, Collections.emptySet()).iterator());
+
+        // iterative so that long chains of definitions cannot overflow the stack
+        while (!stack.isEmpty()) {
+            Iterator<String> children = stack.peek();
+            if (children.hasNext()) {
+                String dependent = children.next();
+                if (visited.add(dependent)) {
+                    path.push(dependent);
+                    stack.push(dependents.getOrDefault(dependent, Collections.emptySet()).iterator());
+                }
+            } else {
+                stack.pop();
+                if (!path.isEmpty() && stack.size() == path.size())
+                    order.add(path.pop());
+            }
+        }
+
+        Collections.reverse(order);
+        return order;
+    }
+
+    private static Set<String> readsOf(Node node, Collection<String> parameters) {
+        Set<String> names = new HashSet<>();
+        collectReads(node, parameters, names);
+        return names;
+    }
+
+    private static void collectReads(Node node, Collection<String> parameters, Set<String> names) {
+        if (node instanceof NodeVariable) {
+            String var = ((NodeVariable) node).getVariable();
+            if (!parameters.contains(var) && !RecursiveDescentParser.isCommand(var))
+                names.add(var);
+        } else if (node instanceof NodeExpression) {
+            NodeExpression expression = (NodeExpression) node;
+            if (expression.getOperator() instanceof CustomOperator)
+                names.add(expression.getOperator().toString());
+        }
+
+        TreeWalker.forEachChild(node, child -> collectReads(child, parameters, names));
+    }
+
+    /**
+     * Get the names a variable reads, including those read by the functions it calls, or the
+     * names read by the body of a function
+     *
+     * @param name The name of the variable or function
+     * @return The names it reads, which are empty if it has not been defined
+     */
+    public synchronized Set<String> getDependencies(String name) {
+        Set<String> names = functionReads.containsKey(name) ? functionReads.get(name) : reads.get(name);
+        return names == null ? Collections.emptySet() : new HashSet<>(names);
+    }
+
+    /**
+     * Get every variable which would be recomputed if a name were redefined
+     *
+     * @param name The name of the variable or function
+     * @return The variables which depend on it, directly or indirectly
+     */
+    public synchronized Set<String> getDependents(String name) {
+        return dependentsOf(name);
+    }
+
+    public synchronized int size() {
+        return definitions.size() + functionReads.size();
+    }
+
+    /**
+     * Get the number of times a variable has been recomputed because something it reads changed
+     *
+     * @return The number of recomputations
+     */
+    public synchronized long getRecomputations() {
+        return recomputations;
+    }
+
+    synchronized void clear() {
+        definitions.clear();
+        reads.clear();
+        dependents.clear();
+        functionReads.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DependencyGraph(definitions=%d, recomputations=%d)", size(), recomputations);
+    }
+}
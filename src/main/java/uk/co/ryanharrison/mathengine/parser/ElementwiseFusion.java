@@ -0,0 +1,207 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.linearalgebra.Matrix;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Multiply;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Evaluates chains of elementwise arithmetic over vectors and matrices of doubles in one pass.
+ * <p>
+ * Evaluating {@code (v * 2 + 1) ^ 2} an operator at a time creates a vector for every
+ * intermediate result. Instead, when the first operand of a chain of + - * / and ^ is a vector
+ * or matrix of doubles, the other operands are evaluated before any operator is applied, and
+ * if every operand which isn't a number is a vector of doubles of the same length, or every one
+ * is a matrix of doubles of the same size, the chain is run as a {@link ScalarProgram} over
+ * their elements and only the final result is created. Any other chain is evaluated an operator
+ * at a time as normal. Each of these operators gives a double
+ * whenever one of its operands is a double, so the result is the same as evaluating the chain an
+ * operator at a time, which is still done with the evaluated operands for any other chain. Parts
+ * of a chain which only depend on numbers are evaluated as numbers first, keeping their exact
+ * arithmetic.
+ */
+final class ElementwiseFusion {
+
+    private final EvaluationContext context;
+    private final NodeConstant first;
+    private final List<NodeConstant> operands = new ArrayList<>();
+
+    // the vectors or matrices the program reads, in slot order
+    private final List<NodeConstant> columns = new ArrayList<>();
+    private boolean matrices;
+    private int next;
+
+    private ElementwiseFusion(EvaluationContext context, NodeConstant first) {
+        this.context = context;
+        this.first = first;
+    }
+
+    /**
+     * Evaluate an expression if it is a chain of at least two elementwise arithmetic operators
+     *
+     * @param context    The context to evaluate the operators in
+     * @param expression The expression
+     * @param evaluator  Evaluates the operands of the chain
+     * @return The result, or null if the expression is not a chain
+     */
+    static NodeConstant evaluate(EvaluationContext context, NodeExpression expression, Function<Node, NodeConstant> evaluator) {
+        if (!isLink(expression) || !isLink(expression.getArgOne()) && !isLink(expression.getArgTwo()))
+            return null;
+
+        // the first operand decides whether the chain could be fused, so only it is evaluated first
+        Node operand = expression;
+        while (isLink(operand)) {
+            operand = ((NodeExpression) operand).getArgOne();
+        }
+
+        NodeConstant value = evaluator.apply(operand);
+        if (!(value instanceof NodeVector && ((NodeVector) value).isDense())
+                && !(value instanceof NodeMatrix && ((NodeMatrix) value).isDense()))
+            return evaluateSerially(context, expression, value, evaluator);
+
+        ElementwiseFusion fusion = new ElementwiseFusion(context, value);
+        fusion.evaluateOperands(expression, evaluator);
+
+        NodeConstant result = fusion.fuse(expression);
+        if (result != null)
+            return result;
+
+        fusion.next = 0;
+        return fusion.evaluateChain(expression);
+    }
+
+    private static boolean isLink(Node node) {
+        return node instanceof NodeExpression && ScalarProgram.isBinaryArithmetic((NodeExpression) node);
+    }
+
+    // the chain an operator at a time, given the value of its first operand
+    private static NodeConstant evaluateSerially(EvaluationContext context, NodeExpression expression, NodeConstant first,
+                                                 Function<Node, NodeConstant> evaluator) {
+        Node argOne = expression.getArgOne();
+        NodeConstant left = isLink(argOne) ? evaluateSerially(context, (NodeExpression) argOne, first, evaluator) : first;
+        NodeConstant right = evaluator.apply(expression.getArgTwo());
+        return ((BinaryOperator) expression.getOperator()).toResult(context, left, right);
+    }
+
+    // in the same order as evaluating the chain an operator at a time
+    private void evaluateOperands(Node node, Function<Node, NodeConstant> evaluator) {
+        if (isLink(node)) {
+            NodeExpression expression = (NodeExpression) node;
+            evaluateOperands(expression.getArgOne(), evaluator);
+            evaluateOperands(expression.getArgTwo(), evaluator);
+        } else {
+            // the first operand has already been evaluated
+            operands.add(operands.isEmpty() ? first : evaluator.apply(node));
+        }
+    }
+
+    private NodeConstant evaluateChain(Node node) {
+        if (!isLink(node))
+            return operands.get(next++);
+
+        NodeExpression expression = (NodeExpression) node;
+        NodeConstant left = evaluateChain(expression.getArgOne());
+        NodeConstant right = evaluateChain(expression.getArgTwo());
+        return ((BinaryOperator) expression.getOperator()).toResult(context, left, right);
+    }
+
+    // the result of running the chain over the elements, or null if the operands don't allow it
+    private NodeConstant fuse(NodeExpression expression) {
+        int length = -1;
+        int rowCount = -1;
+        int colCount = -1;
+        boolean vectors = false;
+
+        for (NodeConstant operand : operands) {
+            if (operand instanceof NodeVector && ((NodeVector) operand).isDense()) {
+                int size = ((NodeVector) operand).getSize();
+                if (length != -1 && length != size)
+                    return null;
+                length = size;
+                vectors = true;
+            } else if (operand instanceof NodeMatrix && ((NodeMatrix) operand).isDense()) {
+                NodeMatrix matrix = (NodeMatrix) operand;
+                if (rowCount != -1 && (rowCount != matrix.rowCount() || colCount != matrix.colCount()))
+                    return null;
+                rowCount = matrix.rowCount();
+                colCount = matrix.colCount();
+                matrices = true;
+            } else if (!(operand instanceof NodeNumber) || operand instanceof NodePercent) {
+                return null;
+            }
+        }
+
+        if (vectors == matrices || rowCount == 0 || colCount == 0)
+            return null;
+
+        Node tree = build(expression);
+        ScalarProgram program = tree == null ? null : ScalarProgram.compile(context, tree);
+        if (program == null)
+            return null;
+
+        if (vectors) {
+            double[][] values = new double[columns.size()][];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = ((NodeVector) columns.get(i)).toDoubleArray();
+            }
+
+            double[] results = new double[length];
+            program.evaluateAll(values, results, 0, length);
+            return new NodeVector(results);
+        }
+
+        // the elements are run in row major order in one pass
+        int size = rowCount * colCount;
+        double[][] values = new double[columns.size()][size];
+        for (int i = 0; i < values.length; i++) {
+            double[][] elements = ((NodeMatrix) columns.get(i)).toDoubleMatrix().getElements();
+            for (int j = 0; j < rowCount; j++) {
+                System.arraycopy(elements[j], 0, values[i], j * colCount, colCount);
+            }
+        }
+
+        double[] flat = new double[size];
+        program.evaluateAll(values, flat, 0, size);
+
+        Matrix result = new Matrix(rowCount, colCount);
+        double[][] results = result.getElements();
+        for (int i = 0; i < rowCount; i++) {
+            System.arraycopy(flat, i * colCount, results[i], 0, colCount);
+        }
+        return new NodeMatrix(result);
+    }
+
+    // the tree to run over the elements, with each vector or matrix bound to a slot, a number
+    // for a part which only depends on numbers, or null if the chain can't be run this way
+    private Node build(Node node) {
+        if (!isLink(node)) {
+            NodeConstant operand = operands.get(next++);
+            if (operand instanceof NodeNumber)
+                return operand;
+
+            columns.add(operand);
+            return new NodeSlot("$" + (columns.size() - 1), columns.size() - 1);
+        }
+
+        NodeExpression expression = (NodeExpression) node;
+        Node left = build(expression.getArgOne());
+        Node right = left == null ? null : build(expression.getArgTwo());
+        if (right == null)
+            return null;
+
+        if (left instanceof NodeNumber && right instanceof NodeNumber) {
+            NodeConstant result = ((BinaryOperator) expression.getOperator()).toResult(context, (NodeConstant) left, (NodeConstant) right);
+            return result instanceof NodeNumber && !(result instanceof NodePercent) ? result : null;
+        }
+
+        // multiplying two matrices isn't elementwise
+        if (matrices && expression.getOperator() instanceof Multiply && !(left instanceof NodeNumber) && !(right instanceof NodeNumber))
+            return null;
+
+        return new NodeExpression(expression.getOperator(), left, right);
+    }
+}
@@ -2,25 +2,71 @@ package uk.co.ryanharrison.mathengine.parser;
 
 import uk.co.ryanharrison.mathengine.Utils;
 import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeBoundVariable;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFunction;
 import uk.co.ryanharrison.mathengine.parser.operators.CustomOperator;
 import uk.co.ryanharrison.mathengine.parser.operators.Operator;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The operators, constants and settings an expression is evaluated with. A context is passed
+ * explicitly through every evaluation, and its maps are concurrent so that one context can be
+ * read by many evaluating threads while constants such as ans are written.
+ * <p>
+ * Arguments to functions are held in a frame, a context which shares the maps of the context
+ * it was created from and adds only the arguments. Names are looked up in the frame and then
+ * in its parent, and variables assigned while evaluating in a frame are kept in the frame.
+ * <p>
+ * The built in operators and default constants are read from a shared {@link OperatorRegistry}.
+ * The context holds only what is defined in it, which is looked up before the registry, so
+ * creating a context copies nothing.
+ */
 public class EvaluationContext {
 
-    private AngleUnit angleUnit = AngleUnit.Radians;
-    private Map<String, NodeConstant> constants = new HashMap<>();
-    private Map<String, Operator> operators = new HashMap<>();
-    private Map<String, CustomOperator> customOperators = new HashMap<>();
+    private final OperatorRegistry registry;
+    private volatile AngleUnit angleUnit = AngleUnit.Radians;
+    private Map<String, NodeConstant> constants = new ConcurrentHashMap<>();
+    private Map<String, Operator> operators = new ConcurrentHashMap<>();
+    private Map<String, CustomOperator> customOperators = new ConcurrentHashMap<>();
+    private Map<String, NodeBoundVariable.Cell> cells = new ConcurrentHashMap<>();
+    private Map<String, FunctionCache> functionCaches = new ConcurrentHashMap<>();
+    private volatile DependencyGraph dependencyGraph;
+    private volatile OperatorTrie operatorTrie;
+    private volatile boolean defaultsCleared;
+    private volatile int longestConstant;
+    private volatile int parseVersion;
 
-    private Evaluator evaluator;
+    private final EvaluationContext root;
+    private final EvaluationContext parent;
+    private final Frame frame;
 
-    EvaluationContext(Evaluator evaluator) {
-        this.evaluator = evaluator;
+    EvaluationContext() {
+        this(OperatorRegistry.EMPTY);
+    }
+
+    EvaluationContext(OperatorRegistry registry) {
+        this.registry = registry;
+        this.root = this;
+        this.parent = null;
+        this.frame = null;
+    }
+
+    private EvaluationContext(EvaluationContext parent, Frame frame) {
+        this.registry = parent.registry;
+        this.angleUnit = parent.angleUnit;
+        this.constants = parent.constants;
+        this.operators = parent.operators;
+        this.customOperators = parent.customOperators;
+        this.cells = parent.cells;
+        this.functionCaches = parent.functionCaches;
+        this.root = parent.root;
+        this.parent = parent;
+        this.frame = frame;
     }
 
     void fillOperators(Collection<Operator> ops) {
@@ -29,10 +75,13 @@ public class EvaluationContext {
         }
     }
 
-    private void addOperator(Operator operator) {
+    private synchronized void addOperator(Operator operator) {
         for (String alias : operator.getAliases()) {
             operators.put(alias, operator);
+            if (operatorTrie != null)
+                operatorTrie.insert(alias, operator);
         }
+        parseVersion++;
     }
 
     void addCustomOperator(CustomOperator operator) {
@@ -42,14 +91,62 @@ public class EvaluationContext {
         }
     }
 
-    int findLongestOperator() {
-        return operators.keySet().stream()
-                .mapToInt(String::length)
-                .max().orElse(0);
+    synchronized void removeCustomOperator(CustomOperator operator) {
+        for (String alias : operator.getAliases()) {
+            operators.remove(alias);
+            customOperators.remove(alias);
+            if (operatorTrie != null)
+                operatorTrie.insert(alias, null);
+        }
+        parseVersion++;
+    }
+
+    CustomOperator getCustomOperator(String identifier) {
+        return customOperators.get(identifier);
+    }
+
+    /**
+     * Get the latest definition of a custom function
+     *
+     * @param identifier The name of the function
+     * @return The function, or null if no function has that name
+     */
+    public NodeFunction getFunction(String identifier) {
+        CustomOperator operator = customOperators.get(identifier);
+        return operator == null ? null : operator.getFunction();
+    }
+
+    OperatorTrie getOperatorTrie() {
+        if (parent != null)
+            return parent.getOperatorTrie();
+
+        // the trie of the registry is shared until an operator is defined in this context
+        OperatorTrie trie = operatorTrie;
+        if (trie == null) {
+            if (operators.isEmpty())
+                return registry.getOperatorTrie();
+
+            synchronized (this) {
+                trie = operatorTrie;
+                if (trie == null) {
+                    trie = new OperatorTrie();
+                    registry.getOperators().forEach(trie::insert);
+                    operators.forEach(trie::insert);
+                    operatorTrie = trie;
+                }
+            }
+        }
+        return trie;
+    }
+
+    int findLongestConstant() {
+        if (root.defaultsCleared)
+            return root.longestConstant;
+        return Math.max(root.longestConstant, registry.getLongestConstant());
     }
 
     boolean isOperator(String str) {
-        return operators.containsKey(Utils.standardiseString(str));
+        return getOperator(str) != null;
     }
 
     boolean isSystemOperator(String str) {
@@ -57,26 +154,118 @@ public class EvaluationContext {
     }
 
     Operator getOperator(String str) {
-        return operators.get(Utils.standardiseString(str));
+        if (str == null)
+            return null;
+
+        String alias = Utils.standardiseString(str);
+        Operator operator = operators.get(alias);
+        return operator != null ? operator : registry.getOperator(alias);
     }
 
     void addConstant(String variable, NodeConstant constant) {
-        if (!isSystemOperator(variable))
-            constants.put(variable, constant);
-        else
+        if (isSystemOperator(variable))
             throw new IllegalArgumentException("Constant is an operator");
+
+        if (frame != null) {
+            frame.put(variable, constant);
+            return;
+        }
+
+        // names which would not otherwise be parsed as a variable change how text parses
+        if (getGlobalConstant(variable) == null && !ExpressionParser.isVariableName(variable, getOperatorTrie())) {
+            synchronized (this) {
+                constants.put(variable, constant);
+                longestConstant = Math.max(longestConstant, variable.length());
+                parseVersion++;
+            }
+        } else {
+            constants.put(variable, constant);
+        }
+
+        // read after the constant is stored so that a cell created concurrently is not missed
+        NodeBoundVariable.Cell cell = cells.get(variable);
+        if (cell != null)
+            cell.set(constant);
     }
 
     NodeConstant getConstant(String variable) {
-        return constants.get(variable);
+        if (variable == null)
+            return null;
+
+        for (EvaluationContext context = this; context.frame != null; context = context.parent) {
+            NodeConstant value = context.frame.get(variable);
+            if (value != null)
+                return value;
+        }
+        return getGlobalConstant(variable);
+    }
+
+    private NodeConstant getGlobalConstant(String variable) {
+        NodeConstant value = constants.get(variable);
+        if (value == null && !root.defaultsCleared)
+            value = registry.getConstant(variable);
+        return value;
+    }
+
+    /**
+     * Get the value of a bound variable, looking first at the arguments of any enclosing calls
+     *
+     * @param variable The bound variable
+     * @return The value, or null if the variable has no value
+     */
+    NodeConstant getConstant(NodeBoundVariable variable) {
+        if (frame != null) {
+            String name = variable.getVariable();
+            for (EvaluationContext context = this; context.frame != null; context = context.parent) {
+                NodeConstant value = context.frame.get(name);
+                if (value != null)
+                    return value;
+            }
+        }
+        NodeConstant value = variable.getCell().get();
+        // cells are discarded when constants are cleared, after which the name is looked up again
+        return value != null ? value : getGlobalConstant(variable.getVariable());
+    }
+
+    /**
+     * Get the cell holding the value of a variable, creating it if this is the first time the
+     * variable has been bound
+     *
+     * @param variable The name of the variable
+     * @return The cell, which is updated whenever the variable is redefined
+     */
+    NodeBoundVariable.Cell getCell(String variable) {
+        return cells.computeIfAbsent(variable, name -> new NodeBoundVariable.Cell(getGlobalConstant(name)));
     }
 
     boolean isConstant(String variable) {
-        return constants.containsKey(variable);
+        return getConstant(variable) != null;
     }
 
-    void clearConstants() {
+    synchronized void clearConstants() {
+        if (frame != null) {
+            frame.clear();
+            return;
+        }
+
         constants.clear();
+        defaultsCleared = true;
+        longestConstant = 0;
+        cells.values().forEach(cell -> cell.set(null));
+        cells.clear();
+        if (dependencyGraph != null)
+            dependencyGraph.clear();
+        parseVersion++;
+    }
+
+    /**
+     * Get a counter which changes whenever the operators or constants change in a way
+     * which could cause the same text to be parsed into a different tree
+     *
+     * @return The current parse version
+     */
+    int getParseVersion() {
+        return parent != null ? parent.getParseVersion() : parseVersion;
     }
 
     public AngleUnit getAngleUnit() {
@@ -88,15 +277,110 @@ public class EvaluationContext {
     }
 
     public NodeConstant evaluateFunc(Node tree, Map<String, NodeConstant> args) {
-        return evaluator.parseTreeWithArgs(tree, args);
+        return new RecursiveDescentParser(withArgs(args)).parse(tree);
+    }
+
+    /**
+     * Evaluate the body of a function in a frame holding its arguments
+     *
+     * @param function The function to evaluate
+     * @param args     The value of each variable of the function, in order
+     * @return The result of the function
+     */
+    public NodeConstant evaluateFunc(NodeFunction function, NodeConstant... args) {
+        FunctionCache cache = functionCaches.isEmpty() ? null : functionCaches.get(function.getIdentifier());
+        if (cache == null || !cache.validate(this, function))
+            return evaluateInFrame(function, args);
+
+        Object key = FunctionCache.keyOf(args);
+        NodeConstant result = cache.get(key);
+        if (result == null) {
+            result = evaluateInFrame(function, args);
+            cache.put(function, angleUnit, key, result);
+        }
+        return result;
+    }
+
+    private NodeConstant evaluateInFrame(NodeFunction function, NodeConstant[] args) {
+        EvaluationContext context = new EvaluationContext(this, new Frame(function.getVariables(), args));
+        return new RecursiveDescentParser(context).parse(function.getNode());
+    }
+
+    DependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    void setDependencyGraph(DependencyGraph dependencyGraph) {
+        this.dependencyGraph = dependencyGraph;
+    }
+
+    FunctionCache getFunctionCache(String identifier) {
+        return functionCaches.get(identifier);
+    }
+
+    void setFunctionCache(String identifier, FunctionCache cache) {
+        if (cache == null)
+            functionCaches.remove(identifier);
+        else
+            functionCaches.put(identifier, cache);
     }
 
     EvaluationContext withArgs(Map<String, NodeConstant> args) {
-        EvaluationContext context = new EvaluationContext(this.evaluator);
-        context.angleUnit = this.angleUnit;
-        context.operators.putAll(this.operators);
-        context.constants.putAll(this.constants);
-        context.constants.putAll(args);
-        return context;
+        String[] names = new String[args.size()];
+        NodeConstant[] values = new NodeConstant[args.size()];
+
+        int i = 0;
+        for (Map.Entry<String, NodeConstant> arg : args.entrySet()) {
+            names[i] = arg.getKey();
+            values[i++] = arg.getValue();
+        }
+        return new EvaluationContext(this, new Frame(names, values));
+    }
+
+    /**
+     * The arguments of a single call. Calls rarely have more than a few arguments so they are
+     * searched in order rather than hashed
+     */
+    private static final class Frame {
+
+        private String[] names;
+        private NodeConstant[] values;
+        private int size;
+
+        Frame(String[] names, NodeConstant[] values) {
+            this.names = names;
+            this.size = Math.min(names.length, values.length);
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        NodeConstant get(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name))
+                    return values[i];
+            }
+            return null;
+        }
+
+        void put(String name, NodeConstant value) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    values[i] = value;
+                    return;
+                }
+            }
+
+            // the names may be shared with the function, so they are copied before being added to
+            if (size == values.length) {
+                names = Arrays.copyOf(names, size * 2 + 1);
+                values = Arrays.copyOf(values, size * 2 + 1);
+            }
+            names[size] = name;
+            values[size++] = value;
+        }
+
+        void clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
     }
 }
@@ -1,88 +1,62 @@
 package uk.co.ryanharrison.mathengine.parser;
 
-import uk.co.ryanharrison.mathengine.linearalgebra.Matrix;
-import uk.co.ryanharrison.mathengine.linearalgebra.Vector;
 import uk.co.ryanharrison.mathengine.parser.nodes.*;
-import uk.co.ryanharrison.mathengine.parser.operators.OperatorProvider;
 
+import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Parses and evaluates expressions against a set of operators and constants.
+ * <p>
+ * Once configured an evaluator can be shared between threads. Operators hold no state of their
+ * own and the context is passed explicitly through each evaluation, so the evaluate methods may
+ * be called concurrently. Every evaluation made through {@link #evaluateConstant(String)} records
+ * its result as ans, which concurrent callers will overwrite; use
+ * {@link #evaluateConstant(String, Map)} or {@link #evaluateDouble(String, Map)} to supply
+ * variables to a single evaluation without changing the shared constants. Defining functions or
+ * variables, clearing them and changing the angle unit are visible to all threads.
+ */
 public final class Evaluator {
 
     public static Evaluator newEvaluator() {
-        Evaluator evaluator = newSimpleEvaluator();
-        evaluator.context.fillOperators(OperatorProvider.logicalOperators());
-        evaluator.context.fillOperators(OperatorProvider.vectorOperators());
-        evaluator.context.fillOperators(OperatorProvider.matrixOperators());
-        evaluator.context.fillOperators(OperatorProvider.customOperators());
-
-        return evaluator;
+        return new Evaluator(OperatorRegistry.full());
     }
 
     public static Evaluator newSimpleBinaryEvaluator() {
-        Evaluator evaluator = new Evaluator();
-        evaluator.context.fillOperators(OperatorProvider.simpleBinaryOperators());
-
-        return evaluator;
+        return new Evaluator(OperatorRegistry.simpleBinary());
     }
 
     public static Evaluator newSimpleEvaluator() {
-        Evaluator evaluator = newSimpleBinaryEvaluator();
-        evaluator.context.fillOperators(OperatorProvider.simpleUnaryOperators());
-        evaluator.context.fillOperators(OperatorProvider.trigOperators());
-
-        return evaluator;
-    }
-
-    private EvaluationContext context = new EvaluationContext(this);
-
-    private Evaluator() {
-        fillDefaultConstants();
-    }
-
-    private void fillDefaultConstants() {
-        context.addConstant("pi", new NodeDouble(Math.PI));
-        context.addConstant("euler", new NodeDouble(Math.E));
-        context.addConstant("infinity", new NodeDouble(Double.POSITIVE_INFINITY));
-        context.addConstant("nan", new NodeDouble(Double.NaN));
-        context.addConstant("goldenratio", new NodeDouble(1.6180339887));
-        context.addConstant("true", new NodeBoolean(true));
-        context.addConstant("false", new NodeBoolean(false));
-
-        context.addConstant("zero", NodeFactory.createZeroNumber());
-        context.addConstant("one", NodeFactory.createNodeNumberFrom(1.0));
-        context.addConstant("two", NodeFactory.createNodeNumberFrom(2.0));
-        context.addConstant("three", NodeFactory.createNodeNumberFrom(3.0));
-        context.addConstant("four", NodeFactory.createNodeNumberFrom(4.0));
-        context.addConstant("five", NodeFactory.createNodeNumberFrom(5.0));
-        context.addConstant("six", NodeFactory.createNodeNumberFrom(6.0));
-        context.addConstant("seven", NodeFactory.createNodeNumberFrom(7.0));
-        context.addConstant("eight", NodeFactory.createNodeNumberFrom(8.0));
-        context.addConstant("nine", NodeFactory.createNodeNumberFrom(9.0));
-        context.addConstant("ten", NodeFactory.createNodeNumberFrom(10.0));
-
-        context.addConstant("hundred", NodeFactory.createNodeNumberFrom(100.0));
-        context.addConstant("thousand", NodeFactory.createNodeNumberFrom(1000.0));
-        context.addConstant("million", NodeFactory.createNodeNumberFrom(1000000.0));
-        context.addConstant("billion", NodeFactory.createNodeNumberFrom(1000000000.0));
-
-        // context.addConstant("d", new NodeDouble(38.6));
-        context.addConstant("t", new NodeDouble(4.6));
-        context.addConstant("v", new NodeVector(new Vector(new double[]{458.6, 1,
-                2, 8, 3, 7, 21, 4})));
-        context.addConstant("m", new NodeMatrix(new Matrix(new double[][]{
-                {1, 2, 3}, {4, 5, 6}, {7, 8, 9}})));
-        context.addConstant("m2", new NodeMatrix(new Matrix(new double[][]{
-                {-5, 7, 3}, {-2, 1, 3}, {9, 4.5, 2}})));
-        context.addConstant("mm", new NodeMatrix(new Matrix(new double[][]{
-                {6, 18}, {4, -5}})));
-
-        context.addConstant("c", new NodeVector(new Node[]{context.getConstant("v"),
-                new NodeDouble(38.6), context.getConstant("m"), context.getConstant("t")}));
+        return new Evaluator(OperatorRegistry.simple());
+    }
+
+    /**
+     * Create an evaluator which reads its operators and default constants from a shared registry.
+     * Functions and variables defined through the evaluator are visible only to it
+     *
+     * @param registry The registry to evaluate with
+     * @return The new evaluator
+     */
+    public static Evaluator newEvaluator(OperatorRegistry registry) {
+        return new Evaluator(registry);
+    }
+
+    private final EvaluationContext context;
+    private volatile ParseCache parseCache;
+
+    private Evaluator(OperatorRegistry registry) {
+        this.context = new EvaluationContext(registry);
     }
 
     public void addVariable(String variable, String value) {
-        context.addConstant(variable, evaluateConstant(value));
+        NodeConstant result = evaluateConstant(value);
+        DependencyGraph dependencyGraph = context.getDependencyGraph();
+        if (dependencyGraph == null) {
+            context.addConstant(variable, result);
+        } else {
+            // recompute the variables defined in terms of this one
+            dependencyGraph.evaluate(new NodeAddVariable(variable, result), new RecursiveDescentParser(context)::parse);
+        }
     }
 
     public void addVariable(String variable, double value) {
@@ -94,9 +68,37 @@ public final class Evaluator {
         return parseTree(tree);
     }
 
+    /**
+     * Evaluate an expression with additional variables which are visible only to this
+     * evaluation. The shared constants, including ans, are not modified
+     *
+     * @param expression The expression to evaluate
+     * @param variables  The values of the variables, which take precedence over constants
+     * @return The result of the expression
+     */
+    public NodeConstant evaluateConstant(String expression, Map<String, NodeConstant> variables) {
+        return parseTreeWithArgs(generateTree(expression), variables);
+    }
+
+    /**
+     * Evaluate an expression to a double with additional variables which are visible only to
+     * this evaluation. The shared constants, including ans, are not modified
+     *
+     * @param expression The expression to evaluate
+     * @param variables  The values of the variables, which take precedence over constants
+     * @return The result of the expression as a double
+     */
+    public double evaluateDouble(String expression, Map<String, Double> variables) {
+        Map<String, NodeConstant> args = new HashMap<>();
+        variables.forEach((name, value) -> args.put(name, NodeFactory.createNodeNumberFrom(value)));
+        return toDouble(evaluateConstant(expression, args));
+    }
+
     public double evaluateDouble(String expression) {
-        NodeConstant r = evaluateConstant(expression);
+        return toDouble(evaluateConstant(expression));
+    }
 
+    private static double toDouble(NodeConstant r) {
         if (r instanceof NodeNumber) {
             return r.getTransformer().toNodeNumber().doubleValue();
         } else {
@@ -105,14 +107,111 @@ public final class Evaluator {
     }
 
     public Node generateTree(String expression) {
-        ExpressionParser parser = new ExpressionParser(context);
-        return parser.parse(expression.trim());
+        String trimmed = expression.trim();
+        ParseCache parseCache = this.parseCache;
+
+        if (parseCache == null || !ParseCache.isCacheable(trimmed)) {
+            return new ExpressionParser(context, true).parse(trimmed);
+        }
+
+        // a tree parsed before a concurrent definition must not be cached against its version
+        int version = context.getParseVersion();
+        Node tree = parseCache.get(trimmed, version);
+        if (tree == null) {
+            tree = new ExpressionParser(context, true).parse(trimmed);
+            parseCache.put(trimmed, tree, version);
+        }
+        return tree;
+    }
+
+    /**
+     * Cache the trees of up to maxSize of the most recently parsed expressions, so that
+     * evaluating the same text again skips parsing. Any previously cached trees are discarded
+     *
+     * @param maxSize The maximum number of trees to keep
+     */
+    public void enableParseCache(int maxSize) {
+        parseCache = new ParseCache(maxSize);
+    }
+
+    public void disableParseCache() {
+        parseCache = null;
+    }
+
+    /**
+     * Get the parse cache of this evaluator, which exposes its hit, miss and eviction counts
+     *
+     * @return The parse cache, or null if it has not been enabled
+     */
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    /**
+     * Cache the results of up to maxSize of the most recent calls to a custom function, so
+     * that calling it again with the same arguments skips evaluating its body. The function
+     * does not need to be defined yet, and any previous cache for it is discarded
+     *
+     * @param identifier The name of the function
+     * @param maxSize    The maximum number of results to keep
+     * @return The cache, which exposes its hit, miss and eviction counts
+     */
+    public FunctionCache enableFunctionCache(String identifier, int maxSize) {
+        FunctionCache cache = new FunctionCache(maxSize);
+        context.setFunctionCache(identifier, cache);
+        return cache;
+    }
+
+    public void disableFunctionCache(String identifier) {
+        context.setFunctionCache(identifier, null);
+    }
+
+    /**
+     * Get the result cache of a custom function
+     *
+     * @param identifier The name of the function
+     * @return The cache, or null if it has not been enabled for the function
+     */
+    public FunctionCache getFunctionCache(String identifier) {
+        return context.getFunctionCache(identifier);
+    }
+
+    /**
+     * Track the variables and functions each definition made with := reads, so that redefining
+     * a name recomputes every variable which depends on it. Definitions made before this is
+     * enabled are not tracked, and any previous graph is discarded
+     *
+     * @return The dependency graph of the definitions
+     */
+    public DependencyGraph enableIncrementalRecompute() {
+        DependencyGraph dependencyGraph = new DependencyGraph();
+        context.setDependencyGraph(dependencyGraph);
+        return dependencyGraph;
+    }
+
+    public void disableIncrementalRecompute() {
+        context.setDependencyGraph(null);
+    }
+
+    /**
+     * Get the dependency graph of the definitions made while incremental recomputation is enabled
+     *
+     * @return The dependency graph, or null if it has not been enabled
+     */
+    public DependencyGraph getDependencyGraph() {
+        return context.getDependencyGraph();
+    }
+
+    public CompiledExpression compile(String expression, String... variables) {
+        return new CompiledExpression(context, generateTree(expression), variables);
     }
 
     public NodeConstant parseTree(Node tree) {
         RecursiveDescentParser parser =  new RecursiveDescentParser(context);
-        NodeConstant result = parser.parse(tree);
-        context.addConstant("ans", result);
+        DependencyGraph dependencyGraph = context.getDependencyGraph();
+        NodeConstant result = dependencyGraph == null ? parser.parse(tree) : dependencyGraph.evaluate(tree, parser::parse);
+        if (result != null)
+            context.addConstant("ans", result);
         return result;
     }
 
@@ -124,4 +223,8 @@ public final class Evaluator {
     public void setAngleUnit(AngleUnit angleUnit) {
         context.setAngleUnit(angleUnit);
     }
+
+    EvaluationContext getContext() {
+        return context;
+    }
 }
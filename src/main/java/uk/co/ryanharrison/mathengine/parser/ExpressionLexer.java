@@ -0,0 +1,125 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Single pass lexer splitting an expression into operator and operand {@link Token}s.
+ * <p>
+ * Matching brackets are found once for the whole expression, so a bracketed group is
+ * skipped in constant time and only tokenized when the parser descends into it.
+ * Operators are found through an {@link OperatorTrie}, always preferring the longest
+ * alias at each position.
+ */
+final class ExpressionLexer {
+
+    private final String expression;
+    private final OperatorTrie trie;
+    private final int[] matches;
+
+    ExpressionLexer(String expression, OperatorTrie trie) {
+        this.expression = expression;
+        this.trie = trie;
+        this.matches = findMatchingBrackets(expression);
+    }
+
+    private static int[] findMatchingBrackets(String expression) {
+        int[] matches = new int[expression.length()];
+        Deque<Integer> parens = new ArrayDeque<>();
+        Deque<Integer> braces = new ArrayDeque<>();
+        Deque<Integer> squares = new ArrayDeque<>();
+
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = i;
+            switch (expression.charAt(i)) {
+                case '(':
+                    parens.push(i);
+                    break;
+                case '{':
+                    braces.push(i);
+                    break;
+                case '[':
+                    squares.push(i);
+                    break;
+                case ')':
+                    if (!parens.isEmpty())
+                        matches[parens.pop()] = i;
+                    break;
+                case '}':
+                    if (!braces.isEmpty())
+                        matches[braces.pop()] = i;
+                    break;
+                case ']':
+                    if (!squares.isEmpty())
+                        matches[squares.pop()] = i;
+                    break;
+            }
+        }
+
+        return matches;
+    }
+
+    String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Get the index of the bracket matching the opening bracket at index. Brackets of
+     * different kinds are matched independently of each other
+     *
+     * @param index The index of an opening bracket
+     * @return The index of the matching closing bracket, or index if there is none
+     */
+    int matchingBracket(int index) {
+        return matches[index];
+    }
+
+    /**
+     * Tokenize the part of the expression between from and to
+     *
+     * @param from The first index to tokenize
+     * @param to   The index to stop tokenizing at, exclusive
+     * @return The tokens found in order
+     */
+    List<Token> tokenize(int from, int to) {
+        List<Token> tokens = new ArrayList<>();
+        int operandStart = -1;
+        int i = from;
+
+        while (i < to) {
+            char c = expression.charAt(i);
+            int length;
+
+            if ((c == '(' || c == '{' || c == '[') && matches[i] != i && matches[i] < to) {
+                if (operandStart == -1)
+                    operandStart = i;
+                i = matches[i] + 1;
+            } else if ((length = trie.match(expression, i, to)) > 0) {
+                if (operandStart != -1) {
+                    tokens.add(new Token(operandStart, i));
+                    operandStart = -1;
+                }
+                // the match includes any blanks before the operator, which are not part of it
+                int start = i;
+                while (Character.isWhitespace(expression.charAt(start))) {
+                    start++;
+                }
+                int end = i + length;
+                tokens.add(new Token(start, end, trie.operatorAt(expression, start, end - start),
+                        trie.aliasAt(expression, start, end - start)));
+                i = end;
+            } else {
+                if (operandStart == -1)
+                    operandStart = i;
+                i++;
+            }
+        }
+
+        if (operandStart != -1)
+            tokens.add(new Token(operandStart, to));
+
+        return tokens;
+    }
+}
@@ -3,130 +3,39 @@ package uk.co.ryanharrison.mathengine.parser;
 import org.apache.commons.lang3.StringUtils;
 import uk.co.ryanharrison.mathengine.Utils;
 import uk.co.ryanharrison.mathengine.parser.nodes.*;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
 import uk.co.ryanharrison.mathengine.parser.operators.CustomOperator;
 
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses expressions into trees of {@link Node}s.
+ * <p>
+ * The expression is split into tokens by an {@link ExpressionLexer} and the tokens are
+ * then combined by precedence climbing: an operator takes as its argument every
+ * following token up to the next operator which binds no tighter than itself. Operators
+ * of equal precedence are therefore left associative, prefix operators bind to the
+ * argument following them and postfix operators to the operand before them.
+ */
 public final class ExpressionParser implements Parser<String, Node> {
 
-    private int maxOpLength;
     private EvaluationContext context;
+    private int maxConstantLength;
+    private boolean bindVariables;
 
     ExpressionParser(EvaluationContext context) {
-        this.context = context;
-        maxOpLength = context.findLongestOperator();
-    }
-
-    private String backTrack(String str) {
-        for (int i = 0; i <= this.maxOpLength; i++) {
-            String op;
-            if ((op = findOperator(str, (str.length() - 1 - maxOpLength + i))) != null
-                    && (str.length() - maxOpLength - 1 + i + op.length()) == str.length()) {
-                return op;
-            }
-        }
-        return null;
-    }
-
-    private String findOperator(String expression, int index) {
-        int len = expression.length();
-        for (int i = 0; i < maxOpLength; i++) {
-            if (index >= 0 && index + maxOpLength - i <= len) {
-                String tmp = expression.substring(index, index + maxOpLength - i);
-                if (context.isOperator(tmp)) {
-                    return tmp;
-                }
-            }
-        }
-        return null;
-    }
-
-    private Argument getArguments(String operator, String exp, int index, boolean recurse) {
-        int ma;
-        int len = exp.length();
-        String op;
-        StringBuilder str = new StringBuilder();
-
-        int prec = -1;
-        if (operator != null) {
-            prec = context.getOperator(operator).getPrecedence();
-        }
-
-        int i = index;
-        while (i < len) {
-            if (exp.charAt(i) == '(') {
-                ma = Utils.matchingCharacterIndex(exp, i, '(', ')');
-                str.append(exp, i, ma + 1);
-                i = ma + 1;
-            } else if (exp.charAt(i) == '{') {
-                ma = Utils.matchingCharacterIndex(exp, i, '{', '}');
-                str.append(exp, i, ma + 1);
-                i = ma + 1;
-            } else if (exp.charAt(i) == '[') {
-                ma = Utils.matchingCharacterIndex(exp, i, '[', ']');
-                str.append(exp, i, ma + 1);
-                i = ma + 1;
-            } else if ((op = findOperator(exp, i)) != null) {
-                if (str.length() != 0 && !isTwoArgOp(backTrack(str.toString()))
-                        && context.getOperator(op).getPrecedence() >= prec) {
-                    if(recurse) {
-                        Node n = parseTree(str.toString(),false);
-                        return new Argument(str.toString(), n, str.toString().length());
-                    } else {
-                        return new Argument(str.toString(), null, str.length());
-                    }
-                }
-                str.append(op);
-                i += op.length();
-            } else {
-                str.append(exp.charAt(i));
-                i++;
-            }
-        }
-
-        if(recurse) {
-            return new Argument(str.toString(), parseTree(str.toString(), false), str.toString().length());
-        } else {
-            return new Argument(str.toString(), null, str.length());
-        }
+        this(context, false);
     }
 
-    private class Argument {
-        Argument(String source, Node node, int length) {
-            this.source = source;
-            this.node = node;
-            this.length = length;
-        }
-
-        String source;
-        int length;
-        Node node;
-    }
-
-    private boolean isTwoArgOp(String operator) {
-        return context.getOperator(operator) instanceof BinaryOperator;
-    }
-
-    private boolean isVariable(String expression) {
-        if (Utils.isNumeric(expression))
-            return false;
-
-        if(context.isConstant(expression))
-             return true;
-
-        for (int i = 0; i < expression.length(); i++) {
-            if (findOperator(expression, i) != null)
-                return false;
-            else if (!isAllowedSym(expression.charAt(i)))
-                return false;
-        }
-
-        // Used to be false
-        return true;
-    }
-
-    private boolean isAllowedSym(char s) {
-        return !(s == ')' || s == '(' || s == '}' || s == ']' || s == '[' || s == '{' || s == '.'
-                || s == '>' || s == '<' || s == '&' || s == '=' || s == '|');
+    /**
+     * @param context       The context to parse with
+     * @param bindVariables Whether to bind the variables of parsed trees to the cells of the
+     *                      context, which is only valid if the trees are evaluated in that context
+     */
+    ExpressionParser(EvaluationContext context, boolean bindVariables) {
+        this.context = context;
+        this.maxConstantLength = context.findLongestConstant();
+        this.bindVariables = bindVariables;
     }
 
     @Override
@@ -139,111 +48,237 @@ public final class ExpressionParser implements Parser<String, Node> {
                 throw new IllegalArgumentException("Variable is an operator");
 
             String expr = expression.substring(index + 2).trim();
-            Node parsed = parseTree(expr, true);
+            String[] parameters = NodeFactory.createNodeFunctionFrom(variable.trim(), expr, null).getVariables();
+            Node parsed = bind(parseDefinition(variable.trim(), expr), parameters);
 
             NodeFunction func = NodeFactory.createNodeFunctionFrom(variable.trim(), expr, parsed);
 
             if (func.getArgNum() > 0) {
                 context.addConstant(func.getIdentifier(), func);
                 context.addCustomOperator(new CustomOperator(func));
-                maxOpLength = context.findLongestOperator();
+                maxConstantLength = Math.max(maxConstantLength, func.getIdentifier().length());
                 return func;
             } else
                 return new NodeAddVariable(func.getIdentifier(), parsed);
         }
 
-        return parseTree(expression, true);
+        return bind(parseExpression(expression));
     }
 
-    private Node parseTree(String expression, boolean recurse) {
-        Node tree = null;
+    private Node bind(Node tree) {
+        return bindVariables ? VariableBinder.bind(context, tree) : tree;
+    }
+
+    private Node bind(Node tree, String[] parameters) {
+        if (!bindVariables || parameters == null)
+            return bind(tree);
+        return VariableBinder.bind(context, tree, Arrays.asList(parameters));
+    }
 
-        Argument farg, sarg;
-        String fop, cleanfop;
-        int ma, i = 0;
+    /**
+     * Parse the body of a definition. Functions are declared before their body is parsed so
+     * that they can call themselves, and the declaration is undone if the body is invalid
+     */
+    private Node parseDefinition(String variable, String body) {
+        NodeFunction signature = NodeFactory.createNodeFunctionFrom(variable, body, null);
+        if (signature.getArgNum() == 0 || context.isSystemOperator(signature.getIdentifier()))
+            return parseExpression(body);
+
+        CustomOperator previous = context.getCustomOperator(signature.getIdentifier());
+        CustomOperator declaration = new CustomOperator(signature);
+        context.addCustomOperator(declaration);
+
+        try {
+            return parseExpression(body);
+        } catch (RuntimeException e) {
+            context.removeCustomOperator(declaration);
+            if (previous != null)
+                context.addCustomOperator(previous);
+            throw e;
+        }
+    }
 
-        int len = expression.length();
+    private Node parseExpression(String expression) {
+        ExpressionLexer lexer = new ExpressionLexer(expression, context.getOperatorTrie());
+        List<Token> tokens = lexer.tokenize(0, expression.length());
+        return parseTokens(lexer, tokens, 0, tokens.size());
+    }
 
-        if (len == 0) {
+    private Node parseTokens(ExpressionLexer lexer, List<Token> tokens, int from, int to) {
+        if (from == to)
             throw new IllegalArgumentException("Wrong number of arguments to operator");
-        } else if (Utils.isNumeric(expression)) {
-            return NodeFactory.createNodeNumberFrom(Double.parseDouble(StringUtils.deleteWhitespace(expression)));
-        } else if (expression.charAt(0) == '('
-                && (ma = Utils.matchingCharacterIndex(expression, 0, '(', ')')) == len - 1) {
-            return parseTree(expression.substring(1, ma), recurse);
-        } else if (expression.charAt(0) == '{'
-                && (ma = Utils.matchingCharacterIndex(expression, 0, '{', '}')) == len - 1) {
-            return NodeFactory.createVectorFrom(expression.substring(1, ma), this);
+
+        String expression = lexer.getExpression();
+        int start = tokens.get(from).getStart();
+        int end = tokens.get(to - 1).getEnd();
+
+        if (isNumeric(expression, start, end)) {
+            return NodeFactory.createNodeNumberFromLiteral(
+                    StringUtils.deleteWhitespace(expression.substring(start, end)));
+        } else if (to - from == 1 && !tokens.get(from).isOperator()) {
+            int ma = lexer.matchingBracket(start);
+            if (ma != start && ma == end - 1) {
+                switch (expression.charAt(start)) {
+                    case '(':
+                        List<Token> inner = lexer.tokenize(start + 1, ma);
+                        return parseTokens(lexer, inner, 0, inner.size());
+                    case '{':
+                        return NodeFactory.createVectorFrom(expression.substring(start + 1, ma), this);
+                    case '[':
+                        return NodeFactory.createMatrixFrom(expression.substring(start + 1, ma), this);
+                }
+            }
         }
-        else if (expression.charAt(0) == '['
-                && (ma = Utils.matchingCharacterIndex(expression, 0, '[', ']')) == len - 1) {
-            return NodeFactory.createMatrixFrom(expression.substring(1, ma), this);
-        } else if (isVariable(expression)) {
-            return new NodeVariable(expression);
+
+        if (isVariable(expression, tokens, from, to)) {
+            return new NodeVariable(expression.substring(start, end));
         }
 
-        while (i < len) {
-            if ((fop = findOperator(expression, i)) == null) {
-                farg = getArguments(null, expression, i, recurse);
-                fop = findOperator(expression, i + farg.length);
+        Node tree = null;
+        int i = from;
 
-                if (fop == null)
+        while (i < to) {
+            Token token = tokens.get(i);
+
+            if (!token.isOperator()) {
+                if (i + 1 == to)
                     throw new IllegalArgumentException("Missing operator," + " expression is \""
-                            + expression + "\"");
+                            + expression.substring(start, end) + "\"");
 
-                if (isTwoArgOp(fop)) {
-                    sarg = getArguments(fop, expression, i + farg.length + fop.length(), recurse);
-                    if (sarg.source.equals(""))
-                        throw new IllegalArgumentException("Wrong number of arguments to operator "
-                                + fop);
+                Token operator = tokens.get(i + 1);
+                Node argument = parseTokens(lexer, tokens, i, i + 1);
 
-                    if (farg.node == null)
-                        farg.node = parseTree(farg.source, false);
-                    if (sarg.node == null)
-                        sarg.node = parseTree(sarg.source, false);
+                if (operator.isBinaryOperator()) {
+                    int argumentEnd = findArgumentEnd(tokens, i + 2, to, operator);
+                    if (argumentEnd == i + 2)
+                        throw new IllegalArgumentException("Wrong number of arguments to operator "
+                                + sourceOf(expression, operator));
 
-                    tree = new NodeExpression(context.getOperator(fop), farg.node, sarg.node);
-                    i += farg.length + fop.length() + sarg.length;
+                    tree = new NodeExpression(operator.getOperator(), argument,
+                            parseTokens(lexer, tokens, i + 2, argumentEnd));
+                    i = argumentEnd;
                 } else {
-                    // Never using this check
-                    if (farg.source.equals(""))
-                        throw new IllegalArgumentException("Wrong number of arguments to operator " + fop);
-
-                    if (farg.node == null)
-                        farg.node = parseTree(farg.source, false);
-                    tree = new NodeExpression(context.getOperator(fop), farg.node);
-                    i += farg.length + fop.length();
+                    tree = new NodeExpression(operator.getOperator(), argument);
+                    i += 2;
                 }
             } else {
-                cleanfop = Utils.standardiseString(fop);
-                if (isTwoArgOp(fop)) {
-                    farg = getArguments(fop, expression, i + fop.length(), recurse);
-                    if (farg.source.equals(""))
-                        throw new IllegalArgumentException("Wrong number of arguments to operator " + fop);
+                int argumentEnd = findArgumentEnd(tokens, i + 1, to, token);
+                if (argumentEnd == i + 1)
+                    throw new IllegalArgumentException("Wrong number of arguments to operator "
+                            + sourceOf(expression, token));
+
+                if (token.isBinaryOperator()) {
                     if (tree == null) {
-                        if (cleanfop.equals("+") || cleanfop.equals("-")) {
+                        if (token.getAlias().equals("+") || token.getAlias().equals("-")) {
                             tree = NodeFactory.createNodeNumberFrom(0D);
                         } else {
-                            throw new IllegalArgumentException("Wrong number of arguments to operator " + fop);
+                            throw new IllegalArgumentException("Wrong number of arguments to operator "
+                                    + sourceOf(expression, token));
                         }
                     }
 
-                    if (farg.node == null)
-                        farg.node = parseTree(farg.source, false);
-                    tree = new NodeExpression(context.getOperator(cleanfop), tree, farg.node);
-                    i += farg.length + fop.length();
+                    tree = new NodeExpression(token.getOperator(), tree,
+                            parseTokens(lexer, tokens, i + 1, argumentEnd));
                 } else {
-                    farg = getArguments(fop, expression, i + fop.length(), recurse);
-                    if (farg.source.equals(""))
-                        throw new IllegalArgumentException("Wrong number of arguments to operator " + fop);
-                    if (farg.node == null)
-                        farg.node = parseTree(farg.source, false);
-                    tree = new NodeExpression(context.getOperator(cleanfop), farg.node);
-                    i += farg.length + fop.length();
+                    tree = new NodeExpression(token.getOperator(),
+                            parseTokens(lexer, tokens, i + 1, argumentEnd));
                 }
+                i = argumentEnd;
             }
         }
 
         return tree;
     }
+
+    /**
+     * Find the end of the argument of an operator. The argument stops before the first
+     * operator which binds no tighter than the given operator, unless that operator
+     * directly follows a binary operator (as in the unary minus of 2 * -3)
+     */
+    private int findArgumentEnd(List<Token> tokens, int from, int to, Token operator) {
+        int precedence = operator.getOperator().getPrecedence();
+        boolean empty = true;
+        boolean afterBinaryOperator = false;
+
+        int i = from;
+        for (; i < to; i++) {
+            Token token = tokens.get(i);
+
+            if (token.isOperator()) {
+                if (!empty && !afterBinaryOperator && token.getOperator().getPrecedence() >= precedence)
+                    break;
+
+                afterBinaryOperator = token.isBinaryOperator();
+            } else {
+                afterBinaryOperator = false;
+            }
+            empty = false;
+        }
+
+        return i;
+    }
+
+    private boolean isVariable(String expression, List<Token> tokens, int from, int to) {
+        int start = tokens.get(from).getStart();
+        int end = tokens.get(to - 1).getEnd();
+
+        if (end - start <= maxConstantLength && context.isConstant(expression.substring(start, end)))
+            return true;
+
+        return to - from == 1 && !tokens.get(from).isOperator() && hasAllowedSyms(expression, start, end);
+    }
+
+    /**
+     * Determines whether a name is parsed as a variable without it needing to be a known constant
+     *
+     * @param name The name to test
+     * @param trie The operators the name is tokenized with
+     * @return True if the name is always parsed as a variable, otherwise false
+     */
+    static boolean isVariableName(String name, OperatorTrie trie) {
+        if (name.isEmpty() || isNumeric(name, 0, name.length()))
+            return false;
+
+        List<Token> tokens = new ExpressionLexer(name, trie).tokenize(0, name.length());
+        return tokens.size() == 1 && !tokens.get(0).isOperator() && hasAllowedSyms(name, 0, name.length());
+    }
+
+    private static boolean hasAllowedSyms(String expression, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isAllowedSym(expression.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isAllowedSym(char s) {
+        return !(s == ')' || s == '(' || s == '}' || s == ']' || s == '[' || s == '{' || s == '.'
+                || s == '>' || s == '<' || s == '&' || s == '=' || s == '|');
+    }
+
+    /**
+     * Determines whether part of an expression is numeric. Characters which can never be
+     * part of a number are rejected before creating a substring for {@link Utils#isNumeric(String)}
+     */
+    private static boolean isNumeric(String expression, int start, int end) {
+        int signs = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = expression.charAt(i);
+
+            if (c == '+' || c == '-') {
+                if (++signs > 2)
+                    return false;
+            } else if (Character.digit(c, 16) == -1 && !Character.isWhitespace(c) && c != '.'
+                    && c != 'x' && c != 'X' && c != '#' && c != 'l' && c != 'L') {
+                return false;
+            }
+        }
+
+        return Utils.isNumeric(expression.substring(start, end));
+    }
+
+    private static String sourceOf(String expression, Token token) {
+        return expression.substring(token.getStart(), token.getEnd());
+    }
 }
@@ -0,0 +1,221 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.CustomOperator;
+
+import java.util.*;
+
+/**
+ * A size bounded, least recently used cache of the results of a custom function keyed by
+ * its arguments.
+ * <p>
+ * Results are only cached while the function is pure: neither it nor any function it
+ * calls assigns variables with :=, reads ans or clears the variables. Calls to an impure
+ * function are evaluated as normal. The cache is invalidated whenever the function is
+ * redefined, any name it reads, directly or through the functions it calls, is given a
+ * different value or the unit of angles changes.
+ * <p>
+ * A cache may be shared by concurrent evaluations, access to it is synchronized. The
+ * function itself is evaluated outside of the lock.
+ */
+public final class FunctionCache {
+
+    private final int maxSize;
+    private final Map<Object, NodeConstant> results;
+
+    private NodeFunction function;
+    private AngleUnit angleUnit;
+    private boolean pure;
+    private String[] dependencies = new String[0];
+    private NodeConstant[] dependencyValues = new NodeConstant[0];
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    FunctionCache(int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Cache size must be positive");
+
+        this.maxSize = maxSize;
+        this.results = new LinkedHashMap<Object, NodeConstant>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, NodeConstant> eldest) {
+                if (size() > FunctionCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static Object keyOf(NodeConstant[] args) {
+        return args.length == 1 ? args[0] : Arrays.asList(args.clone());
+    }
+
+    /**
+     * Check that the cached results are still valid for a call to a function, discarding
+     * them if the function or anything it reads has changed since they were cached
+     *
+     * @param context  The context the function is being called in
+     * @param function The definition of the function being called
+     * @return True if the function is pure and its results may be cached, otherwise false
+     */
+    synchronized boolean validate(EvaluationContext context, NodeFunction function) {
+        if (function != this.function) {
+            invalidate();
+            this.function = function;
+            this.angleUnit = context.getAngleUnit();
+            analyse(context, function);
+            return pure;
+        }
+
+        // the results of trigonometric functions depend on the unit of angles
+        if (context.getAngleUnit() != angleUnit) {
+            invalidate();
+            angleUnit = context.getAngleUnit();
+        }
+
+        for (int i = 0; i < dependencies.length; i++) {
+            if (context.getConstant(dependencies[i]) != dependencyValues[i]) {
+                invalidate();
+                analyse(context, function);
+                break;
+            }
+        }
+        return pure;
+    }
+
+    synchronized NodeConstant get(Object key) {
+        NodeConstant result = results.get(key);
+        if (result == null)
+            misses++;
+        else
+            hits++;
+
+        return result;
+    }
+
+    synchronized void put(NodeFunction function, AngleUnit angleUnit, Object key, NodeConstant result) {
+        // a redefinition or change of unit while the function was evaluated makes the result stale
+        if (function == this.function && angleUnit == this.angleUnit && result != null)
+            results.put(key, result);
+    }
+
+    private void invalidate() {
+        if (!results.isEmpty())
+            invalidations++;
+
+        results.clear();
+    }
+
+    private void analyse(EvaluationContext context, NodeFunction function) {
+        Set<String> names = new LinkedHashSet<>();
+        pure = new Analysis(context, names).visitFunction(function);
+
+        dependencies = names.toArray(new String[0]);
+        dependencyValues = new NodeConstant[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencyValues[i] = context.getConstant(dependencies[i]);
+        }
+    }
+
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Get the proportion of lookups which found a cached result
+     *
+     * @return The hit rate between 0 and 1, or 0 if there have been no lookups
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("FunctionCache(size=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d)",
+                size(), maxSize, hits, misses, evictions, invalidations);
+    }
+
+    /**
+     * Collects the names a function reads, following any functions it calls, and determines
+     * whether evaluating it could have side effects or depend on previous evaluations
+     */
+    private static final class Analysis {
+
+        private final EvaluationContext context;
+        private final Set<String> names;
+        private final Set<NodeFunction> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Analysis(EvaluationContext context, Set<String> names) {
+            this.context = context;
+            this.names = names;
+        }
+
+        boolean visitFunction(NodeFunction function) {
+            if (!visited.add(function))
+                return true;
+            if (function.getNode() == null)
+                return false;
+
+            String[] variables = function.getVariables();
+            List<String> parameters = variables == null ? List.of() : Arrays.asList(variables);
+            return visit(function.getNode(), parameters);
+        }
+
+        private boolean visit(Node node, List<String> parameters) {
+            if (node instanceof NodeAddVariable) {
+                return false;
+            } else if (node instanceof NodeVariable) {
+                String var = ((NodeVariable) node).getVariable();
+                if (var.equals("ans") || RecursiveDescentParser.isCommand(var))
+                    return false;
+
+                return parameters.contains(var) || visitName(var);
+            } else if (node instanceof NodeExpression) {
+                NodeExpression expression = (NodeExpression) node;
+                if (expression.getOperator() instanceof CustomOperator
+                        && !visitName(expression.getOperator().toString()))
+                    return false;
+            }
+
+            return TreeWalker.allChildren(node, child -> visit(child, parameters));
+        }
+
+        private boolean visitName(String name) {
+            names.add(name);
+
+            NodeConstant value = context.getConstant(name);
+            return !(value instanceof NodeFunction) || visitFunction((NodeFunction) value);
+        }
+    }
+}
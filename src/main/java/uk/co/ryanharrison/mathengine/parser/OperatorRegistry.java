@@ -0,0 +1,174 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.linearalgebra.Matrix;
+import uk.co.ryanharrison.mathengine.linearalgebra.Vector;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.Operator;
+import uk.co.ryanharrison.mathengine.parser.operators.OperatorProvider;
+
+import java.util.*;
+
+/**
+ * An immutable set of operators and default constants which is built once and shared by every
+ * {@link EvaluationContext} created from it.
+ * <p>
+ * Operators hold no state and constants are never modified by evaluation, so a registry can be
+ * read by any number of contexts at once. A context keeps the functions and variables defined
+ * in it separately and looks in the registry for everything else, so creating one does not copy
+ * the registry.
+ */
+public final class OperatorRegistry {
+
+    static final OperatorRegistry EMPTY = new OperatorRegistry(Collections.emptyList(), Collections.emptyMap());
+
+    private final Map<String, Operator> operators;
+    private final Map<String, NodeConstant> constants;
+    private final OperatorTrie trie = new OperatorTrie();
+    private final int longestConstant;
+
+    private OperatorRegistry(List<Operator> operators, Map<String, NodeConstant> constants) {
+        Map<String, Operator> aliases = new HashMap<>();
+        for (Operator operator : operators) {
+            for (String alias : operator.getAliases()) {
+                aliases.put(alias, operator);
+                trie.insert(alias, operator);
+            }
+        }
+
+        this.operators = Collections.unmodifiableMap(aliases);
+        this.constants = Collections.unmodifiableMap(new HashMap<>(constants));
+        this.longestConstant = constants.keySet().stream()
+                .mapToInt(String::length)
+                .max().orElse(0);
+    }
+
+    /**
+     * Get the registry of {@link Evaluator#newSimpleBinaryEvaluator()}
+     *
+     * @return The shared registry
+     */
+    public static OperatorRegistry simpleBinary() {
+        return SimpleBinary.INSTANCE;
+    }
+
+    /**
+     * Get the registry of {@link Evaluator#newSimpleEvaluator()}
+     *
+     * @return The shared registry
+     */
+    public static OperatorRegistry simple() {
+        return Simple.INSTANCE;
+    }
+
+    /**
+     * Get the registry of {@link Evaluator#newEvaluator()}
+     *
+     * @return The shared registry
+     */
+    public static OperatorRegistry full() {
+        return Full.INSTANCE;
+    }
+
+    Operator getOperator(String alias) {
+        return operators.get(alias);
+    }
+
+    Map<String, Operator> getOperators() {
+        return operators;
+    }
+
+    NodeConstant getConstant(String name) {
+        return constants.get(name);
+    }
+
+    /**
+     * Get a trie over the aliases of the operators, which must not be modified
+     */
+    OperatorTrie getOperatorTrie() {
+        return trie;
+    }
+
+    int getLongestConstant() {
+        return longestConstant;
+    }
+
+    public int size() {
+        return operators.size();
+    }
+
+    private static List<Operator> simpleBinaryOperators() {
+        return new ArrayList<>(OperatorProvider.simpleBinaryOperators());
+    }
+
+    private static List<Operator> simpleOperators() {
+        List<Operator> operators = simpleBinaryOperators();
+        operators.addAll(OperatorProvider.simpleUnaryOperators());
+        operators.addAll(OperatorProvider.trigOperators());
+        return operators;
+    }
+
+    private static List<Operator> allOperators() {
+        List<Operator> operators = simpleOperators();
+        operators.addAll(OperatorProvider.logicalOperators());
+        operators.addAll(OperatorProvider.vectorOperators());
+        operators.addAll(OperatorProvider.matrixOperators());
+        operators.addAll(OperatorProvider.customOperators());
+        return operators;
+    }
+
+    private static Map<String, NodeConstant> defaultConstants() {
+        Map<String, NodeConstant> constants = new HashMap<>();
+        constants.put("pi", new NodeDouble(Math.PI));
+        constants.put("euler", new NodeDouble(Math.E));
+        constants.put("infinity", new NodeDouble(Double.POSITIVE_INFINITY));
+        constants.put("nan", new NodeDouble(Double.NaN));
+        constants.put("goldenratio", new NodeDouble(1.6180339887));
+        constants.put("true", NodeBoolean.valueOf(true));
+        constants.put("false", NodeBoolean.valueOf(false));
+
+        constants.put("zero", NodeFactory.createZeroNumber());
+        constants.put("one", NodeFactory.createNodeNumberFrom(1.0));
+        constants.put("two", NodeFactory.createNodeNumberFrom(2.0));
+        constants.put("three", NodeFactory.createNodeNumberFrom(3.0));
+        constants.put("four", NodeFactory.createNodeNumberFrom(4.0));
+        constants.put("five", NodeFactory.createNodeNumberFrom(5.0));
+        constants.put("six", NodeFactory.createNodeNumberFrom(6.0));
+        constants.put("seven", NodeFactory.createNodeNumberFrom(7.0));
+        constants.put("eight", NodeFactory.createNodeNumberFrom(8.0));
+        constants.put("nine", NodeFactory.createNodeNumberFrom(9.0));
+        constants.put("ten", NodeFactory.createNodeNumberFrom(10.0));
+
+        constants.put("hundred", NodeFactory.createNodeNumberFrom(100.0));
+        constants.put("thousand", NodeFactory.createNodeNumberFrom(1000.0));
+        constants.put("million", NodeFactory.createNodeNumberFrom(1000000.0));
+        constants.put("billion", NodeFactory.createNodeNumberFrom(1000000000.0));
+
+        // constants.put("d", new NodeDouble(38.6));
+        constants.put("t", new NodeDouble(4.6));
+        constants.put("v", new NodeVector(new Vector(new double[]{458.6, 1,
+                2, 8, 3, 7, 21, 4})));
+        constants.put("m", new NodeMatrix(new Matrix(new double[][]{
+                {1, 2, 3}, {4, 5, 6}, {7, 8, 9}})));
+        constants.put("m2", new NodeMatrix(new Matrix(new double[][]{
+                {-5, 7, 3}, {-2, 1, 3}, {9, 4.5, 2}})));
+        constants.put("mm", new NodeMatrix(new Matrix(new double[][]{
+                {6, 18}, {4, -5}})));
+
+        constants.put("c", new NodeVector(new Node[]{constants.get("v"),
+                new NodeDouble(38.6), constants.get("m"), constants.get("t")}));
+        return constants;
+    }
+
+    // each registry is built the first time it is used
+    private static final class SimpleBinary {
+        static final OperatorRegistry INSTANCE = new OperatorRegistry(simpleBinaryOperators(), defaultConstants());
+    }
+
+    private static final class Simple {
+        static final OperatorRegistry INSTANCE = new OperatorRegistry(simpleOperators(), defaultConstants());
+    }
+
+    private static final class Full {
+        static final OperatorRegistry INSTANCE = new OperatorRegistry(allOperators(), defaultConstants());
+    }
+}
@@ -0,0 +1,110 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.operators.Operator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A character trie over operator aliases used to find the longest operator starting at a
+ * position in an expression without creating any substrings.
+ * <p>
+ * Matching follows the rules of {@link EvaluationContext#isOperator(String)}: whitespace
+ * inside the candidate is ignored, it is compared in lower case and it may be at most
+ * {@link #getMaxLength()} characters long including whitespace.
+ */
+final class OperatorTrie {
+
+    private final TrieNode root = new TrieNode();
+    private int maxLength;
+
+    void insert(String alias, Operator operator) {
+        maxLength = Math.max(maxLength, alias.length());
+
+        TrieNode node = root;
+        for (int i = 0; i < alias.length(); i++) {
+            char c = alias.charAt(i);
+            if (Character.isWhitespace(c))
+                return;
+
+            node = node.children.computeIfAbsent(c, k -> new TrieNode());
+        }
+
+        if (node != root) {
+            node.alias = alias;
+            node.operator = operator;
+        }
+    }
+
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Find the longest operator starting at index which ends before limit
+     *
+     * @param expression The expression to search
+     * @param index      The index the operator must start at
+     * @param limit      The index the operator must end before
+     * @return The number of characters of the matched operator, or 0 if there is none
+     */
+    int match(String expression, int index, int limit) {
+        TrieNode node = root;
+        int end = Math.min(limit, index + maxLength);
+        int longest = 0;
+
+        for (int i = index; i < end; i++) {
+            char c = expression.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                node = node.children.get(Character.toLowerCase(c));
+                if (node == null)
+                    break;
+            }
+
+            if (node.operator != null)
+                longest = i - index + 1;
+        }
+
+        return longest;
+    }
+
+    /**
+     * Get the operator matched by a call to {@link #match(String, int, int)}
+     *
+     * @param expression The expression that was searched
+     * @param index      The index the operator starts at
+     * @param length     The number of characters matched
+     * @return The matched operator
+     */
+    Operator operatorAt(String expression, int index, int length) {
+        return find(expression, index, length).operator;
+    }
+
+    /**
+     * Get the alias of the operator matched by a call to {@link #match(String, int, int)}
+     *
+     * @param expression The expression that was searched
+     * @param index      The index the operator starts at
+     * @param length     The number of characters matched
+     * @return The matched alias
+     */
+    String aliasAt(String expression, int index, int length) {
+        return find(expression, index, length).alias;
+    }
+
+    private TrieNode find(String expression, int index, int length) {
+        TrieNode node = root;
+        for (int i = index; i < index + length; i++) {
+            char c = expression.charAt(i);
+            if (!Character.isWhitespace(c))
+                node = node.children.get(Character.toLowerCase(c));
+        }
+        return node;
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private String alias;
+        private Operator operator;
+    }
+}
@@ -0,0 +1,106 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded, least recently used cache of parsed expression trees keyed by the
+ * expression text.
+ * <p>
+ * Definitions made with := are never cached as parsing them registers new functions.
+ * The whole cache is invalidated whenever the {@link EvaluationContext} it belongs to
+ * gains operators or constants which could change how text is tokenized.
+ * <p>
+ * A cache may be shared by concurrent evaluations, access to it is synchronized.
+ */
+public final class ParseCache {
+
+    private final int maxSize;
+    private final Map<String, Node> trees;
+    private int parseVersion;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    ParseCache(int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Cache size must be positive");
+
+        this.maxSize = maxSize;
+        this.trees = new LinkedHashMap<String, Node>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+                if (size() > ParseCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static boolean isCacheable(String expression) {
+        return !expression.contains(":=");
+    }
+
+    synchronized Node get(String expression, int contextVersion) {
+        if (contextVersion != parseVersion) {
+            if (!trees.isEmpty())
+                invalidations++;
+
+            trees.clear();
+            parseVersion = contextVersion;
+        }
+
+        Node tree = trees.get(expression);
+        if (tree == null)
+            misses++;
+        else
+            hits++;
+
+        return tree;
+    }
+
+    synchronized void put(String expression, Node tree, int contextVersion) {
+        if (contextVersion == parseVersion)
+            trees.put(expression, tree);
+    }
+
+    public synchronized void clear() {
+        trees.clear();
+    }
+
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ParseCache(size=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d)",
+                size(), maxSize, hits, misses, evictions, invalidations);
+    }
+}
@@ -2,15 +2,23 @@ package uk.co.ryanharrison.mathengine.parser;
 
 import uk.co.ryanharrison.mathengine.parser.nodes.*;
 import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.LazyBinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.LazyUnaryOperator;
 import uk.co.ryanharrison.mathengine.parser.operators.Operator;
 import uk.co.ryanharrison.mathengine.parser.operators.UnaryOperator;
 
 public final class RecursiveDescentParser implements Parser<Node, NodeConstant> {
 
     private EvaluationContext context;
+    private double[] slots;
 
     RecursiveDescentParser(EvaluationContext context) {
+        this(context, null);
+    }
+
+    RecursiveDescentParser(EvaluationContext context, double[] slots) {
         this.context = context;
+        this.slots = slots;
     }
 
     @Override
@@ -19,11 +27,18 @@ public final class RecursiveDescentParser implements Parser<Node, NodeConstant>
             return ((NodeSet) tree).resolve(this::parse);
         } else if (tree instanceof NodeConstant) {
             return (NodeConstant) tree;
+        } else if (tree instanceof NodeSlot) {
+            return new NodeDouble(slots[((NodeSlot) tree).getIndex()]);
         } else if (tree instanceof NodeAddVariable) {
             NodeAddVariable nab = (NodeAddVariable) tree;
             NodeConstant result = parse(nab.getNode());
             context.addConstant(nab.getVariable(), result);
             return result;
+        } else if (tree instanceof NodeBoundVariable) {
+            NodeConstant value = context.getConstant((NodeBoundVariable) tree);
+            if (value == null)
+                throw new IllegalArgumentException("No value associated with \"" + tree + "\"");
+            return value;
         } else if (tree instanceof NodeVariable) {
             String var = ((NodeVariable) tree).getVariable();
 
@@ -38,10 +53,21 @@ public final class RecursiveDescentParser implements Parser<Node, NodeConstant>
             NodeExpression expression = (NodeExpression) tree;
             Operator operator = ((NodeExpression) tree).getOperator();
 
-            if (operator instanceof UnaryOperator) {
+            // special forms are given their arguments unevaluated
+            if (operator instanceof LazyUnaryOperator) {
+                return ((LazyUnaryOperator) operator).toResult(context, expression.getArgOne(), this::parse);
+            } else if (operator instanceof LazyBinaryOperator) {
+                return ((LazyBinaryOperator) operator).toResult(context, expression.getArgOne(),
+                        expression.getArgTwo(), this::parse);
+            } else if (operator instanceof UnaryOperator) {
                 UnaryOperator unop = (UnaryOperator) operator;
                 return unop.toResult(context, parse(expression.getArgOne()));
             } else {
+                // chains of elementwise arithmetic are evaluated in one pass
+                NodeConstant fused = ElementwiseFusion.evaluate(context, expression, this::parse);
+                if (fused != null)
+                    return fused;
+
                 BinaryOperator binop = (BinaryOperator) operator;
                 return binop.toResult(context, parse(expression.getArgOne()),
                         parse(expression.getArgTwo()));
@@ -51,8 +77,19 @@ public final class RecursiveDescentParser implements Parser<Node, NodeConstant>
         throw new IllegalArgumentException("Unknown Operator");
     }
 
+    /**
+     * Determines whether a variable is a command which is run when it is evaluated rather
+     * than having a value
+     *
+     * @param variable The name of the variable
+     * @return True if the variable is a command, otherwise false
+     */
+    static boolean isCommand(String variable) {
+        return variable.equalsIgnoreCase("clearvars");
+    }
+
     private boolean handleCustomOperator(String op) {
-        if (op.equalsIgnoreCase("clearvars")) {
+        if (isCommand(op)) {
             context.clearConstants();
             return true;
         }
@@ -0,0 +1,350 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.*;
+import uk.co.ryanharrison.mathengine.parser.operators.unary.simple.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A bound expression tree flattened into postfix instructions over primitive doubles.
+ * <p>
+ * A tree can be flattened when it is proven to be scalar: every leaf is a slot or a
+ * number other than a percentage, every operator is one of + - * / ^, abs, ln or a trig
+ * function, and every part without a slot has been folded into a number. A part without
+ * a slot which is left in the tree failed to evaluate when it was simplified, so the tree
+ * is left to the {@link RecursiveDescentParser} to report the error.
+ * <p>
+ * The program follows IEEE arithmetic throughout, which the interpreter does not. The
+ * arithmetic operators give a double whenever one of their operands is a double, but the
+ * interpreter converts the results of abs, ln and the trig functions to a rational when they
+ * are integers or have few decimal places. Results therefore differ in the last bits where a
+ * value was converted, and where a unary function gives zero: at x = 0, 1 / sin(x) is
+ * infinite here but the interpreter fails dividing by a rational zero.
+ * <p>
+ * Instances are not thread safe as the evaluation stack is shared between evaluations,
+ * however {@link #evaluateAll(double[][], double[], int, int)} uses a stack of its own and
+ * can be called concurrently.
+ */
+final class ScalarProgram {
+
+    /**
+     * The number of rows each instruction processes at once when evaluating columns
+     */
+    static final int CHUNK_SIZE = 256;
+
+    private static final int CONST = 0;
+    private static final int SLOT = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int POW = 6;
+    private static final int SIN = 7;
+    private static final int COS = 8;
+    private static final int TAN = 9;
+    private static final int LN = 10;
+    private static final int ABS = 11;
+
+    private final EvaluationContext context;
+    private final int[] code;
+    private final double[] constants;
+    private final double[] stack;
+    private final int maxDepth;
+
+    private ScalarProgram(EvaluationContext context, int[] code, double[] constants, int maxDepth) {
+        this.context = context;
+        this.code = code;
+        this.constants = constants;
+        this.stack = new double[maxDepth];
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Flatten a bound tree if it is scalar
+     *
+     * @param context The context the tree was bound in, which provides the angle unit
+     * @param tree    The bound tree
+     * @return The program, or null if the tree is not scalar
+     */
+    static ScalarProgram compile(EvaluationContext context, Node tree) {
+        Builder builder = new Builder();
+        if (!builder.emit(tree))
+            return null;
+
+        double[] constants = new double[builder.constants.size()];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = builder.constants.get(i);
+        }
+
+        int[] code = new int[builder.code.size()];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = builder.code.get(i);
+        }
+
+        return new ScalarProgram(context, code, constants, builder.maxDepth);
+    }
+
+    double evaluate(double[] slots) {
+        double[] stack = this.stack;
+        int[] code = this.code;
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case CONST:
+                    stack[sp++] = constants[code[++pc]];
+                    break;
+                case SLOT:
+                    stack[sp++] = slots[code[++pc]];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] + stack[sp];
+                    break;
+                case SUBTRACT:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] - stack[sp];
+                    break;
+                case MULTIPLY:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] * stack[sp];
+                    break;
+                case DIVIDE:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] / stack[sp];
+                    break;
+                case POW:
+                    sp--;
+                    stack[sp - 1] = Math.pow(stack[sp - 1], stack[sp]);
+                    break;
+                case SIN:
+                    stack[sp - 1] = Math.sin(toRadians(stack[sp - 1]));
+                    break;
+                case COS:
+                    stack[sp - 1] = Math.cos(toRadians(stack[sp - 1]));
+                    break;
+                case TAN:
+                    stack[sp - 1] = Math.tan(toRadians(stack[sp - 1]));
+                    break;
+                case LN:
+                    stack[sp - 1] = Math.log(stack[sp - 1]);
+                    break;
+                case ABS:
+                    stack[sp - 1] = Math.abs(stack[sp - 1]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown instruction " + code[pc]);
+            }
+        }
+
+        return stack[0];
+    }
+
+    /**
+     * Evaluate the program for a range of rows, a chunk of rows at a time. Each instruction
+     * processes the whole chunk before the next is run
+     *
+     * @param columns The values of each slot, indexed by slot then row
+     * @param out     The array to write the result of each row to
+     * @param from    The first row, inclusive
+     * @param to      The last row, exclusive
+     */
+    void evaluateAll(double[][] columns, double[] out, int from, int to) {
+        double[][] stack = new double[maxDepth][CHUNK_SIZE];
+        AngleUnit angleUnit = context.getAngleUnit();
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            int n = Math.min(CHUNK_SIZE, to - start);
+            int sp = 0;
+
+            for (int pc = 0; pc < code.length; pc++) {
+                int instruction = code[pc];
+                if (instruction == CONST) {
+                    Arrays.fill(stack[sp++], 0, n, constants[code[++pc]]);
+                    continue;
+                } else if (instruction == SLOT) {
+                    System.arraycopy(columns[code[++pc]], start, stack[sp++], 0, n);
+                    continue;
+                }
+
+                if (instruction <= POW) {
+                    sp--;
+                    applyBinary(instruction, stack[sp - 1], stack[sp], n);
+                } else {
+                    applyUnary(instruction, stack[sp - 1], n, angleUnit);
+                }
+            }
+
+            System.arraycopy(stack[0], 0, out, start, n);
+        }
+    }
+
+    private static void applyBinary(int instruction, double[] left, double[] right, int n) {
+        switch (instruction) {
+            case ADD:
+                for (int i = 0; i < n; i++)
+                    left[i] = left[i] + right[i];
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < n; i++)
+                    left[i] = left[i] - right[i];
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < n; i++)
+                    left[i] = left[i] * right[i];
+                break;
+            case DIVIDE:
+                for (int i = 0; i < n; i++)
+                    left[i] = left[i] / right[i];
+                break;
+            case POW:
+                for (int i = 0; i < n; i++)
+                    left[i] = Math.pow(left[i], right[i]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown instruction " + instruction);
+        }
+    }
+
+    private static void applyUnary(int instruction, double[] values, int n, AngleUnit angleUnit) {
+        switch (instruction) {
+            case SIN:
+                for (int i = 0; i < n; i++)
+                    values[i] = Math.sin(toRadians(values[i], angleUnit));
+                break;
+            case COS:
+                for (int i = 0; i < n; i++)
+                    values[i] = Math.cos(toRadians(values[i], angleUnit));
+                break;
+            case TAN:
+                for (int i = 0; i < n; i++)
+                    values[i] = Math.tan(toRadians(values[i], angleUnit));
+                break;
+            case LN:
+                for (int i = 0; i < n; i++)
+                    values[i] = Math.log(values[i]);
+                break;
+            case ABS:
+                for (int i = 0; i < n; i++)
+                    values[i] = Math.abs(values[i]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown instruction " + instruction);
+        }
+    }
+
+    private double toRadians(double value) {
+        return toRadians(value, context.getAngleUnit());
+    }
+
+    // mirrors the conversion made by TrigOperator
+    private static double toRadians(double value, AngleUnit angleUnit) {
+        switch (angleUnit) {
+            case Degrees:
+                return Math.PI * value / 180.0;
+            case Gradians:
+                return value * (Math.PI / 200);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Determines whether the operator of an expression is a binary operator which a program can
+     * evaluate
+     *
+     * @param expression The expression
+     * @return True if the operator is + - * / or ^
+     */
+    static boolean isBinaryArithmetic(NodeExpression expression) {
+        int instruction = instructionOf(expression);
+        return instruction >= ADD && instruction <= POW;
+    }
+
+    // the instruction for the operator of an expression, or -1 if there is none
+    private static int instructionOf(NodeExpression expression) {
+        Class<?> type = expression.getOperator().getClass();
+
+        if (expression.getArgTwo() != null) {
+            if (type == Add.class) {
+                return ADD;
+            } else if (type == Subtract.class) {
+                return SUBTRACT;
+            } else if (type == Multiply.class) {
+                return MULTIPLY;
+            } else if (type == Divide.class) {
+                return DIVIDE;
+            } else if (type == Pow.class) {
+                return POW;
+            }
+            return -1;
+        }
+
+        if (type == Sine.class) {
+            return SIN;
+        } else if (type == Cosine.class) {
+            return COS;
+        } else if (type == Tangent.class) {
+            return TAN;
+        } else if (type == Ln.class) {
+            return LN;
+        } else if (type == Abs.class) {
+            return ABS;
+        }
+        return -1;
+    }
+
+    private static final class Builder {
+
+        private final List<Integer> code = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private int depth;
+        private int maxDepth;
+
+        boolean emit(Node node) {
+            if (node instanceof NodeSlot) {
+                push(SLOT, ((NodeSlot) node).getIndex());
+                return true;
+            } else if ((node instanceof NodeDouble || node instanceof NodeRational) && !(node instanceof NodePercent)) {
+                constants.add(((NodeNumber) node).doubleValue());
+                push(CONST, constants.size() - 1);
+                return true;
+            } else if (node instanceof NodeExpression) {
+                return emitExpression((NodeExpression) node);
+            }
+
+            return false;
+        }
+
+        private boolean emitExpression(NodeExpression expression) {
+            int instruction = instructionOf(expression);
+            if (instruction < 0 || TreeSimplifier.isConstant(expression))
+                return false;
+
+            if (expression.getArgTwo() != null) {
+                if (!emit(expression.getArgOne()) || !emit(expression.getArgTwo()))
+                    return false;
+
+                code.add(instruction);
+                depth--;
+                return true;
+            }
+
+            if (!emit(expression.getArgOne()))
+                return false;
+
+            code.add(instruction);
+            return true;
+        }
+
+        private void push(int instruction, int operand) {
+            code.add(instruction);
+            code.add(operand);
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+    }
+}
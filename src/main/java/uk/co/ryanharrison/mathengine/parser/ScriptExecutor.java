@@ -0,0 +1,328 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.CustomOperator;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Evaluates a script of statements with an {@link Evaluator}, running statements which do
+ * not depend on each other concurrently.
+ * <p>
+ * Statements are parsed in order. A statement depends on an earlier statement if it reads
+ * a name the earlier one assigns with :=, assigns a name the earlier one reads or assigns,
+ * or reads ans. Assignments nested within a statement count as well as the statement's own. Names read through calls to custom functions count as read. Each statement
+ * starts once the statements it depends on have finished, so it sees the same values it
+ * would if the script were evaluated serially.
+ * <p>
+ * Statements which change how later statements are parsed or evaluated, such as function
+ * definitions, definitions of names which are not plain variables and clearvars, are
+ * barriers, wherever the definition is within the statement: every earlier statement finishes before they are parsed and every later
+ * statement waits for them.
+ * <p>
+ * A statement which fails does not stop the script. Its error is recorded in the result and
+ * statements which read what it would have assigned see the previous value, as they would
+ * when evaluating serially. Afterwards ans holds the result of the last statement which
+ * succeeded, unless the variables have been cleared since.
+ */
+public final class ScriptExecutor {
+
+    private final Evaluator evaluator;
+    private final EvaluationContext context;
+    private final Executor executor;
+
+    public ScriptExecutor(Evaluator evaluator) {
+        this(evaluator, ForkJoinPool.commonPool());
+    }
+
+    public ScriptExecutor(Evaluator evaluator, Executor executor) {
+        this.evaluator = evaluator;
+        this.context = evaluator.getContext();
+        this.executor = executor;
+    }
+
+    /**
+     * Execute a script with one statement per line. Blank lines are skipped
+     *
+     * @param script The script to execute
+     * @return The result of each statement
+     */
+    public Result execute(String script) {
+        List<String> statements = new ArrayList<>();
+        for (String line : script.split("\\R")) {
+            if (!line.trim().isEmpty())
+                statements.add(line);
+        }
+        return execute(statements);
+    }
+
+    /**
+     * Execute a list of statements
+     *
+     * @param statements The statements to execute, in order
+     * @return The result of each statement, at the same index as the statement
+     */
+    public Result execute(List<String> statements) {
+        Result result = new Result(statements.size());
+
+        // evaluating serially keeps the dependency graph of incremental recomputation in order
+        if (context.getDependencyGraph() != null) {
+            for (int i = 0; i < statements.size(); i++) {
+                try {
+                    result.results[i] = evaluator.evaluateConstant(statements.get(i));
+                } catch (RuntimeException e) {
+                    result.errors[i] = e;
+                }
+            }
+            return result;
+        }
+
+        Schedule schedule = new Schedule(result);
+        for (int i = 0; i < statements.size(); i++) {
+            String statement = statements.get(i);
+
+            if (isBarrier(statement)) {
+                schedule.await();
+                schedule.runSerially(i, statement);
+                continue;
+            }
+
+            Node tree;
+            try {
+                tree = evaluator.generateTree(statement);
+            } catch (RuntimeException e) {
+                result.errors[i] = e;
+                continue;
+            }
+
+            Set<String> reads = new HashSet<>();
+            Set<String> writes = new HashSet<>();
+            Set<String> visited = new HashSet<>();
+            collectAccesses(tree, Collections.emptyList(), reads, writes, visited);
+
+            if (reads.remove("clearvars")) {
+                schedule.await();
+                schedule.runClearing(i, tree);
+            } else {
+                schedule.submit(i, tree, reads, writes);
+            }
+        }
+        schedule.await();
+        schedule.restoreAns(statements.size());
+        return result;
+    }
+
+    // definitions which register functions or new tokens must be parsed after everything before them
+    private boolean isBarrier(String statement) {
+        int index = statement.indexOf(":=");
+        if (index == -1)
+            return false;
+
+        String target = statement.substring(0, index).trim();
+        if (!ExpressionParser.isVariableName(target, context.getOperatorTrie()))
+            return true;
+
+        // a nested definition starts after the bracket or comma before it, so the target of a
+        // nested function definition ends with its parameters and is never a variable name
+        for (index = statement.indexOf(":=", index + 2); index != -1; index = statement.indexOf(":=", index + 2)) {
+            int start = index;
+            while (start > 0 && "{[(,".indexOf(statement.charAt(start - 1)) == -1)
+                start--;
+
+            target = statement.substring(start, index).trim();
+            if (!ExpressionParser.isVariableName(target, context.getOperatorTrie()))
+                return true;
+        }
+        return false;
+    }
+
+    // the writes of function bodies are kept in the frame of the call, so only reads are collected
+    private void collectAccesses(Node node, Collection<String> parameters, Set<String> reads, Set<String> writes,
+                                 Set<String> visited) {
+        if (node instanceof NodeVariable) {
+            String var = ((NodeVariable) node).getVariable();
+            if (RecursiveDescentParser.isCommand(var)) {
+                reads.add("clearvars");
+            } else if (!parameters.contains(var)) {
+                reads.add(var);
+                collectFunctionReads(var, reads, visited);
+            }
+        } else if (node instanceof NodeExpression) {
+            NodeExpression expression = (NodeExpression) node;
+            if (expression.getOperator() instanceof CustomOperator) {
+                String name = expression.getOperator().toString();
+                reads.add(name);
+                collectFunctionReads(name, reads, visited);
+            }
+        } else if (node instanceof NodeAddVariable) {
+            if (writes != null)
+                writes.add(((NodeAddVariable) node).getVariable());
+        } else if (node instanceof NodeFunction) {
+            NodeFunction function = (NodeFunction) node;
+            String[] variables = function.getVariables();
+            if (function.getNode() != null)
+                collectAccesses(function.getNode(), variables == null ? Collections.emptyList() : Arrays.asList(variables),
+                        reads, null, visited);
+        }
+
+        TreeWalker.forEachChild(node, child -> collectAccesses(child, parameters, reads, writes, visited));
+    }
+
+    // functions can't be redefined between barriers, so their bodies are read as they are now
+    private void collectFunctionReads(String name, Set<String> reads, Set<String> visited) {
+        // clearing the variables leaves functions callable, so they are found as calls find them
+        NodeConstant value = context.getFunction(name);
+        if (value == null)
+            value = context.getConstant(name);
+        if (value instanceof NodeFunction && visited.add(name))
+            collectAccesses(value, Collections.emptyList(), reads, null, visited);
+    }
+
+    /**
+     * Tracks the statements submitted since the last barrier and the last statement to write
+     * and the statements to read each name
+     */
+    private final class Schedule {
+
+        private final Result result;
+        // the index of the last statement to clear the variables, which clears ans too
+        private int cleared = -1;
+        private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+        private final Map<String, CompletableFuture<Void>> writers = new HashMap<>();
+        private final Map<String, List<CompletableFuture<Void>>> readers = new HashMap<>();
+
+        Schedule(Result result) {
+            this.result = result;
+        }
+
+        void submit(int index, Node tree, Set<String> reads, Set<String> writes) {
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+
+            if (reads.contains("ans")) {
+                // ans is the result of the last statement to succeed, which is only known once all have run
+                dependencies.addAll(pending);
+            } else {
+                for (String read : reads) {
+                    CompletableFuture<Void> writer = writers.get(read);
+                    if (writer != null)
+                        dependencies.add(writer);
+                }
+                for (String write : writes) {
+                    CompletableFuture<Void> writer = writers.get(write);
+                    if (writer != null)
+                        dependencies.add(writer);
+                    dependencies.addAll(readers.getOrDefault(write, Collections.emptyList()));
+                }
+            }
+
+            CompletableFuture<Void> task = CompletableFuture
+                    .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(() -> evaluate(index, tree, reads.contains("ans")), executor);
+
+            pending.add(task);
+            for (String read : reads) {
+                readers.computeIfAbsent(read, k -> new ArrayList<>()).add(task);
+            }
+            for (String write : writes) {
+                writers.put(write, task);
+                readers.remove(write);
+            }
+        }
+
+        void runSerially(int index, String statement) {
+            try {
+                restoreAns(index);
+                result.results[index] = evaluator.evaluateConstant(statement);
+            } catch (RuntimeException e) {
+                result.errors[index] = e;
+            }
+        }
+
+        // run a statement which clears the variables, once everything before it has finished
+        void runClearing(int index, Node tree) {
+            evaluate(index, tree, true);
+            cleared = index;
+        }
+
+        private void evaluate(int index, Node tree, boolean readsAns) {
+            try {
+                if (readsAns)
+                    restoreAns(index);
+
+                result.results[index] = new RecursiveDescentParser(context).parse(tree);
+            } catch (RuntimeException e) {
+                result.errors[index] = e;
+            }
+        }
+
+        // set ans to the result of the last statement before an index to succeed since the variables were cleared
+        void restoreAns(int index) {
+            for (int i = index - 1; i >= Math.max(cleared, 0); i--) {
+                if (result.results[i] != null) {
+                    context.addConstant("ans", result.results[i]);
+                    return;
+                }
+            }
+        }
+
+        void await() {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            pending.clear();
+            writers.clear();
+            readers.clear();
+        }
+    }
+
+    /**
+     * The outcome of each statement of a script
+     */
+    public static final class Result {
+
+        private final NodeConstant[] results;
+        private final RuntimeException[] errors;
+
+        private Result(int size) {
+            this.results = new NodeConstant[size];
+            this.errors = new RuntimeException[size];
+        }
+
+        public int size() {
+            return results.length;
+        }
+
+        /**
+         * Get the result of a statement
+         *
+         * @param index The index of the statement
+         * @return The result, or null if the statement failed or gave no result
+         */
+        public NodeConstant getResult(int index) {
+            return results[index];
+        }
+
+        /**
+         * Get the error thrown by a statement
+         *
+         * @param index The index of the statement
+         * @return The error, or null if the statement succeeded
+         */
+        public RuntimeException getError(int index) {
+            return errors[index];
+        }
+
+        public boolean hasErrors() {
+            for (RuntimeException error : errors) {
+                if (error != null)
+                    return true;
+            }
+            return false;
+        }
+
+        public List<NodeConstant> getResults() {
+            return Arrays.asList(results.clone());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.Operator;
+
+/**
+ * A token produced by {@link ExpressionLexer}. Tokens are either operators or operands,
+ * where an operand is a maximal run of text between two operators. Bracketed groups are
+ * kept whole inside operands and are tokenized separately when they are parsed.
+ */
+final class Token {
+
+    private final int start;
+    private final int end;
+    private final Operator operator;
+    private final String alias;
+
+    Token(int start, int end) {
+        this(start, end, null, null);
+    }
+
+    Token(int start, int end, Operator operator, String alias) {
+        this.start = start;
+        this.end = end;
+        this.operator = operator;
+        this.alias = alias;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    int getEnd() {
+        return end;
+    }
+
+    boolean isOperator() {
+        return operator != null;
+    }
+
+    boolean isBinaryOperator() {
+        return operator instanceof BinaryOperator;
+    }
+
+    Operator getOperator() {
+        return operator;
+    }
+
+    String getAlias() {
+        return alias;
+    }
+}
@@ -0,0 +1,174 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.Operator;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.*;
+import uk.co.ryanharrison.mathengine.parser.operators.unary.simple.*;
+
+/**
+ * Simplifies bound expression trees before they are evaluated repeatedly.
+ * <p>
+ * Subtrees without variables are evaluated once and replaced by their result, and identities
+ * such as x + 0, x * 1, x / 1 and x ^ 1 are removed. x ^ 0 becomes 1 and the square of a
+ * slot becomes a multiplication. A rule is only applied when it cannot change the result,
+ * including whether it is a {@link NodeRational} or a {@link NodeDouble}. Results are
+ * rational only if every operand is, so an identity is removed only when the other operand
+ * is known to be a double or the identity itself is rational. x * 0 is kept as it is not
+ * zero when x is infinite or NaN.
+ */
+final class TreeSimplifier {
+
+    private enum Kind {
+        DOUBLE, RATIONAL, NUMBER, OTHER;
+
+        boolean isNumber() {
+            return this != OTHER;
+        }
+    }
+
+    private final EvaluationContext context;
+
+    private TreeSimplifier(EvaluationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Simplify a tree whose constants have already been bound
+     *
+     * @param context The context the tree will be evaluated in
+     * @param tree    The tree to simplify
+     * @return The simplified tree, which may be the same instance
+     */
+    static Node simplify(EvaluationContext context, Node tree) {
+        return new TreeSimplifier(context).visit(tree);
+    }
+
+    /**
+     * Determines whether a tree contains no variables, so evaluating it always gives the same result
+     *
+     * @param node The tree to test
+     * @return True if the tree is constant, otherwise false
+     */
+    static boolean isConstant(Node node) {
+        if (node instanceof NodeExpression || node instanceof NodeVector || node instanceof NodeMatrix)
+            return TreeWalker.allChildren(node, TreeSimplifier::isConstant);
+
+        return node instanceof NodeConstant;
+    }
+
+    private Node visit(Node node) {
+        if (node instanceof NodeExpression)
+            return visitExpression((NodeExpression) node);
+
+        return TreeWalker.mapChildren(node, this::visit);
+    }
+
+    private Node visitExpression(NodeExpression expression) {
+        Operator operator = expression.getOperator();
+        NodeExpression simplified = (NodeExpression) TreeWalker.mapChildren(expression, this::visit);
+        Node left = simplified.getArgOne();
+        Node right = simplified.getArgTwo();
+
+        if (isConstant(simplified)) {
+            NodeConstant folded = fold(simplified);
+            if (folded != null)
+                return folded;
+        }
+
+        if (right == null)
+            return simplified;
+
+        Class<?> type = operator.getClass();
+        if (type == Add.class) {
+            if (isIdentity(right, 0, left))
+                return left;
+            if (isIdentity(left, 0, right))
+                return right;
+        } else if (type == Subtract.class) {
+            if (isIdentity(right, 0, left))
+                return left;
+        } else if (type == Multiply.class) {
+            if (isIdentity(right, 1, left))
+                return left;
+            if (isIdentity(left, 1, right))
+                return right;
+        } else if (type == Divide.class) {
+            if (isIdentity(right, 1, left))
+                return left;
+        } else if (type == Pow.class) {
+            if (isIdentity(right, 1, left))
+                return left;
+            if (isValue(right, 0)) {
+                Kind kind = kindOf(left);
+                if (kind == Kind.DOUBLE || (right instanceof NodeDouble && kind.isNumber()))
+                    return new NodeDouble(1);
+                if (kind == Kind.RATIONAL)
+                    return new NodeRational(1);
+            }
+            if (left instanceof NodeSlot && isValue(right, 2) && resultKeepsKind(right, left))
+                return new NodeExpression(context.getOperator("*"), left, left);
+        }
+
+        return simplified;
+    }
+
+    // evaluated in full so that any error is left to be reported when the tree is evaluated
+    private NodeConstant fold(Node node) {
+        try {
+            return new RecursiveDescentParser(context).parse(node);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private boolean isIdentity(Node constant, double value, Node other) {
+        return isValue(constant, value) && resultKeepsKind(constant, other);
+    }
+
+    private static boolean isValue(Node node, double value) {
+        return (node instanceof NodeRational || node instanceof NodeDouble) && !(node instanceof NodePercent)
+                && ((NodeNumber) node).doubleValue() == value;
+    }
+
+    private static boolean resultKeepsKind(Node constant, Node other) {
+        Kind kind = kindOf(other);
+        return kind == Kind.DOUBLE || (constant instanceof NodeRational && kind.isNumber());
+    }
+
+    private static Kind kindOf(Node node) {
+        if (node instanceof NodeSlot) {
+            return Kind.DOUBLE;
+        } else if (node instanceof NodePercent) {
+            return Kind.OTHER;
+        } else if (node instanceof NodeDouble) {
+            return Kind.DOUBLE;
+        } else if (node instanceof NodeRational) {
+            return Kind.RATIONAL;
+        } else if (node instanceof NodeExpression) {
+            NodeExpression expression = (NodeExpression) node;
+            Class<?> type = expression.getOperator().getClass();
+
+            if (expression.getArgTwo() == null) {
+                boolean number = type == Sine.class || type == Cosine.class || type == Tangent.class
+                        || type == Ln.class || type == Abs.class;
+                return number && kindOf(expression.getArgOne()).isNumber() ? Kind.NUMBER : Kind.OTHER;
+            }
+
+            if (type != Add.class && type != Subtract.class && type != Multiply.class
+                    && type != Divide.class && type != Pow.class)
+                return Kind.OTHER;
+
+            Kind left = kindOf(expression.getArgOne());
+            Kind right = kindOf(expression.getArgTwo());
+            if (!left.isNumber() || !right.isNumber())
+                return Kind.OTHER;
+            if (left == Kind.DOUBLE || right == Kind.DOUBLE)
+                return Kind.DOUBLE;
+            if (left == Kind.RATIONAL && right == Kind.RATIONAL && type != Pow.class)
+                return Kind.RATIONAL;
+            return Kind.NUMBER;
+        }
+
+        return Kind.OTHER;
+    }
+}
@@ -0,0 +1,105 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Walks the children of the nodes a parsed tree is built from: the arguments of an expression,
+ * the expression of a variable defined with := and the elements of vectors and matrices. A pass
+ * over a tree handles the nodes it is interested in and leaves the rest of the tree to these
+ * methods, so that every pass agrees on what a tree contains.
+ * <p>
+ * The elements of vectors and matrices of doubles can only be doubles, so they are treated as
+ * having no children rather than creating a node for every element.
+ */
+final class TreeWalker {
+
+    private TreeWalker() {
+    }
+
+    /**
+     * Rebuild a node with each of its children mapped
+     *
+     * @param node   The node
+     * @param mapper Maps each child to the node which replaces it
+     * @return A new node, or the same instance if the node has no children
+     */
+    static Node mapChildren(Node node, Function<Node, Node> mapper) {
+        if (node instanceof NodeExpression) {
+            NodeExpression expression = (NodeExpression) node;
+            Node argTwo = expression.getArgTwo();
+            return new NodeExpression(expression.getOperator(), mapper.apply(expression.getArgOne()),
+                    argTwo == null ? null : mapper.apply(argTwo));
+        } else if (node instanceof NodeAddVariable) {
+            NodeAddVariable addVariable = (NodeAddVariable) node;
+            return new NodeAddVariable(addVariable.getVariable(), mapper.apply(addVariable.getNode()));
+        } else if (node instanceof NodeVector && !((NodeVector) node).isDense()) {
+            Node[] values = ((NodeVector) node).getValues();
+            Node[] results = new Node[values.length];
+            for (int i = 0; i < values.length; i++) {
+                results[i] = mapper.apply(values[i]);
+            }
+            return new NodeVector(results);
+        } else if (node instanceof NodeMatrix && !((NodeMatrix) node).isDense()) {
+            Node[][] values = ((NodeMatrix) node).getValues();
+            Node[][] results = new Node[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                results[i] = new Node[values[i].length];
+                for (int j = 0; j < values[i].length; j++) {
+                    results[i][j] = mapper.apply(values[i][j]);
+                }
+            }
+            return new NodeMatrix(results);
+        }
+
+        return node;
+    }
+
+    /**
+     * Determines whether every child of a node matches a predicate, stopping at the first which
+     * does not
+     *
+     * @param node      The node
+     * @param predicate The predicate to test each child with, in order
+     * @return True if every child matches or the node has no children, otherwise false
+     */
+    static boolean allChildren(Node node, Predicate<Node> predicate) {
+        if (node instanceof NodeExpression) {
+            NodeExpression expression = (NodeExpression) node;
+            return predicate.test(expression.getArgOne())
+                    && (expression.getArgTwo() == null || predicate.test(expression.getArgTwo()));
+        } else if (node instanceof NodeAddVariable) {
+            return predicate.test(((NodeAddVariable) node).getNode());
+        } else if (node instanceof NodeVector && !((NodeVector) node).isDense()) {
+            for (Node value : ((NodeVector) node).getValues()) {
+                if (!predicate.test(value))
+                    return false;
+            }
+        } else if (node instanceof NodeMatrix && !((NodeMatrix) node).isDense()) {
+            for (Node[] row : ((NodeMatrix) node).getValues()) {
+                for (Node value : row) {
+                    if (!predicate.test(value))
+                        return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Perform an action on each child of a node
+     *
+     * @param node   The node
+     * @param action The action to perform on each child, in order
+     */
+    static void forEachChild(Node node, Consumer<Node> action) {
+        allChildren(node, child -> {
+            action.accept(child);
+            return true;
+        });
+    }
+}
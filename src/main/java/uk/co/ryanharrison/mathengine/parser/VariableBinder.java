@@ -0,0 +1,53 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Binds the variables of a parsed tree to the cells of a context, so that evaluating the
+ * tree reads each variable from its cell rather than looking it up by name. Variables are
+ * bound whether or not they have a value yet, so the tree sees any later definition.
+ * <p>
+ * The parameters of a function are only ever read from the frame of a call, so they are left
+ * unbound rather than given a cell in the context.
+ */
+final class VariableBinder {
+
+    private VariableBinder() {
+    }
+
+    /**
+     * Bind the variables of a tree
+     *
+     * @param context The context the tree will be evaluated in
+     * @param tree    The tree to bind
+     * @return The bound tree, which may be the same instance
+     */
+    static Node bind(EvaluationContext context, Node tree) {
+        return bind(context, tree, Collections.emptyList());
+    }
+
+    /**
+     * Bind the variables of the body of a function, other than its parameters
+     *
+     * @param context    The context the function will be evaluated in
+     * @param tree       The body of the function
+     * @param parameters The names of the parameters of the function
+     * @return The bound tree, which may be the same instance
+     */
+    static Node bind(EvaluationContext context, Node tree, Collection<String> parameters) {
+        if (tree instanceof NodeBoundVariable) {
+            return tree;
+        } else if (tree instanceof NodeVariable) {
+            String var = ((NodeVariable) tree).getVariable();
+            if (RecursiveDescentParser.isCommand(var) || parameters.contains(var))
+                return tree;
+
+            return new NodeBoundVariable(var, context.getCell(var));
+        }
+
+        return TreeWalker.mapChildren(tree, child -> bind(context, child, parameters));
+    }
+}
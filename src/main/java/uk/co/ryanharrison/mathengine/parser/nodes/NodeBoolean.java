@@ -2,13 +2,26 @@ package uk.co.ryanharrison.mathengine.parser.nodes;
 
 public class NodeBoolean extends NodeDouble {
 
-    private boolean value;
+    private static final NodeBoolean TRUE = new NodeBoolean(true);
+    private static final NodeBoolean FALSE = new NodeBoolean(false);
+
+    private final boolean value;
 
     public NodeBoolean(boolean bool) {
         super(bool ? 1 : 0);
         this.value = bool;
     }
 
+    /**
+     * Get the shared instance for true or false
+     *
+     * @param bool The value
+     * @return The boolean
+     */
+    public static NodeBoolean valueOf(boolean bool) {
+        return bool ? TRUE : FALSE;
+    }
+
     public boolean getValue() {
         return value;
     }
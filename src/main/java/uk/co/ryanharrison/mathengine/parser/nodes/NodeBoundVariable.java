@@ -0,0 +1,45 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+/**
+ * A variable which has been bound to the cell holding its value when an expression was
+ * prepared. Every node bound to the same name in a context shares one cell, so redefining
+ * the variable updates the cell and its value is read without looking up its name.
+ */
+public final class NodeBoundVariable extends NodeVariable {
+
+    private final Cell cell;
+
+    public NodeBoundVariable(String variable, Cell cell) {
+        super(variable);
+        this.cell = cell;
+    }
+
+    public Cell getCell() {
+        return cell;
+    }
+
+    @Override
+    public NodeBoundVariable copy() {
+        return new NodeBoundVariable(getVariable(), cell);
+    }
+
+    /**
+     * The current value of a variable, or null if the variable has no value
+     */
+    public static final class Cell {
+
+        private volatile NodeConstant value;
+
+        public Cell(NodeConstant value) {
+            this.value = value;
+        }
+
+        public NodeConstant get() {
+            return value;
+        }
+
+        public void set(NodeConstant value) {
+            this.value = value;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package uk.co.ryanharrison.mathengine.parser.nodes;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 public abstract class NodeConstant extends Node implements Comparable<NodeConstant> {
@@ -9,6 +10,18 @@ public abstract class NodeConstant extends Node implements Comparable<NodeConsta
 
     public abstract NodeConstant applyBiFunc(NodeConstant b, BiFunction<NodeNumber, NodeNumber, NodeConstant> func);
 
+    /**
+     * Apply a function of a double to each element without creating a node for each element,
+     * which is only possible if the elements are held as doubles. The results are normalized as
+     * by {@link NodeFactory#createNodeNumberFrom(double)}.
+     *
+     * @param func The function
+     * @return The results, or null if the elements aren't held as doubles
+     */
+    public NodeConstant applyDoubleFunc(DoubleUnaryOperator func) {
+        return null;
+    }
+
     @Override
     public abstract boolean equals(Object object);
 
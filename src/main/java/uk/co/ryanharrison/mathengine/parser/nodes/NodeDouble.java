@@ -2,7 +2,7 @@ package uk.co.ryanharrison.mathengine.parser.nodes;
 
 public class NodeDouble extends NodeNumber {
 
-    protected double value;
+    protected final double value;
 
     public NodeDouble(double value) {
         this.value = value;
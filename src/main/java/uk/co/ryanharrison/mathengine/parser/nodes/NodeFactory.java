@@ -2,7 +2,7 @@ package uk.co.ryanharrison.mathengine.parser.nodes;
 
 import org.apache.commons.lang3.StringUtils;
 import uk.co.ryanharrison.mathengine.Utils;
-import uk.co.ryanharrison.mathengine.parser.ExpressionParser;
+import uk.co.ryanharrison.mathengine.parser.Parser;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +11,7 @@ public final class NodeFactory
 {
 	private static final int maxInt = Integer.MAX_VALUE;
 	private static final int precision = 4;
+	private static final long[] powersOfTen = { 1, 10, 100, 1000, 10000 };
 
 	private static NodeMatrix createMatrixFrom(List<NodeVector> vals)
 	{
@@ -26,7 +27,7 @@ public final class NodeFactory
 		return new NodeMatrix(results);
 	}
 
-	public static NodeMatrix createMatrixFrom(String expression, ExpressionParser parser)
+	public static NodeMatrix createMatrixFrom(String expression, Parser<String, Node> parser)
 	{
 		if (StringUtils.isEmpty(expression))
 			return new NodeMatrix(new Node[0][0]);
@@ -81,19 +82,68 @@ public final class NodeFactory
 		}
 	}
 
+	/**
+	 * Create a number from a double, which is a rational if the double is an integer or has
+	 * no more than four decimal places and a double otherwise
+	 * 
+	 * @param value
+	 *            The value of the number
+	 * @return The number
+	 */
 	public static NodeNumber createNodeNumberFrom(double value)
+	{
+		NodeRational rational = toRational(value);
+		return rational != null ? rational : new NodeDouble(value);
+	}
+
+	// The rational createNodeNumberFrom gives for a double, or null if it is kept as a double
+	static NodeRational toRational(double value)
+	{
+		double absValue = Math.abs(value);
+
+		if (Double.isNaN(value))
+			return null;
+		else if (absValue <= maxInt && value == Math.rint(value))
+			return NodeRational.valueOf((long) value, 1);
+		// Written without an exponent, so it has few enough decimal places if a decimal with that
+		// many places rounds to it
+		else if (absValue >= 1E-3 && absValue < 1E7)
+		{
+			long scale = powersOfTen[precision];
+			long numerator = Math.round(value * scale);
+
+			if (numerator / (double) scale == value)
+				return NodeRational.valueOf(numerator, scale);
+			return null;
+		}
+
+		return toRationalFromString(value);
+	}
+
+	// Whether createNodeNumberFrom keeps every one of the values as a double
+	static boolean areDoubles(double[] values)
+	{
+		for (double value : values)
+		{
+			if (toRational(value) != null)
+				return false;
+		}
+		return true;
+	}
+
+	private static NodeRational toRationalFromString(double value)
 	{
 		double absValue = Math.abs(value);
 
 		// Greater than max possible number
 		if (absValue > maxInt)
-			return new NodeDouble(value);
+			return null;
 		// Too small
 		else if (absValue < 1.0 / maxInt && absValue != 0)
-			return new NodeDouble(value);
+			return null;
 		// Too much precision
 		else if (Double.toString(absValue).split("\\.")[1].length() > precision)
-			return new NodeDouble(value);
+			return null;
 		else
 			try
 			{
@@ -101,11 +151,95 @@ public final class NodeFactory
 			}
 			catch (RuntimeException e)
 			{
-				return new NodeDouble(value);
+				return null;
 			}
 	}
 
-	public static NodeVector createVectorFrom(String expression, ExpressionParser parser)
+	/**
+	 * Create a number from an integer, reusing the same instance for small integers
+	 * 
+	 * @param value
+	 *            The value of the number
+	 * @return The number
+	 */
+	public static NodeNumber createNodeNumberFrom(long value)
+	{
+		if (Math.abs(value) > maxInt)
+			return new NodeDouble(value);
+		return NodeRational.valueOf(value, 1);
+	}
+
+	/**
+	 * Create a number from a numeric literal. Decimals of no more than four decimal places are
+	 * converted to a rational exactly from their digits, anything else is parsed as a double
+	 * 
+	 * @param literal
+	 *            The literal, such as 0.1
+	 * @return The number
+	 */
+	public static NodeNumber createNodeNumberFromLiteral(String literal)
+	{
+		int length = literal.length();
+		int i = 0;
+		boolean negative = false;
+
+		if (i < length && (literal.charAt(i) == '+' || literal.charAt(i) == '-'))
+			negative = literal.charAt(i++) == '-';
+
+		long unscaled = 0;
+		int digits = 0;
+		int places = -1;
+		int zeros = 0;
+
+		for (; i < length; i++)
+		{
+			char c = literal.charAt(i);
+
+			if (c == '.' && places == -1)
+			{
+				places = 0;
+			}
+			else if (c >= '0' && c <= '9')
+			{
+				// Trailing zeros after the point don't change the value
+				if (places != -1 && c == '0')
+				{
+					zeros++;
+					continue;
+				}
+
+				for (; zeros > 0; zeros--)
+				{
+					unscaled *= 10;
+					places++;
+				}
+
+				unscaled = unscaled * 10 + (c - '0');
+				digits++;
+				if (places != -1)
+					places++;
+				if (unscaled > maxInt * powersOfTen[precision] || places > precision)
+					return createNodeNumberFrom(Double.parseDouble(literal));
+			}
+			else
+			{
+				// Exponents, hexadecimal and type suffixes
+				return createNodeNumberFrom(Double.parseDouble(literal));
+			}
+		}
+
+		if (digits == 0 && zeros == 0)
+			return createNodeNumberFrom(Double.parseDouble(literal));
+
+		long value = negative ? -unscaled : unscaled;
+		if (places <= 0)
+			return createNodeNumberFrom(value);
+		else if (unscaled / powersOfTen[places] > maxInt)
+			return createNodeNumberFrom(Double.parseDouble(literal));
+		return NodeRational.valueOf(value, powersOfTen[places]);
+	}
+
+	public static NodeVector createVectorFrom(String expression, Parser<String, Node> parser)
 	{
 		if (StringUtils.isEmpty(expression))
 			return new NodeVector(new Node[0]);
@@ -151,7 +285,7 @@ public final class NodeFactory
 
 	public static NodeNumber createZeroNumber()
 	{
-		return createNodeNumberFrom(0.0);
+		return createNodeNumberFrom(0L);
 	}
 
 }
@@ -4,27 +4,55 @@ import uk.co.ryanharrison.mathengine.linearalgebra.Matrix;
 
 import java.util.Arrays;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * A matrix of nodes. A matrix whose elements are all doubles wraps a {@link Matrix}, and nodes
+ * for its elements are only created if they are requested with {@link #getValues()}.
+ */
 public final class NodeMatrix extends NodeConstant implements NodeSet {
 
-    private Node[][] values;
+    // created on request for a matrix of doubles. Constants are shared between threads, so
+    // the nodes must be safely published to any thread which finds them set
+    private volatile Node[][] values;
+
+    // the elements of a matrix of doubles, otherwise null
+    private final Matrix matrix;
 
     public NodeMatrix(Node[][] values) {
         this.values = values;
+        this.matrix = null;
     }
 
+    /**
+     * Create a matrix of doubles which shares the storage of a {@link Matrix}, which must not be
+     * modified afterwards
+     *
+     * @param matrix The matrix
+     */
     public NodeMatrix(Matrix matrix) {
-        int rowCount = matrix.getRowCount();
-        int colCount = matrix.getColumnCount();
-        values = new Node[rowCount][colCount];
+        this.matrix = matrix;
+    }
 
-        for (int i = 0; i < rowCount; i++) {
-            for (int j = 0; j < colCount; j++) {
-                values[i][j] = new NodeDouble(matrix.get(i, j));
+    // a matrix of doubles if every value is a double
+    private static NodeMatrix of(Node[][] values) {
+        if (values.length == 0)
+            return new NodeMatrix(values);
+
+        Matrix matrix = new Matrix(values.length, values[0].length);
+        double[][] elements = matrix.getElements();
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < values[i].length; j++) {
+                Node value = values[i][j];
+                if (value == null || value.getClass() != NodeDouble.class)
+                    return new NodeMatrix(values);
+                elements[i][j] = ((NodeDouble) value).doubleValue();
             }
         }
+        return new NodeMatrix(matrix);
     }
 
     @Override
@@ -43,30 +71,62 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NodeMatrix that = (NodeMatrix) o;
-        return Arrays.deepEquals(values, that.values);
+        if (matrix != null && that.matrix != null)
+            return Arrays.deepEquals(matrix.getElements(), that.matrix.getElements());
+        return Arrays.deepEquals(getValues(), that.getValues());
     }
 
     public int colCount() {
         if (rowCount() == 0)
             return 0;
 
-        return values[0].length;
+        return matrix != null ? matrix.getColumnCount() : values[0].length;
     }
 
     public int rowCount() {
-        return values.length;
+        return matrix != null ? matrix.getRowCount() : values.length;
+    }
+
+    /**
+     * Whether the elements are all doubles held in a {@link Matrix}
+     *
+     * @return True if the elements are held as doubles
+     */
+    public boolean isDense() {
+        return matrix != null;
     }
 
     public Node[][] getValues() {
+        Node[][] values = this.values;
+        if (values == null) {
+            double[][] elements = matrix.getElements();
+            values = new Node[rowCount()][colCount()];
+            for (int i = 0; i < values.length; i++) {
+                for (int j = 0; j < values[i].length; j++) {
+                    values[i][j] = new NodeDouble(elements[i][j]);
+                }
+            }
+            this.values = values;
+        }
         return values;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(values);
+        // the same as the hash of the equivalent NodeDouble array
+        return matrix != null ? Arrays.deepHashCode(matrix.getElements()) : Arrays.deepHashCode(values);
     }
 
+    /**
+     * Get the elements as a {@link Matrix}, which is shared with this node for a matrix of doubles
+     * so must not be modified
+     *
+     * @return The matrix
+     */
     public Matrix toDoubleMatrix() {
+        if (matrix != null)
+            return matrix;
+
         int rowCount = rowCount();
         int colCount = colCount();
         NodeConstant[][] a = toNodeConstants();
@@ -95,6 +155,7 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
     private NodeConstant[][] toNodeConstants() {
         int rowCount = rowCount();
         int colCount = colCount();
+        Node[][] values = getValues();
         NodeConstant[][] result = new NodeConstant[rowCount][colCount];
         for (int i = 0; i < rowCount; i++)
             for (int j = 0; j < colCount; j++)
@@ -105,6 +166,10 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
 
     @Override
     public NodeMatrix resolve(Function<Node, NodeConstant> func) {
+        // doubles are already constants
+        if (matrix != null)
+            return this;
+
         int rowCount = rowCount();
         int colCount = colCount();
         NodeConstant[][] result = new NodeConstant[rowCount][colCount];
@@ -112,13 +177,22 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
             for (int j = 0; j < colCount; j++)
                 result[i][j] = func.apply(values[i][j]);
 
-        return new NodeMatrix(result);
+        return of(result);
     }
 
     private class NodeMatrixTransformer implements NodeTransformer {
 
         @Override
         public NodeVector toNodeVector() {
+            if (matrix != null) {
+                double[][] elements = matrix.getElements();
+                NodeVector[] vectors = new NodeVector[rowCount()];
+                for (int i = 0; i < vectors.length; i++) {
+                    vectors[i] = new NodeVector(elements[i].clone());
+                }
+                return new NodeVector(vectors);
+            }
+
             NodeVector[] vectors = new NodeVector[values.length];
             for (int i = 0; i < values.length; i++) {
                 vectors[i] = new NodeVector(values[i]);
@@ -135,12 +209,23 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
         public NodeNumber toNodeNumber() {
             int rowCount = rowCount();
             int colCount = colCount();
-            NodeNumber sum = NodeFactory.createZeroNumber();
-            NodeConstant[][] constants = toNodeConstants();
+
+            if (matrix != null && rowCount > 0 && colCount > 0) {
+                // adding a double to zero gives a double, as does every addition after it
+                double[][] elements = matrix.getElements();
+                double sum = 0.0;
+                for (int i = 0; i < rowCount; i++)
+                    for (int j = 0; j < colCount; j++)
+                        sum += elements[i][j];
+                return new NodeDouble(sum);
+            }
+
+            Node[][] values = getValues();
+            NumberSum sum = new NumberSum();
             for (int i = 0; i < rowCount; i++)
                 for (int j = 0; j < colCount; j++)
-                    sum = sum.add(constants[i][j].getTransformer().toNodeNumber());
-            return sum;
+                    sum.add(values[i][j].getTransformer().toNodeNumber());
+            return sum.getSum();
 
         }
     }
@@ -149,6 +234,7 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
     public NodeMatrix applyUniFunc(Function<NodeNumber, NodeConstant> func) {
         int rowCount = rowCount();
         int colCount = colCount();
+        Node[][] values = getValues();
         NodeConstant[][] results = new NodeConstant[rowCount][colCount];
 
         for (int i = 0; i < rowCount; i++) {
@@ -160,122 +246,164 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
                 }
             }
         }
-        return new NodeMatrix(results);
+        return of(results);
     }
 
     @Override
     public NodeMatrix applyBiFunc(NodeConstant b, BiFunction<NodeNumber, NodeNumber, NodeConstant> func) {
         NodeMatrix arg2 = b.getTransformer().toNodeMatrix();
-        normalizeMatrixSizes(arg2);
-        int rowCount = rowCount();
-        int colCount = colCount();
+        Node[][] values1 = getValues();
+        Node[][] values2 = arg2.getValues();
+
+        // either operand may be a constant shared between evaluations, so is broadcast in place
+        int rowCount1 = rowCount();
+        int colCount1 = colCount();
+        int rowCount2 = arg2.rowCount();
+        int colCount2 = arg2.colCount();
+        int rowCount = Math.max(rowCount1, rowCount2);
+        int colCount = Math.max(colCount1, colCount2);
+        NodeNumber zero = NodeFactory.createZeroNumber();
 
         NodeConstant[][] results = new NodeConstant[rowCount][colCount];
 
         for (int i = 0; i < rowCount; i++) {
+            int i1 = NodeVector.broadcastIndex(i, rowCount1, rowCount);
+            int i2 = NodeVector.broadcastIndex(i, rowCount2, rowCount);
             for (int j = 0; j < colCount; j++) {
-                results[i][j] = func.apply(this.values[i][j].getTransformer().toNodeNumber(),
-                        arg2.values[i][j].getTransformer().toNodeNumber());
+                int j1 = NodeVector.broadcastIndex(j, colCount1, colCount);
+                int j2 = NodeVector.broadcastIndex(j, colCount2, colCount);
+                results[i][j] = func.apply(i1 < 0 || j1 < 0 ? zero : values1[i1][j1].getTransformer().toNodeNumber(),
+                        i2 < 0 || j2 < 0 ? zero : values2[i2][j2].getTransformer().toNodeNumber());
             }
         }
 
-        return new NodeMatrix(results);
+        return of(results);
     }
 
-    private void normalizeMatrixSizes(NodeMatrix b) {
-        if (this.rowCount() == b.rowCount() && this.colCount() == b.colCount())
-            return;
-
-        // m == rows
-        int longest = Math.max(this.rowCount(), b.rowCount());
-
-        if (this.rowCount() != longest) {
-            int rowCount = this.rowCount();
-            int colCount = this.colCount();
-            Node[][] results = new Node[longest][colCount];
-
-            if (rowCount == 1) {
-                for (int i = 0; i < longest; i++)
-                    if (colCount >= 0) System.arraycopy(this.values[0], 0, results[i], 0, colCount);
-            } else {
-                for (int i = 0; i < rowCount; i++)
-                    if (colCount >= 0) System.arraycopy(this.values[i], 0, results[i], 0, colCount);
+    @Override
+    public NodeMatrix applyDoubleFunc(DoubleUnaryOperator func) {
+        if (matrix == null)
+            return null;
 
-                for (int i = rowCount; i < longest; i++)
-                    for (int j = 0; j < colCount; j++) {
-                        results[i][j] = NodeFactory.createZeroNumber();
-                    }
-            }
-            this.values = results;
-        } else {
-            int rowCount = b.rowCount();
-            int colCount = b.colCount();
-            Node[][] results = new Node[longest][colCount];
-
-            if (rowCount == 1) {
-                for (int i = 0; i < longest; i++)
-                    if (colCount >= 0) System.arraycopy(b.values[0], 0, results[i], 0, colCount);
-            } else {
-                for (int i = 0; i < rowCount; i++)
-                    if (colCount >= 0) System.arraycopy(b.values[i], 0, results[i], 0, colCount);
+        int rowCount = rowCount();
+        int colCount = colCount();
+        double[][] elements = matrix.getElements();
+        Matrix result = new Matrix(rowCount, colCount);
+        double[][] results = result.getElements();
 
-                for (int i = rowCount; i < longest; i++)
-                    for (int j = 0; j < colCount; j++)
-                        results[i][j] = NodeFactory.createZeroNumber();
+        boolean allDoubles = true;
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < colCount; j++) {
+                results[i][j] = func.applyAsDouble(elements[i][j]);
             }
-
-            b.values = results;
+            allDoubles = allDoubles && NodeFactory.areDoubles(results[i]);
         }
 
-        longest = Math.max(this.colCount(), b.colCount());
+        if (allDoubles)
+            return new NodeMatrix(result);
 
-        if (this.colCount() != longest) {
-            int rowCount = this.rowCount();
-            int colCount = this.colCount();
-            Node[][] results = new Node[rowCount][longest];
+        Node[][] nodes = new Node[rowCount][colCount];
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < colCount; j++) {
+                nodes[i][j] = NodeFactory.createNodeNumberFrom(results[i][j]);
+            }
+        }
+        return new NodeMatrix(nodes);
+    }
 
-            if (colCount == 1) {
-                for (int i = 0; i < rowCount; i++)
-                    for (int j = 0; j < longest; j++)
-                        results[i][j] = this.values[i][0];
-            } else {
-                for (int i = 0; i < rowCount; i++)
-                    if (colCount >= 0) System.arraycopy(this.values[i], 0, results[i], 0, colCount);
+    /**
+     * Apply a function of two doubles elementwise without creating a node for each element,
+     * giving the same result as {@link #applyBiFunc(NodeConstant, BiFunction)} with the
+     * equivalent function of two numbers. Matrices of different sizes are broadcast in the same
+     * way.
+     *
+     * @param a    The first operand
+     * @param b    The second operand
+     * @param func The function, which must match the function of two numbers when either is a
+     *             double
+     * @return The results, or null if either operand isn't a number or matrix of numbers which
+     * aren't percentages, or if the results wouldn't all be doubles
+     */
+    public static NodeMatrix applyDoubleBiFunc(NodeConstant a, NodeConstant b, DoubleBinaryOperator func) {
+        boolean aDoubles = a instanceof NodeMatrix && ((NodeMatrix) a).matrix != null;
+        boolean bDoubles = b instanceof NodeMatrix && ((NodeMatrix) b).matrix != null;
+        if (!aDoubles && !bDoubles)
+            return null;
+
+        double[][] x = toDoubles(a);
+        double[][] y = toDoubles(b);
+        if (x == null || y == null)
+            return null;
+
+        int rowCount1 = x.length;
+        int colCount1 = rowCount1 == 0 ? 0 : x[0].length;
+        int rowCount2 = y.length;
+        int colCount2 = rowCount2 == 0 ? 0 : y[0].length;
+        int rowCount = Math.max(rowCount1, rowCount2);
+        int colCount = Math.max(colCount1, colCount2);
+
+        // the padding is a rational zero, so the results are only all doubles if every one reads
+        // an element of a matrix of doubles
+        boolean aCovers = aDoubles && covers(rowCount1, colCount1, rowCount, colCount);
+        boolean bCovers = bDoubles && covers(rowCount2, colCount2, rowCount, colCount);
+        if (rowCount == 0 || colCount == 0 || !aCovers && !bCovers)
+            return null;
+
+        Matrix result = new Matrix(rowCount, colCount);
+        double[][] results = result.getElements();
 
-                for (int i = 0; i < rowCount; i++)
-                    for (int j = colCount; j < longest; j++)
-                        results[i][j] = NodeFactory.createZeroNumber();
+        for (int i = 0; i < rowCount; i++) {
+            int i1 = NodeVector.broadcastIndex(i, rowCount1, rowCount);
+            int i2 = NodeVector.broadcastIndex(i, rowCount2, rowCount);
+            double[] row1 = i1 < 0 ? null : x[i1];
+            double[] row2 = i2 < 0 ? null : y[i2];
+            for (int j = 0; j < colCount; j++) {
+                int j1 = NodeVector.broadcastIndex(j, colCount1, colCount);
+                int j2 = NodeVector.broadcastIndex(j, colCount2, colCount);
+                results[i][j] = func.applyAsDouble(row1 == null || j1 < 0 ? 0.0 : row1[j1], row2 == null || j2 < 0 ? 0.0 : row2[j2]);
             }
+        }
 
-            this.values = results;
-        } else {
-            int rowCount = b.rowCount();
-            int colCount = b.colCount();
-            Node[][] results = new Node[rowCount][longest];
+        return new NodeMatrix(result);
+    }
 
-            if (colCount == 1) {
-                for (int i = 0; i < rowCount; i++)
-                    for (int j = 0; j < longest; j++)
-                        results[i][j] = b.values[i][0];
-            } else {
-                for (int i = 0; i < rowCount; i++)
-                    if (colCount >= 0) System.arraycopy(b.values[i], 0, results[i], 0, colCount);
+    // whether broadcasting a matrix to a size repeats its elements without padding
+    private static boolean covers(int rowCount, int colCount, int resultRowCount, int resultColCount) {
+        return (rowCount == resultRowCount || rowCount == 1) && (colCount == resultColCount || colCount == 1);
+    }
 
-                for (int i = 0; i < rowCount; i++)
-                    for (int j = colCount; j < longest; j++)
-                        results[i][j] = NodeFactory.createZeroNumber();
-            }
+    // the values of a number or a matrix of numbers, null for anything else or a percentage
+    private static double[][] toDoubles(NodeConstant constant) {
+        if (constant instanceof NodeNumber) {
+            return constant instanceof NodePercent ? null : new double[][]{{((NodeNumber) constant).doubleValue()}};
+        } else if (!(constant instanceof NodeMatrix)) {
+            return null;
+        }
 
-            b.values = results;
+        NodeMatrix matrix = (NodeMatrix) constant;
+        if (matrix.matrix != null)
+            return matrix.matrix.getElements();
+
+        Node[][] values = matrix.values;
+        double[][] results = new double[values.length][];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new double[values[i].length];
+            for (int j = 0; j < results[i].length; j++) {
+                Node value = values[i][j];
+                if (!(value instanceof NodeNumber) || value instanceof NodePercent)
+                    return null;
+                results[i][j] = ((NodeNumber) value).doubleValue();
+            }
         }
+        return results;
     }
 
     public String toShortString() {
-        if (values.length == 0)
+        if (rowCount() == 0)
             return "[]";
 
         return "[" +
-                Arrays.stream(values)
+                Arrays.stream(getValues())
                         .map(v -> new NodeVector(v).toString())
                         .collect(Collectors.joining(", "))
                 + "]";
@@ -286,13 +414,14 @@ public final class NodeMatrix extends NodeConstant implements NodeSet {
         StringBuilder builder = new StringBuilder();
         String tmp;
 
-        int m = this.values.length;
+        Node[][] values = getValues();
+        int m = values.length;
         if (m == 0)
             return "[]";
 
-        int n = this.values[0].length;
+        int n = values[0].length;
 
-        for (Node[] value : this.values) {
+        for (Node[] value : values) {
             for (int j = 0; j < n; j++) {
                 tmp = j == 0 ? "\n" : "\t";
 
@@ -1,42 +1,179 @@
 package uk.co.ryanharrison.mathengine.parser.nodes;
 
 import uk.co.ryanharrison.mathengine.BigRational;
+import uk.co.ryanharrison.mathengine.RationalAccumulator;
 
-import java.util.Objects;
+import java.math.BigInteger;
 
+/**
+ * An exact fraction. Fractions whose numerator and denominator fit in a long are held as a pair
+ * of longs and their arithmetic is done on longs, any other is held as a {@link BigRational}.
+ * Results which overflow a long are recomputed with {@link BigRational}, so the representation
+ * is never visible.
+ */
 public final class NodeRational extends NodeNumber {
 
-    private BigRational value;
     private static final int maxIterations = 150;
     private static final double epsilon = 1E-15;
 
-    private NodeRational(BigRational rational) {
-        this.value = rational;
+    // shared instances of the integers and fractions which are created most often
+    private static final int cachedIntegers = 1024;
+    private static final int cachedDenominators = 12;
+    private static final int cachedFractionRange = 4;
+    private static final NodeRational[] integers = new NodeRational[2 * cachedIntegers + 1];
+    private static final NodeRational[][] fractions = new NodeRational[cachedDenominators + 1][];
+
+    static {
+        for (int i = 0; i < integers.length; i++) {
+            integers[i] = new NodeRational(i - cachedIntegers, 1, null);
+        }
+
+        for (int d = 2; d <= cachedDenominators; d++) {
+            int range = cachedFractionRange * d;
+            fractions[d] = new NodeRational[2 * range + 1];
+            for (int n = -range; n <= range; n++) {
+                if (gcd(Math.abs(n), d) == 1)
+                    fractions[d][n + range] = new NodeRational(n, d, null);
+            }
+        }
+    }
+
+    // in lowest terms with a positive denominator, only used when big is null
+    private final long numerator;
+    private final long denominator;
+    private final BigRational big;
+
+    // created on request for fractions held as longs
+    private BigRational value;
+
+    private NodeRational(long numerator, long denominator, BigRational big) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.big = big;
+        this.value = big;
+    }
+
+    NodeRational(BigRational rational) {
+        BigInteger num = rational.getNumerator();
+        BigInteger den = rational.getDenominator();
+
+        if (fitsInLong(num) && fitsInLong(den)) {
+            this.numerator = num.longValue();
+            this.denominator = den.longValue();
+            this.big = null;
+        } else {
+            this.numerator = 0;
+            this.denominator = 1;
+            this.big = rational;
+            this.value = rational;
+        }
+    }
+
+    NodeRational(long numerator, long denominator) {
+        this(valueOf(numerator, denominator));
     }
 
     public NodeRational(double value) {
-        this.value = new BigRational(value, epsilon, maxIterations);
+        this(new BigRational(value, epsilon, maxIterations));
     }
 
     public NodeRational(int numerator, int denominator) {
-        this.value = new BigRational(numerator, denominator);
+        this((long) numerator, denominator);
+    }
+
+    private NodeRational(NodeRational other) {
+        this(other.numerator, other.denominator, other.big);
+    }
+
+    private static boolean fitsInLong(BigInteger value) {
+        return value.bitLength() < 64 && value.longValue() != Long.MIN_VALUE;
+    }
+
+    /**
+     * Get a rational, which is a shared instance for small integers and common fractions
+     *
+     * @param numerator   The numerator
+     * @param denominator The denominator
+     * @return The rational in lowest terms
+     */
+    static NodeRational valueOf(long numerator, long denominator) {
+        // the sign of either can't be changed as a long
+        if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE || denominator == 0)
+            return valueOf(new BigRational(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator)));
+
+        long gcd = gcd(Math.abs(numerator), Math.abs(denominator));
+        if (denominator < 0)
+            gcd = -gcd;
+        return reduced(numerator / gcd, denominator / gcd);
+    }
+
+    static NodeRational valueOf(BigRational rational) {
+        BigInteger num = rational.getNumerator();
+        BigInteger den = rational.getDenominator();
+
+        if (fitsInLong(num) && fitsInLong(den))
+            return reduced(num.longValue(), den.longValue());
+        return new NodeRational(rational);
+    }
+
+    private static NodeRational reduced(long numerator, long denominator) {
+        if (denominator == 1) {
+            if (Math.abs(numerator) <= cachedIntegers)
+                return integers[(int) numerator + cachedIntegers];
+        } else if (denominator <= cachedDenominators && Math.abs(numerator) <= cachedFractionRange * denominator) {
+            return fractions[(int) denominator][(int) (numerator + cachedFractionRange * denominator)];
+        }
+        return new NodeRational(numerator, denominator, null);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    void addTo(RationalAccumulator accumulator) {
+        if (big == null)
+            accumulator.add(numerator, denominator);
+        else
+            accumulator.add(big);
     }
 
     public BigRational getValue() {
-        return this.value;
+        BigRational value = this.value;
+        if (value == null) {
+            value = new BigRational(numerator, denominator);
+            this.value = value;
+        }
+        return value;
     }
 
     @Override
     public double doubleValue() {
-        return value.doubleValue();
+        return big == null ? (double) numerator / denominator : big.doubleValue();
     }
 
     @Override
     public NodeNumber add(NodeNumber arg2) {
-        if (arg2 instanceof NodeRational)
-            return new NodeRational(value.add(((NodeRational) arg2).value));
-        else if (arg2 instanceof NodePercent)
-            return new NodeRational(value.multiply(BigRational.ONE.add(new BigRational(arg2.doubleValue()))));
+        if (arg2 instanceof NodeRational) {
+            NodeRational other = (NodeRational) arg2;
+            if (big == null && other.big == null) {
+                try {
+                    long gcd = gcd(denominator, other.denominator);
+                    long scale = denominator / gcd;
+                    return valueOf(
+                            Math.addExact(Math.multiplyExact(numerator, other.denominator / gcd), Math.multiplyExact(other.numerator, scale)),
+                            Math.multiplyExact(scale, other.denominator));
+                } catch (ArithmeticException e) {
+                    // overflowed a long
+                }
+            }
+            return valueOf(getValue().add(other.getValue()));
+        } else if (arg2 instanceof NodePercent)
+            return valueOf(getValue().multiply(BigRational.ONE.add(new BigRational(arg2.doubleValue()))));
         else
             return new NodeDouble(doubleValue() + arg2.doubleValue());
     }
@@ -44,7 +181,15 @@ public final class NodeRational extends NodeNumber {
     @Override
     public int compareTo(NodeConstant o) {
         if (o instanceof NodeRational) {
-            return value.compareTo(((NodeRational) o).getValue());
+            NodeRational other = (NodeRational) o;
+            if (big == null && other.big == null) {
+                try {
+                    return Long.compare(Math.multiplyExact(numerator, other.denominator), Math.multiplyExact(other.numerator, denominator));
+                } catch (ArithmeticException e) {
+                    // overflowed a long
+                }
+            }
+            return getValue().compareTo(other.getValue());
         } else {
             return new NodeDouble(doubleValue()).compareTo(o);
         }
@@ -52,41 +197,105 @@ public final class NodeRational extends NodeNumber {
 
     @Override
     public NodeNumber divide(NodeNumber arg2) {
-        if (arg2 instanceof NodeRational)
-            return new NodeRational(value.divide(((NodeRational) arg2).value));
-        else if (arg2 instanceof NodePercent)
-            return new NodeRational(value.divide(new BigRational(arg2.doubleValue())));
+        if (arg2 instanceof NodeRational) {
+            NodeRational other = (NodeRational) arg2;
+            // division by zero is reported by BigRational
+            if (big == null && other.big == null && other.numerator != 0) {
+                long sign = other.numerator < 0 ? -1 : 1;
+                NodeNumber result = multiply(numerator, denominator, sign * other.denominator, sign * other.numerator);
+                if (result != null)
+                    return result;
+            }
+            return valueOf(getValue().divide(other.getValue()));
+        } else if (arg2 instanceof NodePercent)
+            return valueOf(getValue().divide(new BigRational(arg2.doubleValue())));
         else
             return new NodeDouble(doubleValue() / arg2.doubleValue());
     }
 
     @Override
     public NodeNumber multiply(NodeNumber arg2) {
-        if (arg2 instanceof NodeRational)
-            return new NodeRational(value.multiply(((NodeRational) arg2).value));
-        else if (arg2 instanceof NodePercent)
-            return new NodeRational(value.multiply(new BigRational(arg2.doubleValue())));
+        if (arg2 instanceof NodeRational) {
+            NodeRational other = (NodeRational) arg2;
+            if (big == null && other.big == null) {
+                NodeNumber result = multiply(numerator, denominator, other.numerator, other.denominator);
+                if (result != null)
+                    return result;
+            }
+            return valueOf(getValue().multiply(other.getValue()));
+        } else if (arg2 instanceof NodePercent)
+            return valueOf(getValue().multiply(new BigRational(arg2.doubleValue())));
         else
             return new NodeDouble(doubleValue() * arg2.doubleValue());
     }
 
+    // cancels before multiplying so that the result is already in lowest terms, null on overflow
+    private static NodeRational multiply(long n1, long d1, long n2, long d2) {
+        try {
+            long gcd1 = gcd(Math.abs(n1), d2);
+            long gcd2 = gcd(Math.abs(n2), d1);
+            return valueOf(Math.multiplyExact(n1 / gcd1, n2 / gcd2), Math.multiplyExact(d1 / gcd2, d2 / gcd1));
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
     @Override
     public NodeNumber pow(NodeNumber arg2) {
         double exp = arg2.doubleValue();
-        if (arg2 instanceof NodeRational && exp % 1.0 == 0)
-            return new NodeRational(value.pow((long) exp));
-        else if (arg2 instanceof NodePercent)
+        if (arg2 instanceof NodeRational && exp % 1.0 == 0) {
+            NodeRational result = big == null && numerator != 0 ? pow(numerator, denominator, exp) : null;
+            return result != null ? result : valueOf(getValue().pow((long) exp));
+        } else if (arg2 instanceof NodePercent)
             return new NodeDouble(doubleValue()).pow(arg2);
         else
             return new NodeDouble(Math.pow(doubleValue(), exp));
     }
 
+    // by squaring, null on overflow
+    private static NodeRational pow(long numerator, long denominator, double exp) {
+        // anything but 1 or -1 overflows
+        if (Math.abs(exp) > 64)
+            return null;
+
+        long exponent = (long) exp;
+        if (exponent < 0) {
+            long sign = numerator < 0 ? -1 : 1;
+            long n = numerator;
+            numerator = sign * denominator;
+            denominator = sign * n;
+            exponent = -exponent;
+        }
+
+        try {
+            long n = 1;
+            long d = 1;
+            while (exponent > 0) {
+                if ((exponent & 1) == 1) {
+                    n = Math.multiplyExact(n, numerator);
+                    d = Math.multiplyExact(d, denominator);
+                }
+                exponent >>= 1;
+                if (exponent > 0) {
+                    numerator = Math.multiplyExact(numerator, numerator);
+                    denominator = Math.multiplyExact(denominator, denominator);
+                }
+            }
+            return valueOf(n, d);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
     @Override
     public NodeNumber subtract(NodeNumber arg2) {
-        if (arg2 instanceof NodeRational)
-            return new NodeRational(value.subtract(((NodeRational) arg2).value));
-        else if (arg2 instanceof NodePercent)
-            return new NodeRational(value.multiply(BigRational.ONE.subtract(new BigRational(arg2.doubleValue()))));
+        if (arg2 instanceof NodeRational) {
+            NodeRational other = (NodeRational) arg2;
+            if (big == null && other.big == null)
+                return add(new NodeRational(-other.numerator, other.denominator, null));
+            return valueOf(getValue().subtract(other.getValue()));
+        } else if (arg2 instanceof NodePercent)
+            return valueOf(getValue().multiply(BigRational.ONE.subtract(new BigRational(arg2.doubleValue()))));
         else
             return new NodeDouble(doubleValue() - arg2.doubleValue());
     }
@@ -96,22 +305,43 @@ public final class NodeRational extends NodeNumber {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NodeRational that = (NodeRational) o;
-        return Objects.equals(value, that.value);
+        if (big == null && that.big == null)
+            return numerator == that.numerator && denominator == that.denominator;
+        return getValue().equals(that.getValue());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        if (big != null)
+            return 31 + big.hashCode();
+
+        // the same as the hash of the equivalent BigRational, without creating it
+        return 31 + 37 * (37 * 17 + hash(numerator)) + hash(denominator);
+    }
+
+    // BigInteger.hashCode of a long
+    private static int hash(long value) {
+        long magnitude = Math.abs(value);
+        int high = (int) (magnitude >>> 32);
+        int low = (int) magnitude;
+        int hash = high != 0 ? 31 * high + low : low;
+        return hash * Long.signum(value);
     }
 
     @Override
     public NodeRational copy() {
-        return new NodeRational(value);
+        return new NodeRational(this);
     }
 
     @Override
     public String toString() {
-        return value.toString();
+        if (big != null)
+            return big.toString();
+        else if (denominator == 1)
+            return Long.toString(numerator);
+        else if (numerator == 0)
+            return "0";
+        return numerator + "/" + denominator;
     }
 
 }
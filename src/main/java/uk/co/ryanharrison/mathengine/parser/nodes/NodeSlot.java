@@ -0,0 +1,62 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+import java.util.Objects;
+
+/**
+ * A variable which has been bound to an indexed slot when an expression was compiled.
+ * The value of the slot is supplied by the evaluator rather than looked up by name.
+ */
+public final class NodeSlot extends Node {
+
+    private String variable;
+    private int index;
+
+    public NodeSlot(String variable, int index) {
+        this.variable = variable;
+        this.index = index;
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(variable, index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NodeSlot that = (NodeSlot) o;
+        return index == that.index && Objects.equals(variable, that.variable);
+    }
+
+    @Override
+    public NodeSlot copy() {
+        return new NodeSlot(variable, index);
+    }
+
+    @Override
+    public NodeTransformer createTransformer() {
+        return new NodeSlotTransformer();
+    }
+
+    private class NodeSlotTransformer extends DefaultNodeTransformer {
+
+        @Override
+        public NodeNumber toNodeNumber() {
+            throw new UnsupportedOperationException("Cannot convert slot to a number");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return variable;
+    }
+}
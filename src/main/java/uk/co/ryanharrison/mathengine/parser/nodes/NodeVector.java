@@ -5,22 +5,45 @@ import uk.co.ryanharrison.mathengine.linearalgebra.Vector;
 
 import java.util.Arrays;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
+/**
+ * A vector of nodes. A vector whose elements are all doubles is held as a {@code double[]}, and
+ * nodes for its elements are only created if they are requested with {@link #getValues()}.
+ */
 public final class NodeVector extends NodeConstant implements NodeSet {
 
-    private Node[] values;
+    // created on request for a vector of doubles. Constants are shared between threads, so
+    // the nodes must be safely published to any thread which finds them set
+    private volatile Node[] values;
+
+    // the elements of a vector of doubles, otherwise null
+    private final double[] doubles;
 
     public NodeVector(Node[] values) {
         this.values = values;
+        this.doubles = null;
+    }
+
+    public NodeVector(double[] values) {
+        this.doubles = values;
     }
 
     public NodeVector(Vector v) {
-        values = new NodeDouble[v.getSize()];
+        this(v.getElements().clone());
+    }
 
+    // a vector of doubles if every value is a double
+    private static NodeVector of(Node[] values) {
+        double[] doubles = new double[values.length];
         for (int i = 0; i < values.length; i++) {
-            values[i] = new NodeDouble(v.get(i));
+            if (values[i] == null || values[i].getClass() != NodeDouble.class)
+                return new NodeVector(values);
+            doubles[i] = ((NodeDouble) values[i]).doubleValue();
         }
+        return new NodeVector(doubles);
     }
 
     @Override
@@ -39,19 +62,56 @@ public final class NodeVector extends NodeConstant implements NodeSet {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NodeVector that = (NodeVector) o;
-        return Arrays.equals(values, that.values);
+        if (doubles != null && that.doubles != null)
+            return Arrays.equals(doubles, that.doubles);
+        return Arrays.equals(getValues(), that.getValues());
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(values);
+        // the same as the hash of the equivalent NodeDouble array
+        return doubles != null ? Arrays.hashCode(doubles) : Arrays.hashCode(values);
     }
 
     public int getSize() {
-        return values.length;
+        return doubles != null ? doubles.length : values.length;
+    }
+
+    /**
+     * Whether the elements are all doubles held in a {@code double[]}
+     *
+     * @return True if the elements are held as doubles
+     */
+    public boolean isDense() {
+        return doubles != null;
+    }
+
+    /**
+     * Get the values of the elements, which are shared with this node for a vector of doubles so
+     * must not be modified
+     *
+     * @return The values
+     */
+    public double[] toDoubleArray() {
+        if (doubles != null)
+            return doubles;
+
+        double[] results = new double[values.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = values[i].getTransformer().toNodeNumber().doubleValue();
+        }
+        return results;
     }
 
     public Node[] getValues() {
+        Node[] values = this.values;
+        if (values == null) {
+            values = new Node[doubles.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = new NodeDouble(doubles[i]);
+            }
+            this.values = values;
+        }
         return values;
     }
 
@@ -62,7 +122,10 @@ public final class NodeVector extends NodeConstant implements NodeSet {
 
     @Override
     public NodeVector resolve(Function<Node, NodeConstant> func) {
-        return new NodeVector(Arrays.stream(values).map(func).toArray(Node[]::new));
+        // doubles are already constants
+        if (doubles != null)
+            return this;
+        return of(Arrays.stream(values).map(func).toArray(Node[]::new));
     }
 
     private class NodeVectorTransformer implements NodeTransformer {
@@ -74,24 +137,34 @@ public final class NodeVector extends NodeConstant implements NodeSet {
 
         @Override
         public NodeMatrix toNodeMatrix() {
-            return new NodeMatrix(new Node[][]{values});
+            return new NodeMatrix(new Node[][]{getValues()});
         }
 
         @Override
         public NodeNumber toNodeNumber() {
-            NodeNumber sum = NodeFactory.createZeroNumber();
-            for (NodeConstant constant : toNodeConstants()) {
-                sum = sum.add(constant.getTransformer().toNodeNumber());
+            if (doubles != null && doubles.length > 0) {
+                // adding a double to zero gives a double, as does every addition after it
+                double sum = 0.0;
+                for (double value : doubles) {
+                    sum += value;
+                }
+                return new NodeDouble(sum);
+            }
+
+            NumberSum sum = new NumberSum();
+            for (Node value : getValues()) {
+                sum.add(value.getTransformer().toNodeNumber());
             }
-            return sum;
+            return sum.getSum();
         }
     }
 
     public NodeVector copy() {
-        return new NodeVector(values.clone());
+        return doubles != null ? new NodeVector(doubles.clone()) : new NodeVector(values.clone());
     }
 
     public NodeConstant[] toNodeConstants() {
+        Node[] values = getValues();
         NodeConstant[] results = new NodeConstant[values.length];
         for (int i = 0; i < results.length; i++) {
             results[i] = (NodeConstant) values[i];
@@ -99,67 +172,166 @@ public final class NodeVector extends NodeConstant implements NodeSet {
         return results;
     }
 
-    private void normalizeVectorSizes(NodeVector b) {
-        if (this.values.length == b.values.length)
-            return;
-
-        int thisLength = this.values.length;
-        int otherLength = b.values.length;
-
-        int longest = Math.max(thisLength, otherLength);
-
-        Node[] results = new Node[longest];
-
-        if (thisLength != longest) {
-            if (thisLength == 1) {
-                Arrays.fill(results, 0, longest, values[0]);
-            } else {
-                System.arraycopy(values, 0, results, 0, thisLength);
-                Arrays.fill(results, thisLength, longest, NodeFactory.createZeroNumber());
-            }
-            this.values = results;
-        } else {
-            if (b.values.length == 1) {
-                Arrays.fill(results, 0, longest, b.values[0]);
-            } else {
-                System.arraycopy(b.values, 0, results, 0, otherLength);
-                Arrays.fill(results, otherLength, longest, NodeFactory.createZeroNumber());
-            }
-            b.values = results;
-        }
+    /**
+     * Get the index of the element of an operand which is used at an index of the result when
+     * the operand is broadcast to a larger size. A single element is repeated, and elements past
+     * the end of the operand are zero.
+     *
+     * @param index The index in the result
+     * @param size  The size of the operand
+     * @param resultSize The size of the result
+     * @return The index in the operand, or -1 for zero
+     */
+    static int broadcastIndex(int index, int size, int resultSize) {
+        if (size == resultSize)
+            return index;
+        else if (size == 1)
+            return 0;
+        return index < size ? index : -1;
     }
 
     @Override
     public NodeVector applyBiFunc(NodeConstant b, BiFunction<NodeNumber, NodeNumber, NodeConstant> func) {
-        NodeVector arg2 = b.getTransformer().toNodeVector();
-        normalizeVectorSizes(arg2);
-
-        NodeConstant[] results = new NodeConstant[values.length];
-
-        for (int i = 0; i < values.length; i++) {
-            results[i] = func.apply(this.values[i].getTransformer().toNodeNumber(), arg2.values[i].getTransformer().toNodeNumber());
+        Node[] values1 = getValues();
+        Node[] values2 = b.getTransformer().toNodeVector().getValues();
+
+        // either operand may be a constant shared between evaluations, so is broadcast in place
+        int length = Math.max(values1.length, values2.length);
+        NodeNumber zero = NodeFactory.createZeroNumber();
+        NodeConstant[] results = new NodeConstant[length];
+
+        for (int i = 0; i < length; i++) {
+            int i1 = broadcastIndex(i, values1.length, length);
+            int i2 = broadcastIndex(i, values2.length, length);
+            results[i] = func.apply(i1 < 0 ? zero : values1[i1].getTransformer().toNodeNumber(),
+                    i2 < 0 ? zero : values2[i2].getTransformer().toNodeNumber());
         }
 
-        return new NodeVector(results);
+        return of(results);
     }
 
     @Override
     public NodeVector applyUniFunc(Function<NodeNumber, NodeConstant> func) {
+        Node[] values = getValues();
         NodeConstant[] results = new NodeConstant[values.length];
 
         for (int i = 0; i < values.length; i++) {
             if (values[i] instanceof NodeNumber) {
-                results[i] = func.apply(this.values[i].getTransformer().toNodeNumber());
+                results[i] = func.apply(values[i].getTransformer().toNodeNumber());
             } else {
                 results[i] = ((NodeConstant) values[i]).applyUniFunc(func);
             }
         }
 
+        return of(results);
+    }
+
+    @Override
+    public NodeVector applyDoubleFunc(DoubleUnaryOperator func) {
+        if (doubles == null)
+            return null;
+
+        double[] results = new double[doubles.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = func.applyAsDouble(doubles[i]);
+        }
+
+        if (NodeFactory.areDoubles(results))
+            return new NodeVector(results);
+
+        Node[] nodes = new Node[results.length];
+        for (int i = 0; i < results.length; i++) {
+            nodes[i] = NodeFactory.createNodeNumberFrom(results[i]);
+        }
+        return new NodeVector(nodes);
+    }
+
+    /**
+     * Apply a function of two doubles elementwise without creating a node for each element,
+     * giving the same result as {@link #applyBiFunc(NodeConstant, BiFunction)} with the
+     * equivalent function of two numbers. Vectors of different sizes are resized in the same way.
+     *
+     * @param a    The first operand
+     * @param b    The second operand
+     * @param func The function, which must match the function of two numbers when either is a
+     *             double
+     * @return The results, or null if neither operand is a vector of doubles or either operand
+     * isn't a number or vector of numbers which aren't percentages
+     */
+    public static NodeVector applyDoubleBiFunc(NodeConstant a, NodeConstant b, DoubleBinaryOperator func) {
+        boolean aDoubles = a instanceof NodeVector && ((NodeVector) a).doubles != null;
+        boolean bDoubles = b instanceof NodeVector && ((NodeVector) b).doubles != null;
+        if (!aDoubles && !bDoubles)
+            return null;
+
+        double[] x = toDoubles(a);
+        double[] y = toDoubles(b);
+        if (x == null || y == null)
+            return null;
+
+        int length = Math.max(x.length, y.length);
+
+        // the padding is a rational zero, so only gives doubles if the longer operand holds doubles
+        if (x.length != y.length && Math.min(x.length, y.length) != 1 && (x.length < y.length ? !bDoubles : !aDoubles))
+            return null;
+
+        double[] results = new double[length];
+
+        if (x.length == y.length) {
+            for (int i = 0; i < length; i++) {
+                results[i] = func.applyAsDouble(x[i], y[i]);
+            }
+        } else if (x.length == 1 && y.length > 1) {
+            for (int i = 0; i < length; i++) {
+                results[i] = func.applyAsDouble(x[0], y[i]);
+            }
+        } else if (y.length == 1 && x.length > 1) {
+            for (int i = 0; i < length; i++) {
+                results[i] = func.applyAsDouble(x[i], y[0]);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                results[i] = func.applyAsDouble(i < x.length ? x[i] : 0.0, i < y.length ? y[i] : 0.0);
+            }
+        }
+
         return new NodeVector(results);
     }
 
+    // the values of a number or a vector of numbers, null for anything else or a percentage
+    private static double[] toDoubles(NodeConstant constant) {
+        if (constant instanceof NodeNumber) {
+            return constant instanceof NodePercent ? null : new double[]{((NodeNumber) constant).doubleValue()};
+        } else if (!(constant instanceof NodeVector)) {
+            return null;
+        }
+
+        NodeVector vector = (NodeVector) constant;
+        if (vector.doubles != null)
+            return vector.doubles;
+
+        Node[] values = vector.values;
+        double[] results = new double[values.length];
+        for (int i = 0; i < results.length; i++) {
+            Node value = values[i];
+            if (!(value instanceof NodeNumber) || value instanceof NodePercent)
+                return null;
+            results[i] = ((NodeNumber) value).doubleValue();
+        }
+        return results;
+    }
+
     @Override
     public String toString() {
+        if (doubles != null) {
+            StringBuilder builder = new StringBuilder("{ ");
+            for (int i = 0; i < doubles.length; i++) {
+                if (i > 0)
+                    builder.append(", ");
+                builder.append(doubles[i]);
+            }
+            return builder.append(" }").toString();
+        }
         return "{ " + StringUtils.join(values, ", ") + " }";
     }
 }
@@ -0,0 +1,31 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+import uk.co.ryanharrison.mathengine.RationalAccumulator;
+
+/**
+ * Adds numbers in order, starting from zero, giving the same result as folding them with
+ * {@link NodeNumber#add(NodeNumber)}. While every number is rational they are added to a
+ * {@link RationalAccumulator} rather than creating a reduced fraction for each partial sum.
+ */
+public final class NumberSum {
+
+    private final RationalAccumulator rationals = new RationalAccumulator();
+
+    // the sum once a number which is not rational has been added
+    private NodeNumber sum;
+
+    public NumberSum add(NodeNumber number) {
+        if (sum == null && number instanceof NodeRational) {
+            ((NodeRational) number).addTo(rationals);
+        } else {
+            if (sum == null)
+                sum = NodeRational.valueOf(rationals.toBigRational());
+            sum = sum.add(number);
+        }
+        return this;
+    }
+
+    public NodeNumber getSum() {
+        return sum != null ? sum : NodeRational.valueOf(rationals.toBigRational());
+    }
+}
@@ -0,0 +1,234 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Orders the elements of vectors in the same way as sorting them with
+ * {@link NodeConstant#compareTo(NodeConstant)}.
+ * <p>
+ * A vector of doubles is sorted as a {@code double[]}. Numbers, vectors and matrices otherwise
+ * compare by their value or the sum of their elements, so each element's value is computed once
+ * and the elements are sorted by it, comparing fractions exactly only when their values are equal.
+ * The smallest or largest elements are found by partitioning around them rather than sorting
+ * the whole vector.
+ */
+public final class VectorOrdering {
+
+    // below this the overhead of sorting in parallel outweighs the gain
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private VectorOrdering() {
+    }
+
+    /**
+     * Sort the elements of a vector into ascending order
+     *
+     * @param vector The vector
+     * @return A new vector of the sorted elements
+     */
+    public static NodeVector sort(NodeVector vector) {
+        if (vector.isDense()) {
+            double[] values = vector.toDoubleArray().clone();
+            if (values.length >= PARALLEL_THRESHOLD)
+                Arrays.parallelSort(values);
+            else
+                Arrays.sort(values);
+            return new NodeVector(values);
+        }
+
+        Keyed[] keyed = toKeyed(vector);
+        if (keyed == null)
+            return new NodeVector(sortNodes(vector));
+
+        if (keyed.length >= PARALLEL_THRESHOLD)
+            Arrays.parallelSort(keyed, ORDER);
+        else
+            Arrays.sort(keyed, ORDER);
+        return toVector(keyed, 0, keyed.length, false);
+    }
+
+    /**
+     * Get the smallest elements of a vector, the same as the start of the sorted vector
+     *
+     * @param vector The vector
+     * @param count  The number of elements, which is reduced to the size of the vector
+     * @return A new vector of the smallest elements in ascending order
+     */
+    public static NodeVector smallest(NodeVector vector, int count) {
+        int size = vector.getSize();
+        count = Math.min(count, size);
+        if (count == size)
+            return sort(vector);
+
+        if (vector.isDense()) {
+            double[] values = vector.toDoubleArray().clone();
+            if (count > 0)
+                StatUtils.select(values, count - 1);
+            Arrays.sort(values, 0, count);
+            return new NodeVector(Arrays.copyOf(values, count));
+        }
+
+        Keyed[] keyed = toKeyed(vector);
+        if (keyed == null)
+            return new NodeVector(Arrays.copyOf(sortNodes(vector), count));
+
+        if (count > 0)
+            select(keyed, count - 1);
+        Arrays.sort(keyed, 0, count, ORDER);
+        return toVector(keyed, 0, count, false);
+    }
+
+    /**
+     * Get the largest elements of a vector, the same as the start of the reversed sorted vector
+     *
+     * @param vector The vector
+     * @param count  The number of elements, which is reduced to the size of the vector
+     * @return A new vector of the largest elements in descending order
+     */
+    public static NodeVector largest(NodeVector vector, int count) {
+        int size = vector.getSize();
+        count = Math.min(count, size);
+        int from = size - count;
+
+        if (vector.isDense()) {
+            double[] values = vector.toDoubleArray().clone();
+            if (count > 0)
+                StatUtils.select(values, from);
+            Arrays.sort(values, from, size);
+
+            double[] results = new double[count];
+            for (int i = 0; i < count; i++) {
+                results[i] = values[size - 1 - i];
+            }
+            return new NodeVector(results);
+        }
+
+        Keyed[] keyed = toKeyed(vector);
+        if (keyed == null) {
+            Node[] sorted = sortNodes(vector);
+            Node[] results = new Node[count];
+            for (int i = 0; i < count; i++) {
+                results[i] = sorted[size - 1 - i];
+            }
+            return new NodeVector(results);
+        }
+
+        if (count > 0)
+            select(keyed, from);
+        Arrays.sort(keyed, from, size, ORDER);
+        return toVector(keyed, from, size, true);
+    }
+
+    /**
+     * Get the element of a vector at an index once it is sorted
+     *
+     * @param vector The vector
+     * @param index  The index, starting from zero for the smallest element
+     * @return The element
+     */
+    public static NodeConstant nth(NodeVector vector, int index) {
+        if (index < 0 || index >= vector.getSize())
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range for a vector of size " + vector.getSize());
+
+        if (vector.isDense()) {
+            double[] values = vector.toDoubleArray().clone();
+            StatUtils.select(values, index);
+            return new NodeDouble(values[index]);
+        }
+
+        Keyed[] keyed = toKeyed(vector);
+        if (keyed == null)
+            return (NodeConstant) sortNodes(vector)[index];
+
+        select(keyed, index);
+        return keyed[index].node;
+    }
+
+    // an element with the value it is compared by
+    private static final class Keyed {
+        final NodeConstant node;
+        final double key;
+        final int index;
+
+        Keyed(NodeConstant node, double key, int index) {
+            this.node = node;
+            this.key = key;
+            this.index = index;
+        }
+    }
+
+    // the order of compareTo, with equal elements kept in their original order
+    private static final Comparator<Keyed> ORDER = (a, b) -> {
+        int result = Double.compare(a.key, b.key);
+        // only fractions compare more finely than their double values
+        if (result == 0 && a.node instanceof NodeRational && b.node instanceof NodeRational)
+            result = a.node.compareTo(b.node);
+        return result != 0 ? result : Integer.compare(a.index, b.index);
+    };
+
+    // null if an element doesn't compare by its value
+    private static Keyed[] toKeyed(NodeVector vector) {
+        Node[] values = vector.getValues();
+        Keyed[] results = new Keyed[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Node value = values[i];
+            if (!(value instanceof NodeNumber) && !(value instanceof NodeVector) && !(value instanceof NodeMatrix))
+                return null;
+            results[i] = new Keyed((NodeConstant) value, value.getTransformer().toNodeNumber().doubleValue(), i);
+        }
+        return results;
+    }
+
+    private static NodeVector toVector(Keyed[] keyed, int from, int to, boolean reversed) {
+        Node[] results = new Node[to - from];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = keyed[reversed ? to - 1 - i : from + i].node;
+        }
+        return new NodeVector(results);
+    }
+
+    private static Node[] sortNodes(NodeVector vector) {
+        Node[] results = vector.getValues().clone();
+        Arrays.sort(results);
+        return results;
+    }
+
+    // the same partial sort as StatUtils.select
+    private static void select(Keyed[] values, int k) {
+        int lo = 0;
+        int hi = values.length - 1;
+        while (lo < hi) {
+            Keyed pivot = median(values[lo], values[(lo + hi) >>> 1], values[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (ORDER.compare(values[i], pivot) < 0) i++;
+                while (ORDER.compare(values[j], pivot) > 0) j--;
+                if (i <= j) {
+                    Keyed t = values[i];
+                    values[i++] = values[j];
+                    values[j--] = t;
+                }
+            }
+
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private static Keyed median(Keyed a, Keyed b, Keyed c) {
+        if (ORDER.compare(a, b) > 0) {
+            Keyed t = a;
+            a = b;
+            b = t;
+        }
+        return ORDER.compare(b, c) <= 0 ? b : ORDER.compare(a, c) >= 0 ? a : c;
+    }
+}
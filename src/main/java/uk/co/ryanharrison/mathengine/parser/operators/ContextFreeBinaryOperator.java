@@ -0,0 +1,18 @@
+package uk.co.ryanharrison.mathengine.parser.operators;
+
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+
+/**
+ * A binary operator whose result depends only on its arguments, so can also be applied outside of
+ * an evaluation
+ */
+public abstract class ContextFreeBinaryOperator extends BinaryOperator {
+
+    protected abstract NodeConstant toResult(NodeConstant arg1, NodeConstant arg2);
+
+    @Override
+    public final NodeConstant toResult(EvaluationContext context, NodeConstant arg1, NodeConstant arg2) {
+        return toResult(arg1, arg2);
+    }
+}
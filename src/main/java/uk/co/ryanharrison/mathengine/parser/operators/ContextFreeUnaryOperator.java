@@ -0,0 +1,18 @@
+package uk.co.ryanharrison.mathengine.parser.operators;
+
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+
+/**
+ * A unary operator whose result depends only on its argument, so can also be applied outside of
+ * an evaluation
+ */
+public abstract class ContextFreeUnaryOperator extends UnaryOperator {
+
+    protected abstract NodeConstant toResult(NodeConstant arg1);
+
+    @Override
+    public final NodeConstant toResult(EvaluationContext context, NodeConstant arg1) {
+        return toResult(arg1);
+    }
+}
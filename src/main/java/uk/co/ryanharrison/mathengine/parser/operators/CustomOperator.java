@@ -3,9 +3,6 @@ package uk.co.ryanharrison.mathengine.parser.operators;
 import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
 import uk.co.ryanharrison.mathengine.parser.nodes.*;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class CustomOperator extends UnaryOperator {
 
     private NodeFunction function;
@@ -34,27 +31,19 @@ public class CustomOperator extends UnaryOperator {
     }
 
     @Override
-    public NodeConstant toResult(NodeConstant arg1) {
+    public NodeConstant toResult(EvaluationContext context, NodeConstant arg1) {
+        // calls use the latest definition so that a function can call itself
+        NodeFunction latest = context.getFunction(toString());
+        NodeFunction function = latest != null ? latest : this.function;
+
         int argNum = function.getArgNum();
-        EvaluationContext context = getEvaluationContext();
         if (arg1 instanceof NodeNumber) {
-            if (argNum == 1) {
-                Map<String, NodeConstant> args = Map.of(function.getVariables()[0], arg1);
-                return context.evaluateFunc(function.getNode(), args);
-            }
+            if (argNum == 1)
+                return context.evaluateFunc(function, arg1);
         } else if (arg1 instanceof NodeVector) {
             NodeVector vector = (NodeVector) arg1;
-            if (vector.getSize() == argNum) {
-
-                Node[] nodes = vector.getValues();
-                String[] vars = function.getVariables();
-                Map<String, NodeConstant> args = new HashMap<>();
-                for (int i = 0; i < vars.length; i++) {
-                    args.put(vars[i], (NodeConstant) nodes[i]);
-                }
-
-                return context.evaluateFunc(function.getNode(), args);
-            }
+            if (vector.getSize() == argNum)
+                return context.evaluateFunc(function, vector.toNodeConstants());
         }
 
         throw new IllegalArgumentException("Expected " + argNum + " arguments");
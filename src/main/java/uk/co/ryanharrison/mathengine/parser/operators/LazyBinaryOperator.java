@@ -0,0 +1,16 @@
+package uk.co.ryanharrison.mathengine.parser.operators;
+
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+
+import java.util.function.Function;
+
+/**
+ * A binary operator which is given its arguments unevaluated, so that it evaluates only
+ * the arguments which are needed for the result
+ */
+public interface LazyBinaryOperator {
+
+    NodeConstant toResult(EvaluationContext context, Node arg1, Node arg2, Function<Node, NodeConstant> evaluator);
+}
@@ -0,0 +1,16 @@
+package uk.co.ryanharrison.mathengine.parser.operators;
+
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+
+import java.util.function.Function;
+
+/**
+ * A unary operator which is given its argument unevaluated, so that it evaluates only
+ * the parts of it which are needed for the result
+ */
+public interface LazyUnaryOperator {
+
+    NodeConstant toResult(EvaluationContext context, Node arg1, Function<Node, NodeConstant> evaluator);
+}
@@ -1,15 +1,12 @@
 package uk.co.ryanharrison.mathengine.parser.operators;
 
-import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
-
+/**
+ * Operators hold no evaluation state and a single instance is shared by every evaluation
+ * of an evaluator. Anything an operator needs from the evaluation is passed to it
+ * explicitly through the {@link uk.co.ryanharrison.mathengine.parser.EvaluationContext}.
+ */
 public abstract class Operator {
 
-    protected EvaluationContext evaluationContext;
-
-    protected EvaluationContext getEvaluationContext() {
-        return evaluationContext;
-    }
-
     public abstract String[] getAliases();
 
     // TODO : Implement correct precedence structure for all operators
@@ -101,6 +101,17 @@ public class OperatorProvider
 		operators.add(new Sort());
 		operators.add(new Sum());
 		operators.add(new Reverse());
+		operators.add(new TopK());
+		operators.add(new BottomK());
+		operators.add(new Nth());
+		operators.add(new Mean());
+		operators.add(new Median());
+		operators.add(new Percentile());
+		operators.add(new Variance());
+		operators.add(new StandardDeviation());
+		operators.add(new Min());
+		operators.add(new Max());
+		operators.add(new Product());
 
 		return operators;
 	}
@@ -3,12 +3,14 @@ package uk.co.ryanharrison.mathengine.parser.operators;
 import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 
+/**
+ * An operator of one argument. Operators whose result depends only on their argument extend
+ * {@link ContextFreeUnaryOperator}
+ */
 public abstract class UnaryOperator extends Operator {
 
-    protected abstract NodeConstant toResult(NodeConstant arg1);
-
-    public NodeConstant toResult(EvaluationContext context, NodeConstant arg1) {
-        this.evaluationContext = context;
-        return toResult(arg1);
-    }
+    /**
+     * Apply this operator within an evaluation
+     */
+    public abstract NodeConstant toResult(EvaluationContext context, NodeConstant arg1);
 }
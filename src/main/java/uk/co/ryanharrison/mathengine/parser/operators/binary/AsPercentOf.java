@@ -4,9 +4,9 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodePercent;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 
-public class AsPercentOf extends BinaryOperator
+public class AsPercentOf extends ContextFreeBinaryOperator
 {
 	@Override
 	public String[] getAliases()
@@ -0,0 +1,26 @@
+package uk.co.ryanharrison.mathengine.parser.operators.binary;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.nodes.VectorOrdering;
+
+/**
+ * The smallest elements of a vector in ascending order
+ */
+public class BottomK extends SelectionOperator {
+
+    @Override
+    protected NodeConstant select(NodeVector vector, int count) {
+        return VectorOrdering.smallest(vector, count);
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"bottomk"};
+    }
+
+    @Override
+    public String toString() {
+        return "bottomk";
+    }
+}
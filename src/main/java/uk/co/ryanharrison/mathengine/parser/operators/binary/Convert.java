@@ -4,11 +4,11 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeUnit;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 import uk.co.ryanharrison.mathengine.unitconversion.ConversionEngine;
 import uk.co.ryanharrison.mathengine.unitconversion.units.Conversion;
 
-public class Convert extends BinaryOperator
+public class Convert extends ContextFreeBinaryOperator
 {
 	@Override
 	public String[] getAliases()
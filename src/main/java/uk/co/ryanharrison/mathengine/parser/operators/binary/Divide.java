@@ -4,6 +4,7 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 public class Divide extends SimpleBinaryOperator {
     @Override
@@ -26,6 +27,11 @@ public class Divide extends SimpleBinaryOperator {
         return NodeNumber::divide;
     }
 
+    @Override
+    protected DoubleBinaryOperator getDoubleBiFunc() {
+        return (a, b) -> a / b;
+    }
+
     @Override
     public String toString() {
         return "/";
@@ -1,8 +1,10 @@
 package uk.co.ryanharrison.mathengine.parser.operators.binary;
 
+import uk.co.ryanharrison.mathengine.linearalgebra.Matrix;
 import uk.co.ryanharrison.mathengine.parser.nodes.*;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 public class Multiply extends SimpleBinaryOperator
 {
@@ -29,6 +31,11 @@ public class Multiply extends SimpleBinaryOperator
 		return NodeNumber::multiply;
 	}
 
+	@Override
+	protected DoubleBinaryOperator getDoubleBiFunc() {
+		return (a, b) -> a * b;
+	}
+
 	@Override
 	public NodeConstant toResult(NodeConstant arg1, NodeConstant arg2) {
 		if(arg1 instanceof NodeMatrix && arg2 instanceof NodeMatrix) {
@@ -49,6 +56,9 @@ public class Multiply extends SimpleBinaryOperator
 		}
 
 		int size = a.rowCount();
+		if (a.isDense() && b.isDense() && size > 0 && size == a.colCount())
+			return matrixMultiply(a.toDoubleMatrix().getElements(), b.toDoubleMatrix().getElements());
+
 		Node[][] aValues = a.getValues();
 		Node[][] bValues = b.getValues();
 
@@ -60,15 +70,37 @@ public class Multiply extends SimpleBinaryOperator
 			}
 			for (int i = 0; i < size; i++) {
 				Node[] Arowi = aValues[i];
-				NodeNumber s = NodeFactory.createZeroNumber();
+				NumberSum s = new NumberSum();
 				for (int k = 0; k < size; k++) {
-					s = s.add(Arowi[k].getTransformer().toNodeNumber()
+					s.add(Arowi[k].getTransformer().toNodeNumber()
 							.multiply(Bcolj[k].getTransformer().toNodeNumber()));
 				}
 
-				values[i][j] = s;
+				values[i][j] = s.getSum();
 			}
 		}
 		return new NodeMatrix(values);
 	}
+
+	// the same sums of doubles as adding the products as nodes
+	private static NodeMatrix matrixMultiply(double[][] a, double[][] b) {
+		int size = a.length;
+		Matrix result = new Matrix(size, size);
+		double[][] values = result.getElements();
+		double[] Bcolj = new double[size];
+		for (int j = 0; j < size; j++) {
+			for (int k = 0; k < size; k++) {
+				Bcolj[k] = b[k][j];
+			}
+			for (int i = 0; i < size; i++) {
+				double[] Arowi = a[i];
+				double s = 0.0;
+				for (int k = 0; k < size; k++) {
+					s += Arowi[k] * Bcolj[k];
+				}
+				values[i][j] = s;
+			}
+		}
+		return new NodeMatrix(result);
+	}
 }
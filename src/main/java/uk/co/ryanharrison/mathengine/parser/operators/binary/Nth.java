@@ -0,0 +1,29 @@
+package uk.co.ryanharrison.mathengine.parser.operators.binary;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.nodes.VectorOrdering;
+
+/**
+ * The nth smallest element of a vector, counting from one
+ */
+public class Nth extends SelectionOperator {
+
+    @Override
+    protected NodeConstant select(NodeVector vector, int count) {
+        if (count < 1 || count > vector.getSize())
+            throw new IllegalArgumentException("Second argument must be between 1 and the size of the vector");
+
+        return VectorOrdering.nth(vector, count - 1);
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"nth"};
+    }
+
+    @Override
+    public String toString() {
+        return "nth";
+    }
+}
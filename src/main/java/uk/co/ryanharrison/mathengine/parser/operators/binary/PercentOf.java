@@ -3,11 +3,11 @@ package uk.co.ryanharrison.mathengine.parser.operators.binary;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 
 import java.util.function.BiFunction;
 
-public class PercentOf extends BinaryOperator
+public class PercentOf extends ContextFreeBinaryOperator
 {
 	@Override
 	public String[] getAliases()
@@ -0,0 +1,47 @@
+package uk.co.ryanharrison.mathengine.parser.operators.binary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
+
+/**
+ * A percentile of the elements of a vector, given as {@code vector percentile 0.9} or
+ * {@code vector percentile 90%}
+ */
+public class Percentile extends ContextFreeBinaryOperator {
+
+    @Override
+    public NodeConstant toResult(NodeConstant arg1, NodeConstant arg2) {
+        if (!(arg1 instanceof NodeVector) || ((NodeVector) arg1).getSize() == 0)
+            throw new IllegalArgumentException("First argument must be a non-empty vector");
+
+        if (!(arg2 instanceof NodeNumber))
+            throw new IllegalArgumentException("Second argument must be a number");
+
+        double[] values = ((NodeVector) arg1).toDoubleArray();
+        return NodeFactory.createNodeNumberFrom(StatUtils.percentile(values, ((NodeNumber) arg2).doubleValue()));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"percentile"};
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 3;
+    }
+
+    @Override
+    public String toLongString() {
+        return toString();
+    }
+
+    @Override
+    public String toString() {
+        return "percentile";
+    }
+}
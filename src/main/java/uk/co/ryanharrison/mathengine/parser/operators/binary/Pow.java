@@ -4,6 +4,7 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 public class Pow extends SimpleBinaryOperator
 {
@@ -30,6 +31,11 @@ public class Pow extends SimpleBinaryOperator
 		return NodeNumber::pow;
 	}
 
+	@Override
+	protected DoubleBinaryOperator getDoubleBiFunc() {
+		return Math::pow;
+	}
+
 	@Override
 	public String toString()
 	{
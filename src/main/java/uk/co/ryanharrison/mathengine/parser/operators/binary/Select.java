@@ -9,7 +9,7 @@ import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
 public class Select extends BinaryOperator {
 
     @Override
-    public NodeConstant toResult(NodeConstant arg1, NodeConstant arg2) {
+    public NodeConstant toResult(EvaluationContext context, NodeConstant arg1, NodeConstant arg2) {
         if (!(arg1 instanceof NodeVector))
             throw new IllegalArgumentException("First argument must be a vector");
 
@@ -22,12 +22,11 @@ public class Select extends BinaryOperator {
         if (selector.getVariables().length != 1)
             throw new IllegalArgumentException("Selector function must have one argument");
 
-        EvaluationContext context = getEvaluationContext();
         NodeConstant[] results = new NodeConstant[vector.getSize()];
         NodeConstant[] vecVals = vector.toNodeConstants();
 
         for (int i = 0; i < results.length; i++) {
-            results[i] = context.evaluateFunc(selector.getNode(), selector.createArgsFrom(vecVals[i]));
+            results[i] = context.evaluateFunc(selector, vecVals[i]);
         }
 
         return new NodeVector(results);
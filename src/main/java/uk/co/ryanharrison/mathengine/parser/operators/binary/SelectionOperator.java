@@ -0,0 +1,40 @@
+package uk.co.ryanharrison.mathengine.parser.operators.binary;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
+
+/**
+ * An operator which picks elements of a vector by their position once it is sorted, given as
+ * {@code vector op count}
+ */
+public abstract class SelectionOperator extends ContextFreeBinaryOperator {
+
+    protected abstract NodeConstant select(NodeVector vector, int count);
+
+    @Override
+    public NodeConstant toResult(NodeConstant arg1, NodeConstant arg2) {
+        if (!(arg1 instanceof NodeVector))
+            throw new IllegalArgumentException("First argument must be a vector");
+
+        if (!(arg2 instanceof NodeNumber))
+            throw new IllegalArgumentException("Second argument must be a number");
+
+        double count = ((NodeNumber) arg2).doubleValue();
+        if (count < 0 || count % 1 != 0)
+            throw new IllegalArgumentException("Second argument must be a non-negative integer");
+
+        return select((NodeVector) arg1, (int) Math.min(count, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 3;
+    }
+
+    @Override
+    public String toLongString() {
+        return toString();
+    }
+}
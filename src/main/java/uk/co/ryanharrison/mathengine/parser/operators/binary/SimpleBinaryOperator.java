@@ -3,14 +3,28 @@ package uk.co.ryanharrison.mathengine.parser.operators.binary;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeMatrix;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
-public abstract class SimpleBinaryOperator extends BinaryOperator {
+public abstract class SimpleBinaryOperator extends ContextFreeBinaryOperator {
 
     @Override
     public NodeConstant toResult(NodeConstant arg1, NodeConstant arg2) {
+        DoubleBinaryOperator doubleBiFunc = getDoubleBiFunc();
+        if (doubleBiFunc != null) {
+            NodeConstant result = null;
+            if (arg1 instanceof NodeMatrix || arg2 instanceof NodeMatrix)
+                result = NodeMatrix.applyDoubleBiFunc(arg1, arg2, doubleBiFunc);
+            else if (arg1 instanceof NodeVector || arg2 instanceof NodeVector)
+                result = NodeVector.applyDoubleBiFunc(arg1, arg2, doubleBiFunc);
+
+            if (result != null)
+                return result;
+        }
+
         BiFunction<NodeNumber, NodeNumber, NodeConstant> biFunc = getBiFunc();
 
         if (arg2 instanceof NodeNumber) {
@@ -26,4 +40,14 @@ public abstract class SimpleBinaryOperator extends BinaryOperator {
     }
 
     protected abstract BiFunction<NodeNumber, NodeNumber, NodeConstant> getBiFunc();
+
+    /**
+     * Get the function on doubles used for vectors and matrices of doubles, which must give the
+     * same result as {@link #getBiFunc()} when either argument is a double
+     *
+     * @return The function, or null if vectors and matrices of doubles are handled as any other
+     */
+    protected DoubleBinaryOperator getDoubleBiFunc() {
+        return null;
+    }
 }
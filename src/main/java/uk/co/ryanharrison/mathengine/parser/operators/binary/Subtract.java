@@ -4,6 +4,7 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 
 public class Subtract extends SimpleBinaryOperator
 {
@@ -30,6 +31,11 @@ public class Subtract extends SimpleBinaryOperator
 		return NodeNumber::subtract;
 	}
 
+	@Override
+	protected DoubleBinaryOperator getDoubleBiFunc() {
+		return (a, b) -> a - b;
+	}
+
 	@Override
 	public String toString()
 	{
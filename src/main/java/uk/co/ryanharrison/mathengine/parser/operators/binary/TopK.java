@@ -0,0 +1,26 @@
+package uk.co.ryanharrison.mathengine.parser.operators.binary;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.nodes.VectorOrdering;
+
+/**
+ * The largest elements of a vector in descending order
+ */
+public class TopK extends SelectionOperator {
+
+    @Override
+    protected NodeConstant select(NodeVector vector, int count) {
+        return VectorOrdering.largest(vector, count);
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"topk"};
+    }
+
+    @Override
+    public String toString() {
+        return "topk";
+    }
+}
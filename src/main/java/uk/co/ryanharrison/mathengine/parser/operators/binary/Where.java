@@ -13,7 +13,7 @@ import java.util.List;
 public class Where extends BinaryOperator {
 
     @Override
-    public NodeConstant toResult(NodeConstant arg1, NodeConstant arg2) {
+    public NodeConstant toResult(EvaluationContext context, NodeConstant arg1, NodeConstant arg2) {
         if (!(arg1 instanceof NodeVector))
             throw new IllegalArgumentException("First argument must be a vector");
 
@@ -28,10 +28,9 @@ public class Where extends BinaryOperator {
 
         List<NodeConstant> results = new ArrayList<>();
         NodeConstant[] vecVals = vector.toNodeConstants();
-        EvaluationContext context = getEvaluationContext();
 
         for (NodeConstant vecVal : vecVals) {
-            NodeConstant res = context.evaluateFunc(predicate.getNode(), predicate.createArgsFrom(vecVal));
+            NodeConstant res = context.evaluateFunc(predicate, vecVal);
 
             if (res.getTransformer().toNodeNumber().doubleValue() == 1.0) {
                 results.add(vecVal);
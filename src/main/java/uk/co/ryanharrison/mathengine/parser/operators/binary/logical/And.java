@@ -1,11 +1,16 @@
 package uk.co.ryanharrison.mathengine.parser.operators.binary.logical;
 
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeBoolean;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.LazyBinaryOperator;
 
-public class And extends BinaryOperator
+import java.util.function.Function;
+
+public class And extends ContextFreeBinaryOperator implements LazyBinaryOperator
 {
 	@Override
 	public String[] getAliases()
@@ -34,13 +39,25 @@ public class And extends BinaryOperator
 			{
 				boolean result = arg1.getTransformer().toNodeNumber().doubleValue() == 1 && arg2.getTransformer().toNodeNumber().doubleValue() == 1;
 
-				return new NodeBoolean(result);
+				return NodeBoolean.valueOf(result);
 			}
 		}
 
 		throw new IllegalArgumentException("Must have two logical arguments to operator 'and'");
 	}
 
+	@Override
+	public NodeConstant toResult(EvaluationContext context, Node arg1, Node arg2, Function<Node, NodeConstant> evaluator)
+	{
+		NodeConstant left = evaluator.apply(arg1);
+
+		// the second argument is not needed when the first decides the result
+		if (left instanceof NodeNumber && left.getTransformer().toNodeNumber().doubleValue() != 1)
+			return NodeBoolean.valueOf(false);
+
+		return toResult(left, evaluator.apply(arg2));
+	}
+
 	@Override
 	public String toString()
 	{
@@ -2,9 +2,9 @@ package uk.co.ryanharrison.mathengine.parser.operators.binary.logical;
 
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeBoolean;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 
-public class Equals extends BinaryOperator
+public class Equals extends ContextFreeBinaryOperator
 {
 	@Override
 	public String[] getAliases()
@@ -29,7 +29,7 @@ public class Equals extends BinaryOperator
 	{
 		boolean c = arg1.equals(arg2);
 
-		return new NodeBoolean(c);
+		return NodeBoolean.valueOf(c);
 	}
 
 	@Override
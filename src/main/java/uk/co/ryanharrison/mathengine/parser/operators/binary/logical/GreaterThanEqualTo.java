@@ -2,9 +2,9 @@ package uk.co.ryanharrison.mathengine.parser.operators.binary.logical;
 
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeBoolean;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 
-public class GreaterThanEqualTo extends BinaryOperator
+public class GreaterThanEqualTo extends ContextFreeBinaryOperator
 {
 	@Override
 	public String[] getAliases()
@@ -30,7 +30,7 @@ public class GreaterThanEqualTo extends BinaryOperator
 	{
 		int c = arg1.compareTo(arg2);
 
-		return new NodeBoolean(c >= 0);
+		return NodeBoolean.valueOf(c >= 0);
 	}
 
 	@Override
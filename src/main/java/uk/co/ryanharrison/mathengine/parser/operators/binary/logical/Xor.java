@@ -3,9 +3,9 @@ package uk.co.ryanharrison.mathengine.parser.operators.binary.logical;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeBoolean;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
-import uk.co.ryanharrison.mathengine.parser.operators.BinaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeBinaryOperator;
 
-public class Xor extends BinaryOperator
+public class Xor extends ContextFreeBinaryOperator
 {
 	@Override
 	public String[] getAliases()
@@ -34,7 +34,7 @@ public class Xor extends BinaryOperator
 			{
 				boolean result = arg1.getTransformer().toNodeNumber().doubleValue() == 1 ^ arg2.getTransformer().toNodeNumber().doubleValue() == 1;
 
-				return new NodeBoolean(result);
+				return NodeBoolean.valueOf(result);
 			}
 		}
 
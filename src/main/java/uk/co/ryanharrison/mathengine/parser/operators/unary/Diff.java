@@ -4,9 +4,9 @@ import uk.co.ryanharrison.mathengine.Function;
 import uk.co.ryanharrison.mathengine.differential.symbolic.Differentiator;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeFunction;
-import uk.co.ryanharrison.mathengine.parser.operators.UnaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeUnaryOperator;
 
-public class Diff extends UnaryOperator
+public class Diff extends ContextFreeUnaryOperator
 {
 	@Override
 	public NodeConstant toResult(NodeConstant arg1)
@@ -1,9 +1,14 @@
 package uk.co.ryanharrison.mathengine.parser.operators.unary;
 
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.operators.LazyUnaryOperator;
 
-public class If extends VectorOperator
+import java.util.function.Function;
+
+public class If extends VectorOperator implements LazyUnaryOperator
 {
 	@Override
 	protected NodeConstant calculateResultFromVector(NodeVector arg1)
@@ -14,6 +19,24 @@ public class If extends VectorOperator
 			return (NodeConstant) arg1.getValues()[2];
 	}
 	
+	@Override
+	public NodeConstant toResult(EvaluationContext context, Node arg1, Function<Node, NodeConstant> evaluator)
+	{
+		// only the branch which is taken is evaluated
+		if (arg1 instanceof NodeVector && ((NodeVector) arg1).getSize() == 3)
+		{
+			Node[] values = ((NodeVector) arg1).getValues();
+			NodeConstant condition = evaluator.apply(values[0]);
+
+			if (condition.getTransformer().toNodeNumber().doubleValue() == 1.0)
+				return evaluator.apply(values[1]);
+			else
+				return evaluator.apply(values[2]);
+		}
+
+		return toResult(context, evaluator.apply(arg1));
+	}
+
 	@Override
 	protected void fillAcceptedArguments()
 	{
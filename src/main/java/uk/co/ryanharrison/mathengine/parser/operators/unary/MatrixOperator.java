@@ -2,9 +2,9 @@ package uk.co.ryanharrison.mathengine.parser.operators.unary;
 
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeMatrix;
-import uk.co.ryanharrison.mathengine.parser.operators.UnaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeUnaryOperator;
 
-public abstract class MatrixOperator extends UnaryOperator
+public abstract class MatrixOperator extends ContextFreeUnaryOperator
 {
 	protected abstract NodeConstant calculateResultFromMatrix(NodeMatrix arg1);
 	
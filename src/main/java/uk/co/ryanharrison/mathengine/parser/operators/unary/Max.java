@@ -0,0 +1,28 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+public final class Max extends StatisticOperator {
+
+    @Override
+    protected NodeConstant calculate(NodeVector vector, double[] values) {
+        return elementAt(vector, values, StatUtils.indexOfMax(values));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"max", "maximum"};
+    }
+
+    @Override
+    public String toLongString() {
+        return "maximum";
+    }
+
+    @Override
+    public String toString() {
+        return "max";
+    }
+}
@@ -0,0 +1,29 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+public final class Mean extends StatisticOperator {
+
+    @Override
+    protected NodeConstant calculate(NodeVector vector, double[] values) {
+        return NodeFactory.createNodeNumberFrom(StatUtils.mean(values));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"mean", "average"};
+    }
+
+    @Override
+    public String toLongString() {
+        return "mean";
+    }
+
+    @Override
+    public String toString() {
+        return "mean";
+    }
+}
@@ -0,0 +1,30 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+public final class Median extends StatisticOperator {
+
+    @Override
+    protected NodeConstant calculate(NodeVector vector, double[] values) {
+        // a single selection rather than sorting
+        return NodeFactory.createNodeNumberFrom(StatUtils.median(values));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"median"};
+    }
+
+    @Override
+    public String toLongString() {
+        return "median";
+    }
+
+    @Override
+    public String toString() {
+        return "median";
+    }
+}
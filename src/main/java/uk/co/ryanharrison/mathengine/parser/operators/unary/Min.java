@@ -0,0 +1,28 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+public final class Min extends StatisticOperator {
+
+    @Override
+    protected NodeConstant calculate(NodeVector vector, double[] values) {
+        return elementAt(vector, values, StatUtils.indexOfMin(values));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"min", "minimum"};
+    }
+
+    @Override
+    public String toLongString() {
+        return "minimum";
+    }
+
+    @Override
+    public String toString() {
+        return "min";
+    }
+}
@@ -2,11 +2,12 @@ package uk.co.ryanharrison.mathengine.parser.operators.unary;
 
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
-import uk.co.ryanharrison.mathengine.parser.operators.UnaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeUnaryOperator;
 
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
-public abstract class NumberOperator extends UnaryOperator {
+public abstract class NumberOperator extends ContextFreeUnaryOperator {
 
     @Override
     public int getPrecedence() {
@@ -15,8 +16,27 @@ public abstract class NumberOperator extends UnaryOperator {
 
     @Override
     public NodeConstant toResult(NodeConstant arg1) {
+        DoubleUnaryOperator doubleFunc = getDoubleFunc();
+        if (doubleFunc != null) {
+            NodeConstant result = arg1.applyDoubleFunc(doubleFunc);
+            if (result != null)
+                return result;
+        }
+
         return arg1.applyUniFunc(getFunc());
     }
 
     protected abstract Function<NodeNumber, NodeConstant> getFunc();
+
+    /**
+     * Get the function on doubles used for vectors and matrices of doubles. Its result,
+     * normalized by
+     * {@link uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory#createNodeNumberFrom(double)},
+     * must be the same as the result of {@link #getFunc()}
+     *
+     * @return The function, or null if vectors and matrices of doubles are handled as any other
+     */
+    protected DoubleUnaryOperator getDoubleFunc() {
+        return null;
+    }
 }
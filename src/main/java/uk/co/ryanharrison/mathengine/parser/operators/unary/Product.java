@@ -0,0 +1,29 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+public final class Product extends StatisticOperator {
+
+    @Override
+    protected NodeConstant calculate(NodeVector vector, double[] values) {
+        return NodeFactory.createNodeNumberFrom(StatUtils.product(values));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"product"};
+    }
+
+    @Override
+    public String toLongString() {
+        return "product";
+    }
+
+    @Override
+    public String toString() {
+        return "product";
+    }
+}
@@ -1,21 +1,15 @@
 package uk.co.ryanharrison.mathengine.parser.operators.unary;
 
-import uk.co.ryanharrison.mathengine.parser.nodes.Node;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
-
-import java.util.Arrays;
+import uk.co.ryanharrison.mathengine.parser.nodes.VectorOrdering;
 
 public class Sort extends VectorOperator
 {
 	@Override
 	protected NodeConstant calculateResultFromVector(NodeVector arg1)
 	{
-		Node[] elements = ((NodeVector) arg1).getValues();
-
-		Node[] results = elements.clone();
-		Arrays.sort(results);
-		return new NodeVector(results);
+		return VectorOrdering.sort(arg1);
 	}
 	
 	@Override
@@ -0,0 +1,42 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeDouble;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+/**
+ * A statistic of the values of the elements of a vector, which are converted to a
+ * {@code double[]} once
+ */
+public abstract class StatisticOperator extends VectorOperator {
+
+    protected abstract NodeConstant calculate(NodeVector vector, double[] values);
+
+    @Override
+    protected NodeConstant calculateResultFromVector(NodeVector arg1) {
+        if (arg1.getSize() == 0)
+            throw new IllegalArgumentException("Cannot calculate the " + toLongString() + " of an empty vector");
+
+        return calculate(arg1, arg1.toDoubleArray());
+    }
+
+    // the element itself, which keeps a fraction exact
+    protected static NodeConstant elementAt(NodeVector vector, double[] values, int index) {
+        return vector.isDense() ? new NodeDouble(values[index]) : (NodeConstant) vector.getValues()[index];
+    }
+
+    @Override
+    protected void fillAcceptedArguments() {
+        acceptedArgumentLengths.add(INFINITE_ARGUMENT_LENGTH);
+    }
+
+    @Override
+    protected String getExpectedArgumentsString() {
+        return INFINITE_ARG_LENGTH_EXPECTED_USAGE;
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 2;
+    }
+}
@@ -1,18 +1,52 @@
 package uk.co.ryanharrison.mathengine.parser.operators.unary;
 
 import uk.co.ryanharrison.mathengine.parser.AngleUnit;
+import uk.co.ryanharrison.mathengine.parser.EvaluationContext;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
-import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
+import uk.co.ryanharrison.mathengine.parser.operators.UnaryOperator;
 
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
-public abstract class TrigOperator extends NumberOperator {
+public abstract class TrigOperator extends UnaryOperator {
 
     protected abstract NodeConstant getResult(double num);
 
+    /**
+     * Get the function on radians used for vectors and matrices of doubles. Its result must be
+     * the same as the result of {@link #getResult(double)}
+     *
+     * @return The function, or null if vectors and matrices of doubles are handled as any other
+     */
+    protected DoubleUnaryOperator getDoubleFunc() {
+        return null;
+    }
+
+    /**
+     * Apply this operator to an angle
+     *
+     * @param arg1      The angle
+     * @param angleUnit The unit the angle is measured in
+     * @return The result
+     */
+    public NodeConstant toResult(NodeConstant arg1, AngleUnit angleUnit) {
+        DoubleUnaryOperator doubleFunc = getDoubleFunc();
+        if (doubleFunc != null) {
+            NodeConstant result = arg1.applyDoubleFunc(num -> doubleFunc.applyAsDouble(radiansTo(num, angleUnit)));
+            if (result != null)
+                return result;
+        }
+
+        return arg1.applyUniFunc(num -> getResult(radiansTo(num.doubleValue(), angleUnit)));
+    }
+
+    @Override
+    public NodeConstant toResult(EvaluationContext context, NodeConstant arg1) {
+        return toResult(arg1, context.getAngleUnit());
+    }
+
     @Override
-    protected Function<NodeNumber, NodeConstant> getFunc() {
-        return num -> getResult(radiansTo(num.doubleValue(), getEvaluationContext().getAngleUnit()));
+    public int getPrecedence() {
+        return 2;
     }
 
     private double degToRad(double radians) {
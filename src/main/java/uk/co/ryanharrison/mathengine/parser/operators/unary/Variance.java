@@ -0,0 +1,29 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+public final class Variance extends StatisticOperator {
+
+    @Override
+    protected NodeConstant calculate(NodeVector vector, double[] values) {
+        return NodeFactory.createNodeNumberFrom(StatUtils.variance(values));
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[]{"variance"};
+    }
+
+    @Override
+    public String toLongString() {
+        return "variance";
+    }
+
+    @Override
+    public String toString() {
+        return "variance";
+    }
+}
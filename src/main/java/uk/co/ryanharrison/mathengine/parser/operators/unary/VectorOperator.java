@@ -3,12 +3,12 @@ package uk.co.ryanharrison.mathengine.parser.operators.unary;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
-import uk.co.ryanharrison.mathengine.parser.operators.UnaryOperator;
+import uk.co.ryanharrison.mathengine.parser.operators.ContextFreeUnaryOperator;
 
 import java.util.HashSet;
 import java.util.Set;
 
-public abstract class VectorOperator extends UnaryOperator
+public abstract class VectorOperator extends ContextFreeUnaryOperator
 {
 	protected static final String INFINITE_ARG_LENGTH_EXPECTED_USAGE = "elements";
 	
@@ -5,6 +5,7 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 import uk.co.ryanharrison.mathengine.parser.operators.unary.NumberOperator;
 
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 public class Abs extends NumberOperator {
@@ -14,6 +15,11 @@ public class Abs extends NumberOperator {
         return (num -> NodeFactory.createNodeNumberFrom(Math.abs(num.doubleValue())));
     }
 
+    @Override
+    protected DoubleUnaryOperator getDoubleFunc() {
+        return Math::abs;
+    }
+
     @Override
     public String[] getAliases() {
         return new String[]{"abs", "absolute"};
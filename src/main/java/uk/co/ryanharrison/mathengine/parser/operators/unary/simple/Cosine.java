@@ -4,6 +4,8 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.operators.unary.TrigOperator;
 
+import java.util.function.DoubleUnaryOperator;
+
 public final class Cosine extends TrigOperator {
 
     @Override
@@ -17,6 +19,11 @@ public final class Cosine extends TrigOperator {
         return NodeFactory.createNodeNumberFrom(result);
     }
 
+    @Override
+    protected DoubleUnaryOperator getDoubleFunc() {
+        return Math::cos;
+    }
+
     @Override
     public String toLongString() {
         return "cosine";
@@ -5,6 +5,7 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeNumber;
 import uk.co.ryanharrison.mathengine.parser.operators.unary.NumberOperator;
 
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 public class Ln extends NumberOperator {
@@ -24,6 +25,11 @@ public class Ln extends NumberOperator {
         return (num -> NodeFactory.createNodeNumberFrom(Math.log(num.doubleValue())));
     }
 
+    @Override
+    protected DoubleUnaryOperator getDoubleFunc() {
+        return Math::log;
+    }
+
     @Override
     public String toLongString() {
         return "natural logarithm";
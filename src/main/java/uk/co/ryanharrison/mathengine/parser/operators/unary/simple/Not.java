@@ -13,7 +13,7 @@ public class Not extends NumberOperator {
     protected Function<NodeNumber, NodeConstant> getFunc() {
         return (num -> {
             boolean result = num.doubleValue() == 1.0;
-            return new NodeBoolean(!result);
+            return NodeBoolean.valueOf(!result);
         });
     }
 
@@ -4,6 +4,8 @@ import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
 import uk.co.ryanharrison.mathengine.parser.nodes.NodeFactory;
 import uk.co.ryanharrison.mathengine.parser.operators.unary.TrigOperator;
 
+import java.util.function.DoubleUnaryOperator;
+
 public class Tangent extends TrigOperator {
 
     @Override
@@ -17,6 +19,11 @@ public class Tangent extends TrigOperator {
         return NodeFactory.createNodeNumberFrom(result);
     }
 
+    @Override
+    protected DoubleUnaryOperator getDoubleFunc() {
+        return Math::tan;
+    }
+
     @Override
     public String toLongString() {
         return "tangent";
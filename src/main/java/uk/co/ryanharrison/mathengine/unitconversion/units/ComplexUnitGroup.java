@@ -3,9 +3,12 @@ package uk.co.ryanharrison.mathengine.unitconversion.units;
 import uk.co.ryanharrison.mathengine.BigRational;
 import uk.co.ryanharrison.mathengine.parser.Evaluator;
 
+import java.util.Map;
+
 public class ComplexUnitGroup extends UnitGroup {
 
-    private static Evaluator evaluator = Evaluator.newSimpleBinaryEvaluator();
+    // values are passed to each evaluation so conversions can run concurrently
+    private static final Evaluator evaluator = Evaluator.newSimpleBinaryEvaluator();
 
     @Override
     protected BigRational doConversion(Conversion params) {
@@ -13,11 +16,10 @@ public class ComplexUnitGroup extends UnitGroup {
 
         if ((from = (ComplexSubUnit) params.getFrom()) != null
                 && (to = (ComplexSubUnit) params.getTo()) != null) {
-            evaluator.addVariable(from.getVariable(), params.getValue().doubleValue());
-
             String equation = from.getEquationFor(to);
             if (equation != null) {
-                return new BigRational(evaluator.evaluateDouble(equation));
+                Map<String, Double> variables = Map.of(from.getVariable(), params.getValue().doubleValue());
+                return new BigRational(evaluator.evaluateDouble(equation, variables));
             }
 
             return params.getValue();
@@ -0,0 +1,27 @@
+package uk.co.ryanharrison.mathengine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FunctionTest {
+
+    private final Function reciprocal = new Function("1/x");
+
+    @Test
+    void evaluateAtDoubleUsesDoubleArithmetic() {
+        assertThat(reciprocal.evaluateAt(0.0)).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(reciprocal.evaluateAt(-0.0)).isEqualTo(Double.NEGATIVE_INFINITY);
+        assertThat(reciprocal.evaluateAt(Double.NaN)).isNaN();
+        assertThat(reciprocal.evaluateAt(Double.POSITIVE_INFINITY)).isEqualTo(0.0);
+        assertThat(reciprocal.evaluateAt(1e-5)).isEqualTo(1 / 1e-5).isEqualTo(99999.99999999999);
+    }
+
+    @Test
+    void evaluateAtStringUsesExactArithmetic() {
+        assertThrows(IllegalArgumentException.class, () -> reciprocal.evaluateAt("0"));
+        assertThat(reciprocal.evaluateAt("0.00001")).isEqualTo(100000);
+        assertThat(reciprocal.evaluateAt("1e-5")).isEqualTo(100000);
+    }
+}
@@ -0,0 +1,65 @@
+package uk.co.ryanharrison.mathengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RationalAccumulatorTest {
+
+    @Test
+    void emptyIsZero() {
+        assertThat(new RationalAccumulator().toBigRational()).isEqualTo(BigRational.ZERO);
+    }
+
+    @Test
+    void reducesOnRequest() {
+        RationalAccumulator sum = new RationalAccumulator()
+                .add(1, 6)
+                .add(1, 3)
+                .add(new BigRational(1, 2));
+
+        assertThat(sum.toBigRational().toString()).isEqualTo("1");
+    }
+
+    @Test
+    void harmonicNumbers() {
+        RationalAccumulator sum = new RationalAccumulator();
+        BigRational expected = BigRational.ZERO;
+
+        for (int i = 1; i <= 200; i++) {
+            sum.add(1, i);
+            expected = expected.add(new BigRational(1, i));
+        }
+
+        assertThat(sum.toBigRational().toString()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void matchesBigRational() {
+        Random random = new Random(5);
+        RationalAccumulator sum = new RationalAccumulator();
+        BigRational expected = BigRational.ZERO;
+
+        for (int i = 0; i < 500; i++) {
+            long num = random.nextLong() >> random.nextInt(64);
+            long den = 1 + random.nextInt(1 << random.nextInt(20));
+            BigRational value = new BigRational(BigInteger.valueOf(num), BigInteger.valueOf(den));
+
+            if (random.nextBoolean()) {
+                sum.add(num, den);
+                expected = expected.add(value);
+            } else {
+                sum.add(value.multiply(value));
+                expected = expected.add(value.multiply(value));
+            }
+
+            if (i % 100 == 0)
+                assertThat(sum.toBigRational().toString()).isEqualTo(expected.toString());
+        }
+
+        assertThat(sum.toBigRational().toString()).isEqualTo(expected.toString());
+    }
+}
@@ -0,0 +1,127 @@
+package uk.co.ryanharrison.mathengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatUtilsTest {
+
+    @Test
+    void selectPlacesValueAtIndex() {
+        Random random = new Random(3);
+
+        for (int i = 0; i < 200; i++) {
+            double[] data = new double[1 + random.nextInt(50)];
+            for (int j = 0; j < data.length; j++) {
+                int choice = random.nextInt(12);
+                data[j] = choice == 0 ? Double.NaN : choice == 1 ? -0.0 : choice == 2 ? 0.0 : random.nextInt(10);
+            }
+            double[] sorted = data.clone();
+            Arrays.sort(sorted);
+
+            int k = random.nextInt(data.length);
+            StatUtils.select(data, k);
+
+            assertThat(Double.compare(data[k], sorted[k])).isZero();
+            for (int j = 0; j < data.length; j++) {
+                assertThat(Double.compare(data[j], data[k]) * Integer.compare(j, k)).isNotNegative();
+            }
+        }
+    }
+
+    @Test
+    void percentile() {
+        double[] data = {5, 1, 4, 2, 3};
+
+        assertThat(StatUtils.percentile(data, 0)).isEqualTo(1);
+        assertThat(StatUtils.percentile(data, 1)).isEqualTo(5);
+        assertThat(StatUtils.percentile(data, 0.9)).isEqualTo(4.6, within(1e-12));
+        assertThat(StatUtils.median(new double[]{4, 1, 3, 2})).isEqualTo(2.5);
+        assertThat(data).containsExactly(5, 1, 4, 2, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> StatUtils.percentile(data, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> StatUtils.percentile(data, Double.NaN));
+    }
+
+    @Test
+    void singleBlockReducesSequentially() {
+        Random random = new Random(5);
+
+        for (int i = 0; i < 100; i++) {
+            double[] data = randomData(random, 2 + random.nextInt(100));
+
+            double sum = 0;
+            double product = 1;
+            double min = data[0];
+            double max = data[0];
+            for (double value : data) {
+                sum += value;
+                product *= value;
+                min = value < min ? value : min;
+                max = value > max ? value : max;
+            }
+            double squares = 0;
+            for (double value : data) {
+                squares += Math.pow(value - sum / data.length, 2);
+            }
+
+            assertThat(StatUtils.sum(data)).isEqualTo(sum);
+            assertThat(StatUtils.product(data)).isEqualTo(product);
+            assertThat(StatUtils.variance(data)).isEqualTo(squares / (data.length - 1));
+            assertThat(StatUtils.min(data)).isEqualTo(min);
+            assertThat(StatUtils.max(data)).isEqualTo(max);
+        }
+    }
+
+    @Test
+    void largeDataReducesInBlocks() {
+        double[] data = randomData(new Random(6), 300_000);
+
+        double sum = 0;
+        for (double value : data) {
+            sum += value;
+        }
+        double squares = 0;
+        for (double value : data) {
+            squares += (value - sum / data.length) * (value - sum / data.length);
+        }
+
+        assertThat(StatUtils.sum(data)).isCloseTo(sum, within(1e-6));
+        assertThat(StatUtils.variance(data)).isCloseTo(squares / (data.length - 1), within(1e-9));
+
+        // the same however the blocks were scheduled
+        for (int i = 0; i < 5; i++) {
+            assertThat(StatUtils.sum(data)).isEqualTo(StatUtils.sum(data));
+            assertThat(StatUtils.variance(data)).isEqualTo(StatUtils.variance(data));
+        }
+    }
+
+    @Test
+    void extremesIgnoreNaNUnlessFirst() {
+        double[] data = randomData(new Random(7), 10_000);
+        data[0] = 1;
+        data[5000] = Double.NaN;
+        data[9000] = -5;
+        data[9001] = 5;
+
+        assertThat(StatUtils.indexOfMin(data)).isEqualTo(9000);
+        assertThat(StatUtils.indexOfMax(data)).isEqualTo(9001);
+
+        data[0] = Double.NaN;
+        assertThat(StatUtils.indexOfMin(data)).isZero();
+        assertThat(StatUtils.indexOfMax(data)).isZero();
+    }
+
+    private static double[] randomData(Random random, int length) {
+        double[] data = new double[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = random.nextDouble() * 2 - 0.5;
+        }
+        return data;
+    }
+}
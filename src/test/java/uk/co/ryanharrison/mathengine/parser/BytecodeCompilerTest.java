@@ -0,0 +1,111 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.Function;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BytecodeCompilerTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    private DoubleUnaryOperator jit(String expression) {
+        return BytecodeCompiler.compileUnary(evaluator.getContext(), evaluator.compile(expression, "x").getTree());
+    }
+
+    private void assertMatchesInterpreter(String expression) {
+        CompiledExpression compiled = evaluator.compile(expression, "x");
+        DoubleUnaryOperator operator = BytecodeCompiler.compileUnary(evaluator.getContext(), compiled.getTree());
+
+        assertThat(operator).as(expression).isNotNull();
+        for (double x = -4.3; x < 5; x += 0.37) {
+            double expected = compiled.evaluate(x);
+            assertThat(operator.applyAsDouble(x)).as(expression + " at " + x)
+                    .isCloseTo(expected, within(1e-9 * Math.max(1, Math.abs(expected))));
+        }
+    }
+
+    @Test
+    void compilesArithmetic() {
+        assertMatchesInterpreter("x^2 + 8*x + 12");
+        assertMatchesInterpreter("x / 3 - 2 * x + 1.5");
+        assertMatchesInterpreter("(x - 1) * (x + 1) / (x^2 + 1)");
+        assertMatchesInterpreter("-x + 4");
+    }
+
+    @Test
+    void compilesFunctions() {
+        assertMatchesInterpreter("sin(x) * x^3 - 2 / x");
+        assertMatchesInterpreter("cos(x)^2 + tan(x / 7)");
+        assertMatchesInterpreter("ln(abs(x) + 1) + abs(x - 2)");
+    }
+
+    @Test
+    void foldsConstants() {
+        assertMatchesInterpreter("x * pi + sum({1, 2, 3}) / 7");
+        assertMatchesInterpreter("x + 1/3 + euler");
+        assertThat(jit("2 * 3").applyAsDouble(100)).isEqualTo(6);
+    }
+
+    @Test
+    void appliesAngleUnit() {
+        evaluator.setAngleUnit(AngleUnit.Degrees);
+        assertThat(jit("sin(x)").applyAsDouble(90)).isCloseTo(1, within(1e-12));
+        assertMatchesInterpreter("cos(x * 10) + tan(x)");
+
+        evaluator.setAngleUnit(AngleUnit.Gradians);
+        assertThat(jit("sin(x)").applyAsDouble(100)).isCloseTo(1, within(1e-12));
+    }
+
+    @Test
+    void compilesTwoVariables() {
+        CompiledExpression compiled = evaluator.compile("a^2 + 3 * a * b - b", "a", "b");
+        DoubleBinaryOperator operator = BytecodeCompiler.compileBinary(evaluator.getContext(), compiled.getTree());
+
+        assertThat(operator).isNotNull();
+        assertThat(operator.applyAsDouble(2, 5)).isEqualTo(compiled.evaluate(2, 5));
+        assertThat(compiled.toBinaryOperator().applyAsDouble(-1, 0.5)).isEqualTo(-1);
+    }
+
+    @Test
+    void unsupportedExpressionsFallBack() {
+        evaluator.evaluateConstant("f(y) := y + 2");
+
+        for (String expression : new String[]{"sum({x, 2})", "x + 10%", "f(x)", "x > 2", "x!", "x + undefined"}) {
+            assertThat(jit(expression)).as(expression).isNull();
+        }
+
+        assertThat(evaluator.compile("sum({x, 2})", "x").toUnaryOperator().applyAsDouble(3)).isEqualTo(5);
+        assertThat(evaluator.compile("f(x)", "x").toUnaryOperator().applyAsDouble(3)).isEqualTo(5);
+    }
+
+    @Test
+    void failingConstantsFallBackToInterpreter() {
+        assertThat(jit("x + 1 / 0")).isNull();
+
+        DoubleUnaryOperator operator = evaluator.compile("x + 1 / 0", "x").toUnaryOperator();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> operator.applyAsDouble(2));
+        assertThat(e.getMessage()).isEqualTo("Zero denominator");
+    }
+
+    @Test
+    void followsDoubleArithmeticAtZeros() {
+        DoubleUnaryOperator operator = evaluator.compile("1 / sin(x)", "x").toUnaryOperator();
+
+        assertThat(operator.applyAsDouble(0)).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateDouble("1 / sin(0)"));
+    }
+
+    @Test
+    void functionUsesCompiledOperator() {
+        Function function = new Function("x^3 - 2*x + ln(x)");
+
+        assertThat(function.evaluateAt(2)).isCloseTo(4 + Math.log(2), within(1e-12));
+        assertThat(function.toOperator()).isSameAs(function.toOperator());
+    }
+}
@@ -0,0 +1,98 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Reports the time and the bytes allocated per evaluation of compiled expressions when
+ * interpreting their trees, evaluating them on primitive doubles and running the generated
+ * bytecode, and the time per row of evaluating a column of values at once. Run the main
+ * method directly.
+ */
+public final class CompiledExpressionBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+            "x^2 + 8*x + 12",
+            "2*pi*x/360 + sin(x) * x^3 - 2 / x",
+            "abs(ln(x^2 + 1) - cos(x / 3)) * tan(x / 10)"
+    };
+
+    private static final int EVALUATIONS = 1_000_000;
+
+    public static void main(String[] args) {
+        Evaluator evaluator = Evaluator.newEvaluator();
+
+        System.out.printf("%-45s %12s %12s %12s %12s %12s %12s %12s%n", "expression",
+                "interp (ns)", "interp (B)", "scalar (ns)", "scalar (B)", "jit (ns)", "batch (ns)", "parallel (ns)");
+        for (String expression : EXPRESSIONS) {
+            CompiledExpression compiled = evaluator.compile(expression, "x");
+            Node tree = compiled.getTree();
+            double[] slots = new double[1];
+            RecursiveDescentParser interpreter = new RecursiveDescentParser(evaluator.getContext(), slots);
+            DoubleUnaryOperator jit = compiled.toUnaryOperator();
+
+            DoubleUnaryOperator interpreted = x -> {
+                slots[0] = x;
+                return interpreter.parse(tree).getTransformer().toNodeNumber().doubleValue();
+            };
+
+            double[] interpResult = measure(interpreted, EVALUATIONS / 10);
+            double[] scalarResult = measure(compiled::evaluate, EVALUATIONS);
+            double[] jitResult = measure(jit, EVALUATIONS);
+
+            double[] xs = new double[EVALUATIONS];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = i * 1e-4 + 0.5;
+            }
+            double[] out = new double[xs.length];
+            double batch = measureBatch(() -> compiled.evaluateAll(xs, out));
+            double parallel = measureBatch(() -> compiled.evaluateAllParallel(new double[][]{xs}, out));
+
+            System.out.printf("%-45s %12.1f %12.1f %12.1f %12.1f %12.1f %12.1f %12.1f%n", expression,
+                    interpResult[0], interpResult[1], scalarResult[0], scalarResult[1], jitResult[0], batch, parallel);
+        }
+    }
+
+    /**
+     * @return The nanoseconds and bytes allocated per evaluation
+     */
+    private static double[] measure(DoubleUnaryOperator operator, int evaluations) {
+        double sink = 0;
+        for (int i = 0; i < evaluations; i++) {
+            sink += operator.applyAsDouble(i * 1e-4 + 0.5);
+        }
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < evaluations; i++) {
+            sink += operator.applyAsDouble(i * 1e-4 + 0.5);
+        }
+        long time = System.nanoTime() - start;
+        bytes = allocatedBytes() - bytes;
+
+        if (sink == 42)
+            System.out.println();
+
+        return new double[]{(double) time / evaluations, (double) bytes / evaluations};
+    }
+
+    /**
+     * @return The nanoseconds per row of the best of several runs
+     */
+    private static double measureBatch(Runnable batch) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            batch.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / EVALUATIONS;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,141 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledExpressionTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    @Test
+    void evaluatesSingleVariable() {
+        CompiledExpression expression = evaluator.compile("x^2 + 8*x + 12", "x");
+
+        assertThat(expression.evaluate(2)).isEqualTo(32);
+        assertThat(expression.evaluate(-6)).isEqualTo(0);
+        assertThat(expression.evaluate(0.5)).isEqualTo(16.25);
+    }
+
+    @Test
+    void evaluatesMultipleVariables() {
+        CompiledExpression expression = evaluator.compile("a * b - c", "a", "b", "c");
+
+        assertThat(expression.evaluate(2, 3, 4)).isEqualTo(2);
+        assertThat(expression.evaluate(5, 5, 5)).isEqualTo(20);
+    }
+
+    @Test
+    void variablesShadowConstants() {
+        CompiledExpression expression = evaluator.compile("t * pi", "t");
+
+        assertThat(expression.evaluate(2)).isCloseTo(2 * Math.PI, within(1e-12));
+    }
+
+    @Test
+    void bindsVariablesInsideVectors() {
+        CompiledExpression expression = evaluator.compile("sum({x, 2 * x, 3})", "x");
+
+        assertThat(expression.evaluate(4)).isEqualTo(15);
+    }
+
+    @Test
+    void wrongNumberOfArguments() {
+        CompiledExpression expression = evaluator.compile("x + y", "x", "y");
+
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate(1));
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate(1, 2, 3));
+    }
+
+    @Test
+    void functionMatchesStringEvaluation() {
+        Function function = new Function("sin(x) * x^3 - 2 / x");
+
+        for (double x = -3.3; x < 3; x += 0.7) {
+            assertThat(function.evaluateAt(x))
+                    .isCloseTo(function.evaluateAt(Double.toString(x)), within(1e-9));
+        }
+    }
+
+    @Test
+    void functionRespectsAngleUnit() {
+        Function function = new Function("sin(x)", AngleUnit.Degrees);
+
+        assertThat(function.evaluateAt(90)).isCloseTo(1, within(1e-12));
+    }
+
+    @Test
+    void evaluatesAllValues() {
+        CompiledExpression expression = evaluator.compile("x^2 + sin(x) / 3", "x");
+        double[] xs = new double[1000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i * 0.01 - 5;
+        }
+
+        double[] out = new double[xs.length];
+        expression.evaluateAll(xs, out);
+
+        for (int i = 0; i < xs.length; i++) {
+            assertThat(out[i]).isEqualTo(expression.evaluate(xs[i]));
+        }
+    }
+
+    @Test
+    void evaluatesAllColumns() {
+        CompiledExpression expression = evaluator.compile("a * b - c", "a", "b", "c");
+        double[][] columns = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}};
+        double[] out = new double[3];
+
+        expression.evaluateAll(columns, out);
+
+        assertThat(out).containsExactly(-3, 2, 9);
+    }
+
+    @Test
+    void evaluatesAllInParallel() {
+        int rows = 100_000;
+        double[] as = new double[rows];
+        double[] bs = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            as[i] = i;
+            bs[i] = rows - i;
+        }
+
+        CompiledExpression scalar = evaluator.compile("a / b + ln(a + 1)", "a", "b");
+        double[] out = new double[rows];
+        scalar.evaluateAllParallel(new double[][]{as, bs}, out);
+
+        double[] sequential = new double[rows];
+        scalar.evaluateAll(new double[][]{as, bs}, sequential);
+        assertThat(out).containsExactly(sequential);
+    }
+
+    @Test
+    void evaluatesAllWithoutScalarProgram() {
+        CompiledExpression expression = evaluator.compile("sum({x, 2 * x, 3})", "x");
+        double[] xs = new double[10_000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i;
+        }
+
+        double[] out = new double[xs.length];
+        expression.evaluateAllParallel(new double[][]{xs}, out);
+
+        for (int i = 0; i < xs.length; i++) {
+            assertThat(out[i]).isEqualTo(3 * i + 3);
+        }
+    }
+
+    @Test
+    void evaluateAllChecksColumns() {
+        CompiledExpression expression = evaluator.compile("x + y", "x", "y");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateAll(new double[3], new double[3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateAll(new double[][]{{1, 2}, {3}}, new double[2]));
+    }
+}
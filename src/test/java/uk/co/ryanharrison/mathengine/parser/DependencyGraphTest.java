@@ -0,0 +1,140 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DependencyGraphTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+    private DependencyGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = evaluator.enableIncrementalRecompute();
+    }
+
+    @Test
+    void disabledByDefault() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        assertThat(evaluator.getDependencyGraph()).isNull();
+
+        evaluator.evaluateConstant("a := 2");
+        evaluator.evaluateConstant("b := a * 10");
+        evaluator.evaluateConstant("a := 3");
+        assertThat(evaluator.evaluateDouble("b")).isEqualTo(20);
+    }
+
+    @Test
+    void recordsDependencies() {
+        evaluator.evaluateConstant("a := 2");
+        evaluator.evaluateConstant("b := a * 10 + pi");
+
+        assertThat(graph.getDependencies("b")).containsExactlyInAnyOrder("a", "pi");
+        assertThat(graph.getDependents("a")).containsExactly("b");
+        assertThat(graph.size()).isEqualTo(2);
+    }
+
+    @Test
+    void recomputesDependents() {
+        evaluator.evaluateConstant("a := 2");
+        evaluator.evaluateConstant("b := a * 10");
+        evaluator.evaluateConstant("c := b + a");
+
+        evaluator.evaluateConstant("a := 3");
+        assertThat(evaluator.evaluateDouble("b")).isEqualTo(30);
+        assertThat(evaluator.evaluateDouble("c")).isEqualTo(33);
+        assertThat(graph.getRecomputations()).isEqualTo(2);
+    }
+
+    @Test
+    void addingVariableRecomputesDependents() {
+        evaluator.evaluateConstant("a := 2");
+        evaluator.evaluateConstant("b := a * 3");
+
+        evaluator.addVariable("a", "5");
+        assertThat(evaluator.evaluateDouble("b")).isEqualTo(15);
+
+        evaluator.addVariable("a", 1.5);
+        assertThat(evaluator.evaluateDouble("b")).isEqualTo(4.5);
+        assertThat(graph.getDependencies("a")).isEmpty();
+    }
+
+    @Test
+    void recomputesOnlyDependents() {
+        evaluator.evaluateConstant("a := 1");
+        evaluator.evaluateConstant("x := 1");
+        evaluator.evaluateConstant("b := a + 1");
+        evaluator.evaluateConstant("y := x + 1");
+
+        evaluator.evaluateConstant("a := 5");
+        assertThat(graph.getRecomputations()).isEqualTo(1);
+        assertThat(evaluator.evaluateDouble("y")).isEqualTo(2);
+    }
+
+    @Test
+    void recomputesInTopologicalOrder() {
+        evaluator.evaluateConstant("a := 1");
+        evaluator.evaluateConstant("b := a + 1");
+        evaluator.evaluateConstant("c := a + b");
+        evaluator.evaluateConstant("total := c + b + a");
+
+        evaluator.evaluateConstant("a := 10");
+        assertThat(evaluator.evaluateDouble("total")).isEqualTo(42);
+        assertThat(graph.getRecomputations()).isEqualTo(3);
+    }
+
+    @Test
+    void recomputesLongChains() {
+        evaluator.evaluateConstant("a0 := 0");
+        for (int i = 1; i <= 2000; i++) {
+            evaluator.evaluateConstant("a" + i + " := a" + (i - 1) + " + 1");
+        }
+
+        evaluator.evaluateConstant("a0 := 5");
+        assertThat(evaluator.evaluateDouble("a2000")).isEqualTo(2005);
+    }
+
+    @Test
+    void recomputesThroughFunctions() {
+        evaluator.evaluateConstant("k := 2");
+        evaluator.evaluateConstant("f(x) := x * k");
+        evaluator.evaluateConstant("b := f(5)");
+        assertThat(graph.getDependencies("b")).contains("f", "k");
+
+        evaluator.evaluateConstant("k := 3");
+        assertThat(evaluator.evaluateDouble("b")).isEqualTo(15);
+
+        evaluator.evaluateConstant("f(x) := x + k");
+        assertThat(evaluator.evaluateDouble("b")).isEqualTo(8);
+    }
+
+    @Test
+    void selfReferenceUsesPreviousValue() {
+        evaluator.evaluateConstant("a := 1");
+        evaluator.evaluateConstant("a := a + 1");
+
+        assertThat(evaluator.evaluateDouble("a")).isEqualTo(2);
+        assertThat(graph.getDependencies("a")).isEmpty();
+    }
+
+    @Test
+    void rejectsCycles() {
+        evaluator.evaluateConstant("a := 1");
+        evaluator.evaluateConstant("b := a + 1");
+
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateConstant("a := b + 1"));
+        assertThat(evaluator.evaluateDouble("a")).isEqualTo(1);
+    }
+
+    @Test
+    void clearingVariablesClearsGraph() {
+        evaluator.evaluateConstant("a := 1");
+        evaluator.evaluateConstant("b := a + 1");
+
+        evaluator.evaluateConstant("clearvars");
+        assertThat(graph.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeMatrix;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ElementwiseFusionTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    // evaluates the first expression then applies each step to the previous result, so that no
+    // step is a chain
+    private NodeConstant stepwise(String first, String... steps) {
+        NodeConstant result = evaluator.evaluateConstant("step := " + first);
+        for (String step : steps) {
+            result = evaluator.evaluateConstant("step := step " + step);
+        }
+        return result;
+    }
+
+    @Test
+    void fusesVectorChains() {
+        NodeConstant fused = evaluator.evaluateConstant("(v * 2 + 1) ^ 2 / sum(v)");
+
+        assertThat(fused).isInstanceOf(NodeVector.class);
+        assertThat(((NodeVector) fused).isDense()).isTrue();
+        assertThat(fused).isEqualTo(stepwise("v * 2", "+ 1", "^ 2", "/ sum(v)"));
+    }
+
+    @Test
+    void matchesOperatorAtATime() {
+        evaluator.evaluateConstant("w := double({1.5, -2, 3.25, 0, 7, 0.1, 8, 1})");
+
+        evaluator.evaluateConstant("p := v * w");
+        evaluator.evaluateConstant("q := v / 3");
+        assertThat(evaluator.evaluateConstant("v * w - v / 3")).isEqualTo(evaluator.evaluateConstant("p - q"));
+        assertThat(evaluator.evaluateConstant("2 - w * 0.3")).isEqualTo(stepwise("w * 0.3", "* -1", "+ 2"));
+        assertThat(evaluator.evaluateConstant("(w + 1) ^ (1 / 3 + 1 / 6)")).isEqualTo(stepwise("w + 1", "^ (1 / 2)"));
+    }
+
+    @Test
+    void fusesMatrixChains() {
+        NodeConstant fused = evaluator.evaluateConstant("m * 2 + m2 - 1");
+
+        assertThat(((NodeMatrix) fused).isDense()).isTrue();
+        assertThat(fused).isEqualTo(stepwise("m * 2", "+ m2", "- 1"));
+        assertThat(evaluator.evaluateConstant("m * m2 + 1")).isEqualTo(stepwise("m * m2", "+ 1"));
+    }
+
+    @Test
+    void fusesRectangularMatrixChains() {
+        evaluator.evaluateConstant("n := double([{1, 2, 3}, {4, 5, 6}])");
+        NodeConstant fused = evaluator.evaluateConstant("n * 2 + n - 1");
+
+        assertThat(((NodeMatrix) fused).isDense()).isTrue();
+        assertThat(fused).isEqualTo(stepwise("n * 2", "+ n", "- 1"));
+    }
+
+    @Test
+    void evaluatesScalarChainsInOrder() {
+        // the division fails before the undefined variable is read
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> evaluator.evaluateConstant("1 / 0 * 2 + zz"));
+        assertThat(e).hasMessage("Zero denominator");
+
+        assertThat(evaluator.evaluateConstant("2 * v + 1")).isEqualTo(stepwise("2 * v", "+ 1"));
+    }
+
+    @Test
+    void evaluatesOtherChainsAnOperatorAtATime() {
+        assertThat(evaluator.evaluateConstant("{1, 2, 3} * 2 + 1").toString()).isEqualTo("{ 3, 5, 7 }");
+        assertThat(evaluator.evaluateConstant("v * 2 + {1, 2}")).isEqualTo(stepwise("v * 2", "+ {1, 2}"));
+        assertThat(evaluator.evaluateConstant("1 / 3 + 1 / 6").toString()).isEqualTo("1/2");
+    }
+}
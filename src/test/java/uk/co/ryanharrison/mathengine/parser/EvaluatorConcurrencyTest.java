@@ -0,0 +1,76 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeDouble;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Add;
+import uk.co.ryanharrison.mathengine.parser.operators.unary.simple.Sine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class EvaluatorConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    void sharedEvaluatorWithPerCallVariables() throws Exception {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        evaluator.evaluateConstant("sq(y) := y^2");
+        evaluator.enableParseCache(16);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        double x = thread * ITERATIONS + i;
+                        double result = evaluator.evaluateDouble("sq(x) + sum({x, 1}) + sin(0)", Map.of("x", x));
+                        if (result != x * x + x + 1)
+                            return false;
+                    }
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void perCallVariablesDoNotChangeConstants() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+
+        assertThat(evaluator.evaluateDouble("t * 2", Map.of("t", 3.0))).isEqualTo(6);
+        assertThat(evaluator.evaluateDouble("t")).isEqualTo(4.6);
+    }
+
+    @Test
+    void operatorsUseContextOfEachEvaluation() {
+        Evaluator radians = Evaluator.newEvaluator();
+        Evaluator degrees = Evaluator.newEvaluator();
+        degrees.setAngleUnit(AngleUnit.Degrees);
+
+        Sine sine = new Sine();
+        assertThat(sine.toResult(radians.getContext(), new NodeDouble(Math.PI / 2))
+                .getTransformer().toNodeNumber().doubleValue()).isCloseTo(1, within(1e-12));
+        assertThat(sine.toResult(degrees.getContext(), new NodeDouble(90))
+                .getTransformer().toNodeNumber().doubleValue()).isCloseTo(1, within(1e-12));
+
+        // operators which do not need a context can still be used directly
+        assertThat(new Add().toResult(new NodeDouble(1), new NodeDouble(2))).isEqualTo(new NodeDouble(3));
+    }
+}
@@ -37,4 +37,64 @@ class EvaluatorCustomFunctionTest {
         assertThrows(Exception.class, () -> evaluator.evaluateConstant("+(x) := x + 2"));
     }
 
+    @Test
+    void canDefineRecursiveFunction() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        evaluator.evaluateConstant("fact(n) := if({n <= 1, 1, n * fact(n - 1)})");
+        assertThat(evaluator.evaluateDouble("fact(5)")).isEqualTo(120);
+
+        evaluator.evaluateConstant("fib(n) := if({n < 2, n, fib(n - 1) + fib(n - 2)})");
+        assertThat(evaluator.evaluateDouble("fib(10)")).isEqualTo(55);
+    }
+
+    @Test
+    void invalidDefinitionRestoresPreviousFunction() {
+        evaluator.evaluateConstant("f(x) := x + 2");
+        assertThrows(Exception.class, () -> evaluator.evaluateConstant("f(x) := x +"));
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(4);
+
+        assertThrows(Exception.class, () -> evaluator.evaluateConstant("h(x) := x +"));
+        assertThrows(Exception.class, () -> evaluator.evaluateDouble("h(2)"));
+    }
+
+    @Test
+    void onlyEvaluatesChosenBranch() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        evaluator.evaluateConstant("loop(n) := loop(n + 1)");
+        assertThat(evaluator.evaluateDouble("if({1 < 2, 1, loop(1)})")).isEqualTo(1);
+        assertThat(evaluator.evaluateDouble("if({1 > 2, loop(1), 2})")).isEqualTo(2);
+    }
+
+    @Test
+    void shortCircuitsLogicalOperators() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        evaluator.evaluateConstant("loop(n) := loop(n + 1)");
+        assertThat(evaluator.evaluateConstant("false && loop(1)").toString()).isEqualTo("false");
+        assertThat(evaluator.evaluateConstant("true || loop(1)").toString()).isEqualTo("true");
+        assertThat(evaluator.evaluateConstant("true && false").toString()).isEqualTo("false");
+        assertThat(evaluator.evaluateConstant("false || true").toString()).isEqualTo("true");
+    }
+
+    @Test
+    void argumentsShadowConstantsOnlyWithinCall() {
+        evaluator.evaluateConstant("x := 10");
+        evaluator.evaluateConstant("f(x) := x + 1");
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(3);
+        assertThat(evaluator.evaluateDouble("x")).isEqualTo(10);
+
+        evaluator.evaluateConstant("g(a, b) := a * b + x");
+        assertThat(evaluator.evaluateDouble("g({2, 3})")).isEqualTo(16);
+        assertThrows(Exception.class, () -> evaluator.evaluateDouble("a"));
+    }
+
+    @Test
+    void selectEvaluatesFunctionForEachElement() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        evaluator.evaluateConstant("k := 10");
+        evaluator.evaluateConstant("scale(x) := x * k");
+        evaluator.evaluateConstant("big(x) := x > 2");
+
+        assertThat(evaluator.evaluateConstant("{1, 2, 3} select scale").toString()).isEqualTo("{ 10, 20, 30 }");
+        assertThat(evaluator.evaluateConstant("{1, 2, 3, 4} where big").toString()).isEqualTo("{ 3, 4 }");
+    }
 }
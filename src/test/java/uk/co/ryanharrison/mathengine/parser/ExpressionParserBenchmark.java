@@ -0,0 +1,115 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeExpression;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the time taken by {@link ExpressionParser} and the original substring based
+ * parser on machine generated expressions of increasing size. Run the main method
+ * directly; the legacy parser is skipped once a single parse takes longer than
+ * {@link #LEGACY_BUDGET_MILLIS}.
+ */
+public final class ExpressionParserBenchmark {
+
+    private static final int[] SIZES = {10, 100, 1000, 10000, 100000};
+    private static final long LEGACY_BUDGET_MILLIS = 20000;
+
+    public static void main(String[] args) {
+        run("mixed", size -> generate(size, new Random(size)));
+        run("product tail", ExpressionParserBenchmark::generateProductTail);
+    }
+
+    private static void run(String name, IntFunction<String> generator) {
+        EvaluationContext context = ExpressionParserTest.newContext();
+        boolean runLegacy = true;
+
+        System.out.println(name);
+        System.out.printf("%10s %15s %15s%n", "tokens", "new (ms)", "legacy (ms)");
+        for (int size : SIZES) {
+            String expression = generator.apply(size);
+
+            double current = time(expression, e -> new ExpressionParser(context).parse(e));
+            String legacy = "skipped";
+            if (runLegacy) {
+                double legacyTime = time(expression, e -> new LegacyExpressionParser(context).parse(e));
+                legacy = String.format("%.3f", legacyTime);
+                runLegacy = legacyTime < LEGACY_BUDGET_MILLIS;
+            }
+
+            System.out.printf("%10d %15.3f %15s%n", size, current, legacy);
+        }
+    }
+
+    /**
+     * Generate an expression of roughly the given number of tokens mixing precedence levels,
+     * unary functions and parenthesised groups
+     */
+    static String generate(int tokens, Random random) {
+        String[] operators = {" + ", " - ", " * ", " / ", "^"};
+        StringBuilder builder = new StringBuilder();
+        int count = 0;
+        int open = 0;
+
+        while (count < tokens) {
+            if (count > 0) {
+                builder.append(operators[random.nextInt(operators.length)]);
+                count++;
+            }
+            if (random.nextInt(10) == 0) {
+                builder.append("sin(");
+                open++;
+                count += 2;
+            }
+            builder.append(random.nextBoolean() ? "x" : Integer.toString(random.nextInt(100) + 1));
+            count++;
+            if (open > 0 && random.nextInt(3) == 0) {
+                builder.append(')');
+                open--;
+                count++;
+            }
+        }
+
+        while (open-- > 0)
+            builder.append(')');
+
+        return builder.toString();
+    }
+
+    /**
+     * Generate a sum whose second argument is a long product, so that the whole product
+     * is scanned as the argument of the addition
+     */
+    static String generateProductTail(int tokens) {
+        StringBuilder builder = new StringBuilder("x + 1");
+        for (int count = 3; count < tokens; count += 2) {
+            builder.append(" * ").append(count % 7 + 1);
+        }
+        return builder.toString();
+    }
+
+    private static double time(String expression, Function<String, Node> parser) {
+        int repeats = Math.max(1, 2000 / Math.max(1, expression.length() / 10));
+        for (int i = 0; i < Math.min(repeats, 5); i++) {
+            parser.apply(expression);
+        }
+
+        long start = System.nanoTime();
+        Node node = null;
+        for (int i = 0; i < repeats; i++) {
+            node = parser.apply(expression);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (!(node instanceof NodeExpression))
+            throw new IllegalStateException("Unexpected parse result");
+
+        return elapsed / 1e6 / repeats;
+    }
+
+    private ExpressionParserBenchmark() {
+    }
+}
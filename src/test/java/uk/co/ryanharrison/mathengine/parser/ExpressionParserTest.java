@@ -0,0 +1,166 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.OperatorProvider;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Add;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Multiply;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Pow;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Subtract;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpressionParserTest {
+
+    private static final String[] OPERANDS = {"1", "2", "12", "0.5", "3.25", "1e5", "x", "y", "pi",
+            "foo", "2x", "t", "(x)", "{1, 2, x}", "[1, 2; 3, 4]", "{{1,2},{3,4}}"};
+
+    private static final String[] BINARY = {"+", "-", "*", "/", "^", "plus", "minus", "times",
+            "div", "==", ">", "<=", "!=", "and", "or", "xor", "&&", "%of", "as % of", "where", "select"};
+
+    private static final String[] UNARY = {"sin", "cos", "ln", "log", "abs", "sum", "sort", "d",
+            "rat", "not", "factorial", "reverse", "if"};
+
+    private static final String[] POSTFIX = {"!", "!!", "%"};
+
+    static EvaluationContext newContext() {
+        EvaluationContext context = new EvaluationContext();
+        context.fillOperators(OperatorProvider.simpleBinaryOperators());
+        context.fillOperators(OperatorProvider.simpleUnaryOperators());
+        context.fillOperators(OperatorProvider.trigOperators());
+        context.fillOperators(OperatorProvider.logicalOperators());
+        context.fillOperators(OperatorProvider.vectorOperators());
+        context.fillOperators(OperatorProvider.matrixOperators());
+        context.fillOperators(OperatorProvider.customOperators());
+        context.addConstant("pi", new NodeDouble(Math.PI));
+        context.addConstant("x", new NodeDouble(2));
+        context.addConstant("t", new NodeDouble(4.6));
+        return context;
+    }
+
+    private static Node parse(String expression) {
+        return new ExpressionParser(newContext()).parse(expression);
+    }
+
+    @Test
+    void parsesPrecedenceAndAssociativity() {
+        NodeNumber one = NodeFactory.createNodeNumberFrom(1);
+        NodeNumber two = NodeFactory.createNodeNumberFrom(2);
+        NodeNumber three = NodeFactory.createNodeNumberFrom(3);
+
+        assertThat(parse("1 + 2 * 3")).isEqualTo(new NodeExpression(new Add(), one,
+                new NodeExpression(new Multiply(), two, three)));
+        assertThat(parse("1 - 2 - 3")).isEqualTo(new NodeExpression(new Subtract(),
+                new NodeExpression(new Subtract(), one, two), three));
+        assertThat(parse("1 ^ 2 ^ 3")).isEqualTo(new NodeExpression(new Pow(),
+                new NodeExpression(new Pow(), one, two), three));
+        assertThat(parse("-y")).isEqualTo(new NodeExpression(new Subtract(),
+                NodeFactory.createZeroNumber(), new NodeVariable("y")));
+        assertThat(parse("2 * -3")).isEqualTo(new NodeExpression(new Multiply(), two,
+                NodeFactory.createNodeNumberFrom(-3)));
+    }
+
+    @Test
+    void operatorsIgnoreCaseAndWhitespace() {
+        assertThat(parse("2 TIMES 3")).isEqualTo(parse("2*3"));
+        assertThat(parse("50 as % of 200")).isEqualTo(parse("50as%of200"));
+    }
+
+    @Test
+    void invalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> parse("2 +"));
+        assertThrows(IllegalArgumentException.class, () -> parse("* 2"));
+        assertThrows(IllegalArgumentException.class, () -> parse("()"));
+        assertThrows(IllegalArgumentException.class, () -> parse("foo(3)"));
+    }
+
+    @Test
+    void errorsQuoteOperatorWithoutBlanks() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse("2 +"));
+        assertThat(e.getMessage()).isEqualTo("Wrong number of arguments to operator +");
+
+        e = assertThrows(IllegalArgumentException.class, () -> parse("2   times"));
+        assertThat(e.getMessage()).isEqualTo("Wrong number of arguments to operator times");
+    }
+
+    @Test
+    void matchesLegacyParserOnFixedExpressions() {
+        String[] expressions = {"4+3", "5+((1+2)*4)-3", "-8/2-5", "2-(-(7-2)+1)-4", "2^3^2", "2^-3^2",
+                "sin(x)*2", "ln(x)^2", "3!+1", "2+3!", "x^2!", "-x^2", "2*1e-5", "1e-5", "2 3", "2x + 1",
+                "if({x > 2, 1, 2})", "if(x>2, 1, 2)", "sum({1,2,3}) / 3", "[1,2,3]", "[{1,2},{3,4}]",
+                "  x  +   y  ", "x plus y times 3", "true and false or true", "10 %of 50", "50 as % of 200",
+                "sort({3,1,2})", "(1+2", "1+2)", "{1,(2}", "f(x) := x^2 + 1", "g(a,b) := a*b", "z := 5",
+                "not x", "abs(-3)", "dx", "rat(0.5)", "x == 2 && y != 3", "1 - -1", "((((1))))"};
+
+        for (String expression : expressions) {
+            assertSameAsLegacy(expression);
+        }
+    }
+
+    @Test
+    void matchesLegacyParserOnRandomExpressions() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            assertSameAsLegacy(randomExpression(random, 3));
+        }
+    }
+
+    private static String randomExpression(Random random, int depth) {
+        StringBuilder builder = new StringBuilder();
+        int terms = 1 + random.nextInt(5);
+
+        for (int i = 0; i < terms; i++) {
+            if (i > 0)
+                builder.append(space(random)).append(pick(random, BINARY)).append(space(random));
+            if (random.nextInt(6) == 0)
+                builder.append(pick(random, UNARY)).append(space(random));
+            if (random.nextInt(8) == 0)
+                builder.append("-");
+
+            if (depth > 0 && random.nextInt(4) == 0)
+                builder.append('(').append(randomExpression(random, depth - 1)).append(')');
+            else
+                builder.append(pick(random, OPERANDS));
+
+            if (random.nextInt(8) == 0)
+                builder.append(pick(random, POSTFIX));
+        }
+
+        return builder.toString().trim();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String space(Random random) {
+        return random.nextBoolean() ? " " : "";
+    }
+
+    private static void assertSameAsLegacy(String expression) {
+        Node expected = null;
+        Node actual = null;
+        Exception expectedError = null;
+        Exception actualError = null;
+
+        try {
+            expected = new LegacyExpressionParser(newContext()).parse(expression);
+        } catch (RuntimeException e) {
+            expectedError = e;
+        }
+
+        try {
+            actual = new ExpressionParser(newContext()).parse(expression);
+        } catch (RuntimeException e) {
+            actualError = e;
+        }
+
+        assertThat(actualError == null).as("error parsing \"%s\": %s / %s", expression, expectedError, actualError)
+                .isEqualTo(expectedError == null);
+        assertThat(actual).as("parsing \"%s\"", expression).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,127 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FunctionCacheTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    @Test
+    void disabledByDefault() {
+        evaluator.evaluateConstant("f(x) := x + 1");
+        assertThat(evaluator.getFunctionCache("f")).isNull();
+    }
+
+    @Test
+    void rejectsInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> evaluator.enableFunctionCache("f", 0));
+    }
+
+    @Test
+    void cachesRecursiveCalls() {
+        FunctionCache cache = evaluator.enableFunctionCache("fib", 100);
+        evaluator.evaluateConstant("fib(n) := if({n < 2, n, fib(n - 1) + fib(n - 2)})");
+
+        assertThat(evaluator.evaluateConstant("fib(60)").toString()).isEqualTo("1548008755920");
+        assertThat(cache.size()).isEqualTo(61);
+        assertThat(cache.getMisses()).isEqualTo(61);
+        assertThat(cache.getHits()).isEqualTo(58);
+
+        evaluator.evaluateConstant("fib(60)");
+        assertThat(cache.getHits()).isEqualTo(59);
+        assertThat(cache.getHitRate()).isEqualTo(59.0 / 120);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        FunctionCache cache = evaluator.enableFunctionCache("sq", 2);
+        evaluator.evaluateConstant("sq(x) := x * x");
+
+        evaluator.evaluateDouble("sq(1) + sq(2) + sq(3)");
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+
+        evaluator.evaluateDouble("sq(1)");
+        assertThat(cache.getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    void invalidatesWhenRedefined() {
+        FunctionCache cache = evaluator.enableFunctionCache("f", 10);
+        evaluator.evaluateConstant("f(x) := x + 1");
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(3);
+
+        evaluator.evaluateConstant("f(x) := x + 2");
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(4);
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(0);
+    }
+
+    @Test
+    void invalidatesWhenGlobalChanges() {
+        FunctionCache cache = evaluator.enableFunctionCache("f", 10);
+        evaluator.evaluateConstant("k := 10");
+        evaluator.evaluateConstant("g(x) := x * k");
+        evaluator.evaluateConstant("f(x) := g(x) + 1");
+
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(21);
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(21);
+        assertThat(cache.getHits()).isEqualTo(1);
+
+        evaluator.evaluateConstant("k := 100");
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(201);
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+
+        evaluator.evaluateConstant("g(x) := x");
+        assertThat(evaluator.evaluateDouble("f(2)")).isEqualTo(3);
+        assertThat(cache.getInvalidations()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidatesWhenAngleUnitChanges() {
+        FunctionCache cache = evaluator.enableFunctionCache("f", 10);
+        evaluator.evaluateConstant("f(x) := sin(x)");
+        assertThat(evaluator.evaluateDouble("f(90)")).isEqualTo(Math.sin(90));
+
+        evaluator.setAngleUnit(AngleUnit.Degrees);
+        assertThat(evaluator.evaluateDouble("f(90)")).isEqualTo(1);
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(0);
+    }
+
+    @Test
+    void doesNotCacheImpureFunctions() {
+        FunctionCache cache = evaluator.enableFunctionCache("f", 10);
+        evaluator.evaluateConstant("f(x) := x + ans");
+
+        evaluator.evaluateConstant("1");
+        assertThat(evaluator.evaluateDouble("f(1)")).isEqualTo(2);
+        assertThat(evaluator.evaluateDouble("f(1)")).isEqualTo(3);
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getHits() + cache.getMisses()).isEqualTo(0);
+    }
+
+    @Test
+    void cachesMultipleArguments() {
+        FunctionCache cache = evaluator.enableFunctionCache("h", 10);
+        evaluator.evaluateConstant("h(a, b) := a - b");
+
+        assertThat(evaluator.evaluateDouble("h({5, 2}) + h({2, 5}) + h({5, 2})")).isEqualTo(3);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void disablingStopsCaching() {
+        FunctionCache cache = evaluator.enableFunctionCache("f", 10);
+        evaluator.evaluateConstant("f(x) := x + 1");
+        evaluator.disableFunctionCache("f");
+
+        evaluator.evaluateDouble("f(1)");
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(evaluator.getFunctionCache("f")).isNull();
+    }
+}
@@ -0,0 +1,68 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperatorRegistryTest {
+
+    @Test
+    void registriesAreShared() {
+        assertThat(OperatorRegistry.full()).isSameAs(OperatorRegistry.full());
+        assertThat(OperatorRegistry.simple().size()).isLessThan(OperatorRegistry.full().size());
+        assertThat(OperatorRegistry.simpleBinary().size()).isLessThan(OperatorRegistry.simple().size());
+    }
+
+    @Test
+    void readsDefaultsFromRegistry() {
+        Evaluator evaluator = Evaluator.newEvaluator(OperatorRegistry.full());
+
+        assertThat(evaluator.evaluateDouble("pi")).isEqualTo(Math.PI);
+        assertThat(evaluator.evaluateDouble("euler * two")).isEqualTo(Math.E * 2);
+        assertThat(evaluator.evaluateConstant("sum(v)").toString()).isEqualTo("504.6");
+    }
+
+    @Test
+    void sessionsDoNotShareDefinitions() {
+        Evaluator first = Evaluator.newEvaluator();
+        Evaluator second = Evaluator.newEvaluator();
+
+        first.evaluateConstant("x := 5");
+        first.evaluateConstant("pi := 3");
+        first.evaluateConstant("f(a) := a * 2");
+
+        assertThat(first.evaluateDouble("f(x) + pi")).isEqualTo(13);
+        assertThat(second.evaluateDouble("pi")).isEqualTo(Math.PI);
+        assertThrows(RuntimeException.class, () -> second.evaluateConstant("x"));
+        assertThrows(RuntimeException.class, () -> second.evaluateConstant("f(2)"));
+    }
+
+    @Test
+    void clearingVariablesHidesDefaultsInOneSession() {
+        Evaluator first = Evaluator.newEvaluator();
+        Evaluator second = Evaluator.newEvaluator();
+
+        first.evaluateConstant("clearvars");
+
+        assertThrows(RuntimeException.class, () -> first.evaluateConstant("pi"));
+        assertThat(second.evaluateDouble("pi")).isEqualTo(Math.PI);
+
+        first.evaluateConstant("pi := 3");
+        assertThat(first.evaluateDouble("pi")).isEqualTo(3);
+    }
+
+    @Test
+    void evaluationDoesNotModifyDefaults() {
+        Evaluator first = Evaluator.newEvaluator();
+        String matrix = first.evaluateConstant("mm").toString();
+        String vector = first.evaluateConstant("v").toString();
+
+        first.evaluateConstant("mm + m");
+        first.evaluateConstant("{1, 2, 3, 4, 5, 6, 7, 8, 9} + v");
+
+        Evaluator second = Evaluator.newEvaluator();
+        assertThat(second.evaluateConstant("mm").toString()).isEqualTo(matrix);
+        assertThat(second.evaluateConstant("v").toString()).isEqualTo(vector);
+    }
+}
@@ -0,0 +1,93 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParseCacheTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    @Test
+    void disabledByDefault() {
+        assertThat(evaluator.getParseCache()).isNull();
+        assertThat(evaluator.generateTree("1 + 2")).isNotSameAs(evaluator.generateTree("1 + 2"));
+    }
+
+    @Test
+    void reusesTreesForSameText() {
+        evaluator.enableParseCache(10);
+        ParseCache cache = evaluator.getParseCache();
+
+        Node first = evaluator.generateTree("x^2 + 3");
+        Node second = evaluator.generateTree("  x^2 + 3 ");
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evaluatesCachedTreesRepeatedly() {
+        evaluator.enableParseCache(10);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(evaluator.evaluateDouble("sum({1, 2, 3} * 2) + 4")).isEqualTo(16);
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        evaluator.enableParseCache(2);
+        ParseCache cache = evaluator.getParseCache();
+
+        Node a = evaluator.generateTree("1 + 1");
+        evaluator.generateTree("2 + 2");
+        evaluator.generateTree("1 + 1");
+        evaluator.generateTree("3 + 3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(evaluator.generateTree("1 + 1")).isSameAs(a);
+
+        evaluator.generateTree("2 + 2");
+        assertThat(cache.getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    void invalidatedByNewFunction() {
+        evaluator.enableParseCache(10);
+        ParseCache cache = evaluator.getParseCache();
+
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateDouble("sq(3)"));
+
+        evaluator.evaluateConstant("sq(y) := y^2");
+        assertThat(evaluator.evaluateDouble("sq(3)")).isEqualTo(9);
+
+        evaluator.evaluateConstant("sq(y) := y^3");
+        assertThat(evaluator.evaluateDouble("sq(3)")).isEqualTo(27);
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void variablesDoNotInvalidate() {
+        evaluator.enableParseCache(10);
+        ParseCache cache = evaluator.getParseCache();
+
+        evaluator.addVariable("a", 4);
+        assertThat(evaluator.evaluateDouble("a * 2")).isEqualTo(8);
+        evaluator.addVariable("a", 5);
+        assertThat(evaluator.evaluateDouble("a * 2")).isEqualTo(10);
+
+        assertThat(cache.getInvalidations()).isZero();
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> evaluator.enableParseCache(0));
+    }
+}
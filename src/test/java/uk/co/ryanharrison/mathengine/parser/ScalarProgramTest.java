@@ -0,0 +1,79 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScalarProgramTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    @Test
+    void infersScalarTrees() {
+        assertThat(evaluator.compile("x^2 + 8*x + 12", "x").isScalar()).isTrue();
+        assertThat(evaluator.compile("sin(x) * abs(y) / ln(x + pi)", "x", "y").isScalar()).isTrue();
+        assertThat(evaluator.compile("sum({1, 2}) * x", "x").isScalar()).isTrue();
+
+        assertThat(evaluator.compile("sum({x, 2})", "x").isScalar()).isFalse();
+        assertThat(evaluator.compile("x + 10%", "x").isScalar()).isFalse();
+        assertThat(evaluator.compile("x > 2", "x").isScalar()).isFalse();
+        assertThat(evaluator.compile("x!", "x").isScalar()).isFalse();
+        assertThat(evaluator.compile("x + y", "x").isScalar()).isFalse();
+    }
+
+    @Test
+    void matchesInterpreter() {
+        String[] expressions = {"x^2 + 8*x + 12", "2*pi*x/360 + sin(x) * x^3 - 2 / x",
+                "abs(ln(x^2 + 1) - cos(x / 3)) * tan(x / 10)", "(x - 1) / (x + 1) ^ 0.5"};
+
+        for (String expression : expressions) {
+            CompiledExpression compiled = evaluator.compile(expression, "x");
+            for (double x = 0.1; x < 6; x += 0.45) {
+                double expected = evaluator.evaluateDouble(expression, Map.of("x", x));
+                assertThat(compiled.evaluate(x)).as(expression + " at " + x)
+                        .isCloseTo(expected, within(1e-12 * Math.max(1, Math.abs(expected))));
+            }
+        }
+    }
+
+    @Test
+    void leavesFailingConstantsToInterpreter() {
+        CompiledExpression compiled = evaluator.compile("x + 1 / 0", "x");
+
+        assertThat(compiled.isScalar()).isFalse();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compiled.evaluate(2));
+        assertThat(e).hasMessage("Zero denominator");
+    }
+
+    @Test
+    void divergesAtZerosOfUnaryFunctions() {
+        CompiledExpression compiled = evaluator.compile("1 / sin(x)", "x");
+
+        assertThat(compiled.isScalar()).isTrue();
+        assertThat(compiled.evaluate(0)).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateDouble("1 / sin(x)", Map.of("x", 0.0)));
+    }
+
+    @Test
+    void evaluatesMultipleSlots() {
+        CompiledExpression compiled = evaluator.compile("a * b - c^2", "a", "b", "c");
+
+        assertThat(compiled.isScalar()).isTrue();
+        assertThat(compiled.evaluate(2, 3, 4)).isEqualTo(-10);
+    }
+
+    @Test
+    void usesCurrentAngleUnit() {
+        CompiledExpression compiled = evaluator.compile("sin(x)", "x");
+
+        evaluator.setAngleUnit(AngleUnit.Degrees);
+        assertThat(compiled.evaluate(90)).isCloseTo(1, within(1e-12));
+
+        evaluator.setAngleUnit(AngleUnit.Gradians);
+        assertThat(compiled.evaluate(100)).isCloseTo(1, within(1e-12));
+    }
+}
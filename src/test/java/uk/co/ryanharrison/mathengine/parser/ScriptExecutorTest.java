@@ -0,0 +1,174 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScriptExecutorTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void executesStatementsInOrder() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute(
+                "a := 2\n\nb := a * 3\nc := b + a\nb := 1\nb + c");
+
+        assertThat(result.size()).isEqualTo(5);
+        assertThat(result.hasErrors()).isFalse();
+        assertThat(result.getResult(4).toString()).isEqualTo("9");
+        assertThat(evaluator.evaluateDouble("ans")).isEqualTo(9);
+    }
+
+    @Test
+    void recordsErrorsWithoutStopping() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute(
+                List.of("a := 1", "b := a +", "c := missing + 1", "a + 1"));
+
+        assertThat(result.getError(1)).isNotNull();
+        assertThat(result.getError(2)).isNotNull();
+        assertThat(result.getResult(2)).isNull();
+        assertThat(result.getResult(3).toString()).isEqualTo("2");
+    }
+
+    @Test
+    void functionDefinitionsAreBarriers() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute(List.of(
+                "k := 2", "f(x) := x * k", "a := f(3)", "f(x) := x + k", "b := f(3)", "k := 10", "f(1)"));
+
+        assertThat(result.hasErrors()).isFalse();
+        assertThat(result.getResult(2).toString()).isEqualTo("6");
+        assertThat(result.getResult(4).toString()).isEqualTo("5");
+        assertThat(result.getResult(6).toString()).isEqualTo("11");
+    }
+
+    @Test
+    void nestedDefinitionsAreWrites() {
+        for (int run = 0; run < 20; run++) {
+            Evaluator evaluator = Evaluator.newEvaluator();
+            ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute(List.of(
+                    "a := 1", "b := {300!, a := 5}", "c := a * 2", "a := 7", "total := a + c"));
+
+            assertThat(result.hasErrors()).isFalse();
+            assertThat(result.getResult(2).toString()).isEqualTo("10");
+            assertThat(result.getResult(4).toString()).isEqualTo("17");
+        }
+    }
+
+    @Test
+    void nestedFunctionDefinitionsAreBarriers() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        evaluator.evaluateConstant("g(x) := x + 1");
+        ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute(List.of(
+                "a := g(300!) - 300!", "b := {1, g(x) := x * 2}", "c := g(2)"));
+
+        assertThat(result.hasErrors()).isFalse();
+        assertThat(result.getResult(0).toString()).isEqualTo("1");
+        assertThat(result.getResult(2).toString()).isEqualTo("4");
+    }
+
+    @Test
+    void readsAnsOfPreviousStatement() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute(List.of(
+                "5", "x := 2", "ans * 10", "y := 7", "bad +", "ans + 1"));
+
+        assertThat(result.getResult(2).toString()).isEqualTo("20");
+        assertThat(result.getResult(5).toString()).isEqualTo("8");
+    }
+
+    @Test
+    void clearingVariablesClearsAns() {
+        Evaluator evaluator = Evaluator.newEvaluator();
+        ScriptExecutor.Result result = new ScriptExecutor(evaluator, pool).execute("a := 1\nclearvars\nans + 1");
+
+        assertThat(result.getError(2)).hasMessage("No value associated with \"ans\"");
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateConstant("ans"));
+    }
+
+    @Test
+    void matchesSerialEvaluation() {
+        Random random = new Random(7);
+
+        for (int run = 0; run < 20; run++) {
+            List<String> script = run == 0 ? List.of("a := 1", "clearvars", "ans + 1", "b := 4", "clearvars", "a")
+                    : randomScript(random);
+
+            Evaluator serial = Evaluator.newEvaluator();
+            List<String> expected = new ArrayList<>();
+            for (String statement : script) {
+                try {
+                    expected.add(String.valueOf(serial.evaluateConstant(statement)));
+                } catch (RuntimeException e) {
+                    expected.add("error");
+                }
+            }
+
+            Evaluator parallel = Evaluator.newEvaluator();
+            ScriptExecutor.Result result = new ScriptExecutor(parallel, pool).execute(script);
+            for (int i = 0; i < script.size(); i++) {
+                String actual = result.getError(i) != null ? "error" : String.valueOf(result.getResult(i));
+                assertThat(actual).as("statement %d of %s", i, script).isEqualTo(expected.get(i));
+            }
+
+            for (String name : new String[]{"ans", "v0", "v1", "v2", "v3", "v4", "v5"}) {
+                String expectedValue = valueOf(serial, name);
+                assertThat(valueOf(parallel, name)).as("%s after %s", name, script).isEqualTo(expectedValue);
+            }
+        }
+    }
+
+    private static List<String> randomScript(Random random) {
+        List<String> script = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String left = operand(random);
+            String right = operand(random);
+            if (random.nextInt(15) == 0) {
+                script.add("clearvars");
+                continue;
+            }
+
+            switch (random.nextInt(8)) {
+                case 0:
+                    script.add("g(x) := x * " + left);
+                    break;
+                case 1:
+                    script.add(left + " + ans");
+                    break;
+                case 2:
+                    script.add("v" + random.nextInt(6) + " := g(" + left + ") - " + right);
+                    break;
+                default:
+                    script.add("v" + random.nextInt(6) + " := " + left + " * 2 + " + right);
+                    break;
+            }
+        }
+        return script;
+    }
+
+    private static String operand(Random random) {
+        return random.nextBoolean() ? "v" + random.nextInt(6) : String.valueOf(random.nextInt(10));
+    }
+
+    private static String valueOf(Evaluator evaluator, String name) {
+        try {
+            return evaluator.evaluateConstant(name).toString();
+        } catch (RuntimeException e) {
+            return "undefined";
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TreeSimplifierTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    private Node simplified(String expression, String... variables) {
+        return evaluator.compile(expression, variables).getTree();
+    }
+
+    private NodeConstant simplifyConstant(String expression) {
+        Node tree = TreeSimplifier.simplify(evaluator.getContext(), evaluator.generateTree(expression));
+        assertThat(tree).isInstanceOf(NodeConstant.class);
+        return (NodeConstant) tree;
+    }
+
+    @Test
+    void foldsConstantSubtrees() {
+        Node tree = simplified("2*pi*x/360", "x");
+
+        // (2 * pi) * x / 360 folds the leading constants but keeps the division
+        assertThat(tree).isInstanceOf(NodeExpression.class);
+        NodeExpression division = (NodeExpression) tree;
+        NodeExpression product = (NodeExpression) division.getArgOne();
+        assertThat(product.getArgOne()).isEqualTo(new NodeDouble(2 * Math.PI));
+        assertThat(product.getArgTwo()).isInstanceOf(NodeSlot.class);
+    }
+
+    @Test
+    void foldingKeepsRationals() {
+        assertThat(simplifyConstant("1/3 + 1/6")).isEqualTo(new NodeRational(1, 2));
+        assertThat(simplifyConstant("(2/3)^2")).isEqualTo(new NodeRational(4, 9));
+        assertThat(simplifyConstant("1.5 * 2")).isInstanceOf(NodeNumber.class);
+    }
+
+    @Test
+    void removesIdentities() {
+        assertThat(simplified("x^1 + 0", "x")).isInstanceOf(NodeSlot.class);
+        assertThat(simplified("1 * x / 1 - 0", "x")).isInstanceOf(NodeSlot.class);
+        assertThat(simplified("0 + x * (3 - 2)", "x")).isInstanceOf(NodeSlot.class);
+        assertThat(simplified("(x + 2)^0", "x")).isEqualTo(new NodeDouble(1));
+    }
+
+    @Test
+    void squaresBecomeMultiplication() {
+        NodeExpression tree = (NodeExpression) simplified("x^2", "x");
+
+        assertThat(tree.getOperator().toString()).isEqualTo("*");
+        assertThat(tree.getArgOne()).isInstanceOf(NodeSlot.class);
+        assertThat(tree.getArgTwo()).isInstanceOf(NodeSlot.class);
+    }
+
+    @Test
+    void keepsIdentitiesWhichChangeType() {
+        evaluator.getContext().addConstant("dzero", new NodeDouble(0));
+        evaluator.getContext().addConstant("done", new NodeDouble(1));
+
+        // ln(x) may be rational, which becomes a double when combined with a double identity
+        assertThat(((NodeExpression) simplified("(ln(x)) * done", "x")).getOperator().toString()).isEqualTo("*");
+        assertThat(((NodeExpression) simplified("(ln(x)) + dzero", "x")).getOperator().toString()).isEqualTo("+");
+        assertThat(((NodeExpression) simplified("sin(x)^0", "x")).getOperator().toString()).isEqualTo("^");
+
+        // whereas a rational identity keeps either kind of number
+        assertThat(((NodeExpression) simplified("(ln(x)) * 1", "x")).getOperator().toString()).isEqualTo("ln");
+
+        // and a double identity is removed when the other operand is a double
+        assertThat(simplified("x * done + dzero", "x")).isInstanceOf(NodeSlot.class);
+    }
+
+    @Test
+    void keepsAnnihilatorsAndVectors() {
+        assertThat(simplified("x * 0", "x")).isInstanceOf(NodeExpression.class);
+        assertThat(evaluator.compile("x * 0", "x").evaluate(Double.POSITIVE_INFINITY)).isNaN();
+
+        assertThat(simplified("{x, 1} * 1", "x")).isInstanceOf(NodeExpression.class);
+    }
+
+    @Test
+    void leavesErrorsForEvaluation() {
+        assertThat(simplified("x + 1/0", "x")).isInstanceOf(NodeExpression.class);
+    }
+
+    @Test
+    void matchesUnsimplifiedEvaluation() {
+        String[] expressions = {"2*pi*x/360", "x^2 + 3*x^1 - 0", "(x + 0) * 1 / (1 + 1)", "sin(pi/2) * x^0", "x - 5 + t"};
+
+        for (String expression : expressions) {
+            CompiledExpression compiled = evaluator.compile(expression, "x");
+            for (double x = -2; x < 2; x += 0.3) {
+                double expected = evaluator.evaluateDouble(expression, java.util.Map.of("x", x));
+                assertThat(compiled.evaluate(x)).as(expression).isCloseTo(expected, within(1e-12));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TreeWalkerTest {
+
+    private final EvaluationContext context = ExpressionParserTest.newContext();
+
+    @Test
+    void visitsChildrenInOrder() {
+        Node tree = new ExpressionParser(context).parse("{a, b + c, {p, q}}");
+
+        List<Node> children = new ArrayList<>();
+        TreeWalker.forEachChild(tree, children::add);
+
+        assertThat(children).extracting(Node::toString).containsExactly("a", "(b + c)", "{ p, q }");
+    }
+
+    @Test
+    void stopsAtFirstMismatch() {
+        Node tree = new ExpressionParser(context).parse("{a, b, c}");
+
+        List<Node> tested = new ArrayList<>();
+        boolean result = TreeWalker.allChildren(tree, child -> tested.add(child) && !child.toString().equals("b"));
+
+        assertThat(result).isFalse();
+        assertThat(tested).hasSize(2);
+    }
+
+    @Test
+    void mapsChildren() {
+        Node tree = new ExpressionParser(context).parse("x := a + b");
+
+        Node mapped = TreeWalker.mapChildren(tree, child -> new NodeDouble(1));
+
+        assertThat(mapped).isInstanceOf(NodeAddVariable.class);
+        assertThat(((NodeAddVariable) mapped).getNode()).isEqualTo(new NodeDouble(1));
+    }
+
+    @Test
+    void vectorsOfDoublesHaveNoChildren() {
+        NodeVector vector = new NodeVector(new double[]{1, 2, 3});
+
+        assertThat(TreeWalker.mapChildren(vector, child -> new NodeDouble(0))).isSameAs(vector);
+        assertThat(TreeWalker.allChildren(vector, child -> false)).isTrue();
+    }
+}
@@ -0,0 +1,106 @@
+package uk.co.ryanharrison.mathengine.parser;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.Node;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeBoundVariable;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeDouble;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeExpression;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeFunction;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VariableBinderTest {
+
+    private Evaluator evaluator = Evaluator.newEvaluator();
+
+    @Test
+    void bindsVariablesOfParsedTrees() {
+        NodeExpression tree = (NodeExpression) evaluator.generateTree("a + b");
+
+        assertThat(tree.getArgOne()).isInstanceOf(NodeBoundVariable.class);
+        assertThat(tree.getArgTwo()).isInstanceOf(NodeBoundVariable.class);
+        assertThat(tree.toString()).isEqualTo("(a + b)");
+    }
+
+    @Test
+    void sharesOneCellPerName() {
+        NodeExpression first = (NodeExpression) evaluator.generateTree("a * 2");
+        NodeExpression second = (NodeExpression) evaluator.generateTree("a + a");
+
+        NodeBoundVariable a = (NodeBoundVariable) first.getArgOne();
+        assertThat(((NodeBoundVariable) second.getArgOne()).getCell()).isSameAs(a.getCell());
+        assertThat(((NodeBoundVariable) second.getArgTwo()).getCell()).isSameAs(a.getCell());
+    }
+
+    @Test
+    void seesRedefinedVariables() {
+        Node tree = evaluator.generateTree("a * b + 1");
+
+        evaluator.evaluateConstant("a := 2");
+        evaluator.evaluateConstant("b := 3");
+        assertThat(evaluator.parseTree(tree).toString()).isEqualTo("7");
+
+        evaluator.evaluateConstant("b := 10");
+        assertThat(evaluator.parseTree(tree).toString()).isEqualTo("21");
+    }
+
+    @Test
+    void clearingVariablesClearsCells() {
+        evaluator.evaluateConstant("a := 2");
+        Node tree = evaluator.generateTree("a + 1");
+        assertThat(evaluator.parseTree(tree).toString()).isEqualTo("3");
+
+        evaluator.evaluateConstant("clearvars");
+        assertThrows(IllegalArgumentException.class, () -> evaluator.parseTree(tree));
+
+        evaluator.evaluateConstant("a := 5");
+        assertThat(evaluator.parseTree(tree).toString()).isEqualTo("6");
+    }
+
+    @Test
+    void clearingVariablesDiscardsCells() {
+        NodeExpression before = (NodeExpression) evaluator.generateTree("a + 1");
+        evaluator.evaluateConstant("clearvars");
+        NodeExpression after = (NodeExpression) evaluator.generateTree("a + 1");
+
+        assertThat(((NodeBoundVariable) after.getArgOne()).getCell())
+                .isNotSameAs(((NodeBoundVariable) before.getArgOne()).getCell());
+    }
+
+    @Test
+    void leavesParametersUnbound() {
+        NodeFunction function = (NodeFunction) evaluator.generateTree("f(x, y) := x * y + a");
+        NodeExpression body = (NodeExpression) function.getNode();
+        NodeExpression product = (NodeExpression) body.getArgOne();
+
+        assertThat(product.getArgOne()).isNotInstanceOf(NodeBoundVariable.class);
+        assertThat(product.getArgTwo()).isNotInstanceOf(NodeBoundVariable.class);
+        assertThat(body.getArgTwo()).isInstanceOf(NodeBoundVariable.class);
+
+        evaluator.evaluateConstant("a := 1");
+        assertThat(evaluator.evaluateDouble("f({2, 3})")).isEqualTo(7);
+    }
+
+    @Test
+    void argumentsShadowBoundVariables() {
+        evaluator.evaluateConstant("a := 2");
+
+        assertThat(evaluator.evaluateDouble("a + 1", Map.of("a", 10.0))).isEqualTo(11);
+        assertThat(evaluator.evaluateDouble("a + 1")).isEqualTo(3);
+
+        evaluator.evaluateConstant("f(a) := a * 3");
+        assertThat(evaluator.evaluateDouble("f(5) + a")).isEqualTo(17);
+    }
+
+    @Test
+    void parsesUnboundTreesByDefault() {
+        EvaluationContext context = ExpressionParserTest.newContext();
+        Node tree = new ExpressionParser(context).parse("x + 1");
+
+        assertThat(((NodeExpression) tree).getArgOne()).isNotInstanceOf(NodeBoundVariable.class);
+        assertThat(VariableBinder.bind(context, new NodeDouble(1))).isEqualTo(new NodeDouble(1));
+    }
+}
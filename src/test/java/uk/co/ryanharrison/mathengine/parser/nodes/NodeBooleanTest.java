@@ -94,4 +94,11 @@ class NodeBooleanTest {
         assertThat(a.pow(new NodeDouble(2))).isEqualTo(new NodeDouble(1));
         assertThat(b.pow(new NodeDouble(3))).isEqualTo(new NodeDouble(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void valueOfIsShared() {
+        assertThat(NodeBoolean.valueOf(true)).isSameAs(NodeBoolean.valueOf(true));
+        assertThat(NodeBoolean.valueOf(false)).isEqualTo(b);
+        assertThat(NodeBoolean.valueOf(true).getValue()).isTrue();
+    }
+}
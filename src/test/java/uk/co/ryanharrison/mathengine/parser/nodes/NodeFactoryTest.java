@@ -0,0 +1,62 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NodeFactoryTest {
+
+    @Test
+    void literalsAreExact() {
+        assertThat(NodeFactory.createNodeNumberFromLiteral("0.1").toString()).isEqualTo("1/10");
+        assertThat(NodeFactory.createNodeNumberFromLiteral("-2.50").toString()).isEqualTo("-5/2");
+        assertThat(NodeFactory.createNodeNumberFromLiteral("0.0005").toString()).isEqualTo("1/2000");
+        assertThat(NodeFactory.createNodeNumberFromLiteral("12345678").toString()).isEqualTo("12345678");
+        assertThat(NodeFactory.createNodeNumberFromLiteral("3.000").toString()).isEqualTo("3");
+        assertThat(NodeFactory.createNodeNumberFromLiteral(".5").toString()).isEqualTo("1/2");
+    }
+
+    @Test
+    void longLiteralsAreDoubles() {
+        assertThat(NodeFactory.createNodeNumberFromLiteral("3.14159")).isInstanceOf(NodeDouble.class);
+        assertThat(NodeFactory.createNodeNumberFromLiteral("5000000000")).isInstanceOf(NodeDouble.class);
+        assertThat(NodeFactory.createNodeNumberFromLiteral("1e3").doubleValue()).isEqualTo(1000);
+    }
+
+    @Test
+    void normalizesDoubles() {
+        assertThat(NodeFactory.createNodeNumberFrom(0.1).toString()).isEqualTo("1/10");
+        assertThat(NodeFactory.createNodeNumberFrom(0.1 + 0.2)).isInstanceOf(NodeDouble.class);
+        assertThat(NodeFactory.createNodeNumberFrom(-7.25).toString()).isEqualTo("-29/4");
+        assertThat(NodeFactory.createNodeNumberFrom(479001600.0).toString()).isEqualTo("479001600");
+        assertThat(NodeFactory.createNodeNumberFrom(Math.PI)).isInstanceOf(NodeDouble.class);
+        assertThat(NodeFactory.createNodeNumberFrom(Double.NaN)).isInstanceOf(NodeDouble.class);
+        assertThat(NodeFactory.createNodeNumberFrom(Double.POSITIVE_INFINITY)).isInstanceOf(NodeDouble.class);
+    }
+
+    @Test
+    void sharesSmallIntegers() {
+        assertThat(NodeFactory.createNodeNumberFrom(12.0)).isSameAs(NodeFactory.createNodeNumberFromLiteral("12"));
+        assertThat(NodeFactory.createNodeNumberFrom(-3L)).isSameAs(NodeFactory.createNodeNumberFrom(-3.0));
+    }
+
+    @Test
+    void literalsMatchTheirDoubleValue() {
+        Random random = new Random(11);
+
+        for (int i = 0; i < 10000; i++) {
+            long integer = random.nextInt(200000) - 100000;
+            int places = random.nextInt(5);
+            String fraction = String.format("%04d", random.nextInt(10000)).substring(0, places);
+            String literal = places == 0 ? Long.toString(integer) : integer + "." + fraction;
+
+            NodeNumber exact = NodeFactory.createNodeNumberFromLiteral(literal);
+            NodeNumber normalized = NodeFactory.createNodeNumberFrom(Double.parseDouble(literal));
+
+            assertThat(exact).as(literal).isInstanceOf(NodeRational.class);
+            assertThat(exact).as(literal).isEqualTo(normalized);
+        }
+    }
+}
@@ -3,6 +3,10 @@ package uk.co.ryanharrison.mathengine.parser.nodes;
 import org.junit.jupiter.api.Test;
 import uk.co.ryanharrison.mathengine.linearalgebra.Matrix;
 
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class NodeMatrixTest {
@@ -155,4 +159,94 @@ class NodeMatrixTest {
         assertThat(b.toString()).isEqualTo("77.0\t56.0\n" +
                 "11.0\t65.0");
     }
-}
\ No newline at end of file
+
+    @Test
+    void denseMatchesNodes() {
+        NodeMatrix dense = new NodeMatrix(new Matrix(new double[][]{{12, 43}, {24, 7}}));
+
+        assertThat(dense.isDense()).isTrue();
+        assertThat(a.isDense()).isFalse();
+        assertThat(dense).isEqualTo(a);
+        assertThat(a).isEqualTo(dense);
+        assertThat(dense.hashCode()).isEqualTo(a.hashCode());
+        assertThat(dense.toString()).isEqualTo(a.toString());
+        assertThat(dense.toShortString()).isEqualTo(a.toShortString());
+        assertThat(dense.getTransformer().toNodeNumber()).isEqualTo(a.getTransformer().toNodeNumber());
+        assertThat(dense.getTransformer().toNodeVector()).isEqualTo(a.getTransformer().toNodeVector());
+        assertThat(dense.getValues()).isEqualTo(a.getValues());
+    }
+
+    @Test
+    void sharesMatrix() {
+        Matrix matrix = new Matrix(new double[][]{{1, 2}, {3, 4}});
+
+        assertThat(new NodeMatrix(matrix).toDoubleMatrix()).isSameAs(matrix);
+        assertThat(a.applyUniFunc(n -> n.add(new NodeDouble(1))).isDense()).isTrue();
+        assertThat(a.resolve(n -> (NodeConstant) n).isDense()).isTrue();
+    }
+
+    @Test
+    void applyDoubleBiFuncMatchesApplyBiFunc() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 1000; i++) {
+            NodeConstant x = randomOperand(random, true);
+            NodeConstant y = randomOperand(random, random.nextBoolean());
+
+            assertDoubleBiFuncMatches(x, y, (p, q) -> p + q, NodeNumber::add);
+            assertDoubleBiFuncMatches(y, x, (p, q) -> p - q, NodeNumber::subtract);
+            assertDoubleBiFuncMatches(x, y, (p, q) -> p * q, NodeNumber::multiply);
+            assertDoubleBiFuncMatches(y, x, (p, q) -> p / q, NodeNumber::divide);
+        }
+    }
+
+    private static NodeConstant randomOperand(Random random, boolean doubles) {
+        if (random.nextInt(4) == 0)
+            return doubles ? new NodeDouble(random.nextDouble()) : new NodeRational(random.nextInt(9) - 4);
+
+        int rows = 1 + random.nextInt(3);
+        int cols = 1 + random.nextInt(3);
+        Node[][] values = new Node[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                values[i][j] = doubles ? new NodeDouble(random.nextDouble() - 0.5) : new NodeRational(random.nextInt(9) - 4, 1 + random.nextInt(4));
+            }
+        }
+        return doubles ? new NodeMatrix(values).resolve(n -> (NodeConstant) n) : new NodeMatrix(values);
+    }
+
+    private static void assertDoubleBiFuncMatches(NodeConstant x, NodeConstant y, DoubleBinaryOperator func,
+                                                  BiFunction<NodeNumber, NodeNumber, NodeConstant> nodeFunc) {
+        NodeMatrix result = NodeMatrix.applyDoubleBiFunc(x, y, func);
+        if (result != null)
+            assertThat(result).as(x + ", " + y).isEqualTo(x.getTransformer().toNodeMatrix().applyBiFunc(y, nodeFunc));
+    }
+
+    @Test
+    void applyDoubleFuncNormalizes() {
+        NodeMatrix dense = new NodeMatrix(new Matrix(new double[][]{{-1.5, 2.25}}));
+
+        assertThat(dense.applyDoubleFunc(Math::abs).getValues()[0]).containsExactly(new NodeRational(3, 2), new NodeRational(9, 4));
+        assertThat(dense.applyDoubleFunc(Math::sin).isDense()).isTrue();
+        assertThat(new NodeMatrix(new Node[][]{{new NodeRational(1)}}).applyDoubleFunc(Math::abs)).isNull();
+    }
+
+    @Test
+    void broadcastsWithoutChangingOperands() {
+        NodeMatrix row = new NodeMatrix(new Node[][]{{new NodeDouble(1), new NodeDouble(2)}});
+        NodeMatrix column = new NodeMatrix(new Matrix(new double[][]{{1}, {2}, {3}}));
+        NodeMatrix dense = new NodeMatrix(new Matrix(new double[][]{{12, 43}, {24, 7}}));
+
+        NodeMatrix sum = new NodeMatrix(new Matrix(new double[][]{{13, 45}, {25, 9}}));
+        assertThat(a.applyBiFunc(row, NodeNumber::add)).isEqualTo(sum);
+        assertThat(NodeMatrix.applyDoubleBiFunc(dense, row, Double::sum)).isEqualTo(sum);
+
+        NodeMatrix padded = new NodeMatrix(new Matrix(new double[][]{{13, 44}, {26, 9}, {3, 3}}));
+        assertThat(a.applyBiFunc(column, NodeNumber::add)).isEqualTo(padded);
+        assertThat(NodeMatrix.applyDoubleBiFunc(dense, column, Double::sum)).isEqualTo(padded);
+
+        assertThat(row.rowCount()).isEqualTo(1);
+        assertThat(column.colCount()).isEqualTo(1);
+        assertThat(a.rowCount()).isEqualTo(2);
+    }
+}
@@ -1,8 +1,13 @@
 package uk.co.ryanharrison.mathengine.parser.nodes;
 
 import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.BigRational;
+
+import java.math.BigInteger;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class NodeRationalTest {
 
@@ -89,4 +94,69 @@ class NodeRationalTest {
         assertThat(a.pow(new NodeRational(2))).isEqualTo(new NodeRational(23.5*23.5));
         assertThat(b.pow(new NodeRational(3))).isEqualTo(new NodeRational(-1.5*-1.5*-1.5));
     }
-}
\ No newline at end of file
+
+    @Test
+    void promotesOnOverflow() {
+        NodeRational large = new NodeRational(Long.MAX_VALUE / 2, 3);
+        NodeNumber sum = large.add(large).add(large);
+
+        assertThat(sum.toString()).isEqualTo(BigInteger.valueOf(Long.MAX_VALUE / 2).toString());
+        assertThat(large.multiply(large).toString())
+                .isEqualTo(new BigRational(Long.MAX_VALUE / 2, 3L).multiply(new BigRational(Long.MAX_VALUE / 2, 3L)).toString());
+        assertThat(new NodeRational(2, 1).pow(new NodeRational(100, 1)).toString())
+                .isEqualTo(BigInteger.TWO.pow(100).toString());
+        assertThat(large.multiply(large).divide(large)).isEqualTo(large);
+    }
+
+    @Test
+    void divideByZero() {
+        assertThrows(IllegalArgumentException.class, () -> a.divide(new NodeRational(0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> new NodeRational(0, 1).pow(new NodeRational(-1, 1)));
+    }
+
+    @Test
+    void matchesBigRational() {
+        Random random = new Random(3);
+
+        for (int i = 0; i < 5000; i++) {
+            long[] values = new long[4];
+            for (int j = 0; j < values.length; j++) {
+                long bound = random.nextBoolean() ? 1000 : Long.MAX_VALUE >> random.nextInt(40);
+                values[j] = random.nextLong() % bound;
+            }
+            if (values[1] == 0) values[1] = 1;
+            if (values[3] == 0) values[3] = -1;
+
+            NodeRational x = new NodeRational(values[0], values[1]);
+            NodeRational y = new NodeRational(values[2], values[3]);
+            BigRational bx = new BigRational(BigInteger.valueOf(values[0]), BigInteger.valueOf(values[1]));
+            BigRational by = new BigRational(BigInteger.valueOf(values[2]), BigInteger.valueOf(values[3]));
+
+            assertThat(x.add(y).toString()).isEqualTo(bx.add(by).toString());
+            assertThat(x.subtract(y).toString()).isEqualTo(bx.subtract(by).toString());
+            assertThat(x.multiply(y).toString()).isEqualTo(bx.multiply(by).toString());
+            assertThat(x.compareTo(y)).isEqualTo(bx.compareTo(by));
+            assertThat(x.doubleValue()).isEqualTo(bx.doubleValue());
+            assertThat(x.hashCode()).isEqualTo(new NodeRational(bx).hashCode());
+            assertThat(x.hashCode()).isEqualTo(31 + bx.hashCode());
+            if (values[2] != 0)
+                assertThat(x.divide(y).toString()).isEqualTo(bx.divide(by).toString());
+
+            int exponent = random.nextInt(9) - 4;
+            if (values[0] != 0)
+                assertThat(x.pow(new NodeRational(exponent, 1)).toString()).isEqualTo(bx.pow((long) exponent).toString());
+        }
+    }
+
+    @Test
+    void sharesCommonValues() {
+        NodeNumber half = new NodeRational(1, 3).add(new NodeRational(1, 6));
+
+        assertThat(half).isSameAs(NodeFactory.createNodeNumberFromLiteral("0.5"));
+        assertThat(half).isSameAs(NodeFactory.createNodeNumberFrom(0.5));
+        assertThat(half.multiply(new NodeRational(4, 1))).isSameAs(NodeFactory.createNodeNumberFrom(2L));
+        assertThat(new NodeRational(7, 1).subtract(new NodeRational(7, 1))).isSameAs(NodeFactory.createZeroNumber());
+        assertThat(new NodeRational(1000, 3).add(new NodeRational(1, 3)))
+                .isNotSameAs(new NodeRational(1000, 3).add(new NodeRational(1, 3)));
+    }
+}
@@ -3,6 +3,10 @@ package uk.co.ryanharrison.mathengine.parser.nodes;
 import org.junit.jupiter.api.Test;
 import uk.co.ryanharrison.mathengine.linearalgebra.Vector;
 
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class NodeVectorTest {
@@ -103,4 +107,69 @@ class NodeVectorTest {
         assertThat(a.toString()).isEqualTo("{ 12.0, 43.0 }");
         assertThat(b.toString()).isEqualTo("{ 75.0 }");
     }
-}
\ No newline at end of file
+
+    @Test
+    void doublesMatchNodes() {
+        NodeVector doubles = new NodeVector(new double[]{12, 43});
+
+        assertThat(doubles).isEqualTo(a);
+        assertThat(a).isEqualTo(doubles);
+        assertThat(doubles.hashCode()).isEqualTo(a.hashCode());
+        assertThat(doubles.toString()).isEqualTo(a.toString());
+        assertThat(doubles.getTransformer().toNodeNumber()).isEqualTo(a.getTransformer().toNodeNumber());
+        assertThat(doubles.getValues()).containsExactly(a.getValues());
+        assertThat(new NodeVector(new double[0]).getTransformer().toNodeNumber()).isEqualTo(new NodeRational(0));
+    }
+
+    @Test
+    void applyDoubleBiFuncMatchesApplyBiFunc() {
+        Random random = new Random(5);
+
+        for (int i = 0; i < 1000; i++) {
+            NodeConstant x = randomOperand(random, true);
+            NodeConstant y = randomOperand(random, random.nextBoolean());
+
+            assertDoubleBiFuncMatches(x, y, (p, q) -> p + q, NodeNumber::add);
+            assertDoubleBiFuncMatches(y, x, (p, q) -> p - q, NodeNumber::subtract);
+            assertDoubleBiFuncMatches(x, y, (p, q) -> p * q, NodeNumber::multiply);
+            assertDoubleBiFuncMatches(y, x, (p, q) -> p / q, NodeNumber::divide);
+        }
+    }
+
+    private static NodeConstant randomOperand(Random random, boolean doubles) {
+        if (random.nextInt(4) == 0)
+            return doubles ? new NodeDouble(random.nextDouble()) : new NodeRational(random.nextInt(9) - 4);
+
+        Node[] values = new Node[random.nextInt(4)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = doubles ? new NodeDouble(random.nextDouble() - 0.5) : new NodeRational(random.nextInt(9) - 4, 1 + random.nextInt(4));
+        }
+        return doubles ? new NodeVector(values).resolve(n -> (NodeConstant) n) : new NodeVector(values);
+    }
+
+    private static void assertDoubleBiFuncMatches(NodeConstant x, NodeConstant y, DoubleBinaryOperator func,
+                                                  BiFunction<NodeNumber, NodeNumber, NodeConstant> nodeFunc) {
+        NodeVector result = NodeVector.applyDoubleBiFunc(x, y, func);
+        if (result != null)
+            assertThat(result).as(x + ", " + y).isEqualTo(x.getTransformer().toNodeVector().applyBiFunc(y, nodeFunc));
+    }
+
+    @Test
+    void applyDoubleBiFuncOnlyForNumbers() {
+        NodeVector doubles = new NodeVector(new double[]{1.5, 2.5});
+
+        assertThat(NodeVector.applyDoubleBiFunc(a, a, Double::sum)).isNull();
+        assertThat(NodeVector.applyDoubleBiFunc(doubles, new NodePercent(50), Double::sum)).isNull();
+        assertThat(NodeVector.applyDoubleBiFunc(doubles, new NodeVector(new Node[]{b}), Double::sum)).isNull();
+        assertThat(NodeVector.applyDoubleBiFunc(doubles, new NodeRational(2), Double::sum)).isEqualTo(new NodeVector(new double[]{3.5, 4.5}));
+    }
+
+    @Test
+    void applyDoubleFuncNormalizes() {
+        NodeVector doubles = new NodeVector(new double[]{-1.5, 2.25});
+
+        assertThat(doubles.applyDoubleFunc(Math::abs).getValues()).containsExactly(new NodeRational(3, 2), new NodeRational(9, 4));
+        assertThat(doubles.applyDoubleFunc(Math::sin)).isEqualTo(new NodeVector(new double[]{Math.sin(-1.5), Math.sin(2.25)}));
+        assertThat(a.applyDoubleFunc(Math::abs)).isNull();
+    }
+}
@@ -0,0 +1,51 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NumberSumTest {
+
+    @Test
+    void emptyIsZero() {
+        assertThat(new NumberSum().getSum()).isEqualTo(NodeFactory.createZeroNumber());
+    }
+
+    @Test
+    void matchesFold() {
+        Random random = new Random(9);
+
+        for (int run = 0; run < 200; run++) {
+            NumberSum sum = new NumberSum();
+            NodeNumber expected = NodeFactory.createZeroNumber();
+
+            for (int i = 0; i < 50; i++) {
+                NodeNumber number;
+                switch (random.nextInt(20)) {
+                    case 0:
+                        number = new NodeDouble(random.nextDouble());
+                        break;
+                    case 1:
+                        number = new NodePercent(random.nextInt(100));
+                        break;
+                    default:
+                        number = new NodeRational(random.nextInt(2000) - 1000, random.nextInt(999) + 1);
+                        break;
+                }
+
+                sum.add(number);
+                expected = expected.add(number);
+            }
+
+            assertThat(sum.getSum()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void sumsVectors() {
+        NodeVector vector = new NodeVector(new Node[]{new NodeRational(1, 3), new NodeRational(1, 6), new NodeRational(1, 2)});
+        assertThat(vector.getTransformer().toNodeNumber().toString()).isEqualTo("1");
+    }
+}
@@ -0,0 +1,120 @@
+package uk.co.ryanharrison.mathengine.parser.nodes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VectorOrderingTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void sortMatchesCompareTo() {
+        for (int i = 0; i < 200; i++) {
+            NodeVector vector = randomVector(random.nextInt(40), i % 4);
+            assertThat(VectorOrdering.sort(vector)).isEqualTo(new NodeVector(sortNodes(vector)));
+        }
+
+        // sorted in parallel
+        NodeVector doubles = randomVector(VectorOrdering.PARALLEL_THRESHOLD * 2, 0);
+        NodeVector mixed = randomVector(VectorOrdering.PARALLEL_THRESHOLD * 2, 1);
+        assertThat(VectorOrdering.sort(doubles)).isEqualTo(new NodeVector(sortNodes(doubles)));
+        assertThat(VectorOrdering.sort(mixed)).isEqualTo(new NodeVector(sortNodes(mixed)));
+    }
+
+    @Test
+    void sortKeepsVectorsOfDoubles() {
+        NodeVector sorted = VectorOrdering.sort(new NodeVector(new double[]{3, Double.NaN, -0.0, 0.0, -1}));
+
+        assertThat(sorted.isDense()).isTrue();
+        assertThat(sorted.toDoubleArray()).isEqualTo(new double[]{-1, -0.0, 0.0, 3, Double.NaN});
+    }
+
+    @Test
+    void sortComparesFractionsExactly() {
+        NodeRational third = new NodeRational(1, 3);
+        NodeRational closeToThird = NodeRational.valueOf(333333333333333334L, 1000000000000000001L);
+        assertThat(third.doubleValue()).isEqualTo(closeToThird.doubleValue());
+
+        NodeVector sorted = VectorOrdering.sort(new NodeVector(new Node[]{closeToThird, third}));
+
+        assertThat(sorted.getValues()).containsExactly(third, closeToThird);
+    }
+
+    @Test
+    void selectionMatchesSort() {
+        for (int i = 0; i < 200; i++) {
+            NodeVector vector = randomVector(random.nextInt(40), i % 4);
+            Node[] sorted = sortNodes(vector);
+            int count = random.nextInt(sorted.length + 3);
+
+            Node[] reversed = sorted.clone();
+            for (int j = 0; j < reversed.length; j++) {
+                reversed[j] = sorted[sorted.length - 1 - j];
+            }
+
+            int length = Math.min(count, sorted.length);
+            assertThat(VectorOrdering.smallest(vector, count)).isEqualTo(new NodeVector(Arrays.copyOf(sorted, length)));
+            assertThat(VectorOrdering.largest(vector, count)).isEqualTo(new NodeVector(Arrays.copyOf(reversed, length)));
+
+            for (int j = 0; j < sorted.length; j++) {
+                assertThat(VectorOrdering.nth(vector, j)).isEqualTo(sorted[j]);
+            }
+        }
+    }
+
+    @Test
+    void nthOutOfRange() {
+        NodeVector vector = new NodeVector(new double[]{1, 2});
+
+        assertThrows(IndexOutOfBoundsException.class, () -> VectorOrdering.nth(vector, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> VectorOrdering.nth(vector, -1));
+    }
+
+    // the sort which compares each pair of elements
+    private static Node[] sortNodes(NodeVector vector) {
+        Node[] results = vector.getValues().clone();
+        Arrays.sort(results);
+        return results;
+    }
+
+    // doubles, then numbers, then numbers and vectors, then only vectors with many equal sums.
+    // Fractions with the same double value are only mixed with numbers, as a vector equal to
+    // both of them compares inconsistently
+    private NodeVector randomVector(int size, int kind) {
+        if (kind == 0) {
+            double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                int choice = random.nextInt(20);
+                values[i] = choice == 0 ? Double.NaN : choice == 1 ? -0.0 : choice == 2 ? 0.0 : random.nextInt(50) / 4.0 + 0.1;
+            }
+            return new NodeVector(values);
+        }
+
+        Node[] values = new Node[size];
+        for (int i = 0; i < size; i++) {
+            if (kind == 3 || kind == 2 && random.nextBoolean())
+                values[i] = new NodeVector(new Node[]{randomNumber(false), randomNumber(false)});
+            else
+                values[i] = randomNumber(kind == 1);
+        }
+        return new NodeVector(values);
+    }
+
+    private NodeNumber randomNumber(boolean closeFractions) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return new NodeDouble(random.nextInt(20) / 2.0 + 0.1);
+            case 1:
+                if (!closeFractions)
+                    return NodeRational.valueOf(random.nextInt(9), 7);
+                return NodeRational.valueOf(333333333333333334L + random.nextInt(3), 1000000000000000001L);
+            default:
+                return NodeRational.valueOf(random.nextInt(40) - 20, 1 + random.nextInt(6));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package uk.co.ryanharrison.mathengine.parser.operators.binary;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SelectionOperatorTest {
+
+    private NodeVector v = new NodeVector(new Node[]{new NodeDouble(4.5), new NodeRational(1, 3), new NodeRational(7), new NodeDouble(-2.5)});
+
+    @Test
+    void topk() {
+        assertThat(new TopK().toResult(v, new NodeRational(2)).toString()).isEqualTo("{ 7, 4.5 }");
+        assertThat(new TopK().toResult(v, new NodeRational(10)).toString()).isEqualTo("{ 7, 4.5, 1/3, -2.5 }");
+        assertThat(new TopK().toResult(v, new NodeRational(0)).toString()).isEqualTo("{  }");
+    }
+
+    @Test
+    void bottomk() {
+        assertThat(new BottomK().toResult(v, new NodeRational(2)).toString()).isEqualTo("{ -2.5, 1/3 }");
+        assertThat(new BottomK().toResult(new NodeVector(new double[]{3, 1, 2}), new NodeDouble(2)).toString()).isEqualTo("{ 1.0, 2.0 }");
+    }
+
+    @Test
+    void nth() {
+        assertThat(new Nth().toResult(v, new NodeRational(1))).isEqualTo(new NodeDouble(-2.5));
+        assertThat(new Nth().toResult(v, new NodeRational(3))).isEqualTo(new NodeDouble(4.5));
+        assertThrows(IllegalArgumentException.class, () -> new Nth().toResult(v, new NodeRational(0)));
+        assertThrows(IllegalArgumentException.class, () -> new Nth().toResult(v, new NodeRational(5)));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TopK().toResult(new NodeRational(3), new NodeRational(1)));
+        assertThrows(IllegalArgumentException.class, () -> new TopK().toResult(v, new NodeRational(-1)));
+        assertThrows(IllegalArgumentException.class, () -> new TopK().toResult(v, new NodeRational(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> new TopK().toResult(v, v));
+    }
+}
@@ -0,0 +1,94 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.StatUtils;
+import uk.co.ryanharrison.mathengine.parser.nodes.*;
+import uk.co.ryanharrison.mathengine.parser.operators.binary.Percentile;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatisticOperatorTest {
+
+    private NodeVector v = new NodeVector(new Node[]{new NodeRational(2), new NodeRational(4), new NodeRational(4),
+            new NodeRational(4), new NodeRational(5), new NodeRational(5), new NodeRational(7), new NodeRational(9)});
+    private NodeVector d = new NodeVector(new double[]{1.5, -2, 8});
+
+    @Test
+    void mean() {
+        assertThat(new Mean().toResult(v)).isEqualTo(new NodeRational(5));
+        assertThat(new Mean().toResult(d).toString()).isEqualTo("5/2");
+        assertThat(new Mean().toResult(new NodeRational(3))).isEqualTo(new NodeRational(3));
+    }
+
+    @Test
+    void median() {
+        assertThat(new Median().toResult(v).toString()).isEqualTo("9/2");
+        assertThat(new Median().toResult(d).toString()).isEqualTo("3/2");
+    }
+
+    @Test
+    void percentile() {
+        assertThat(new Percentile().toResult(v, new NodeRational(1, 2)).toString()).isEqualTo("9/2");
+        assertThat(new Percentile().toResult(v, new NodePercent(100))).isEqualTo(new NodeRational(9));
+        assertThrows(IllegalArgumentException.class, () -> new Percentile().toResult(v, new NodeRational(2)));
+        assertThrows(IllegalArgumentException.class, () -> new Percentile().toResult(new NodeVector(new double[0]), new NodeRational(0)));
+    }
+
+    @Test
+    void varianceAndStandardDeviation() {
+        assertThat(new Variance().toResult(v).getTransformer().toNodeNumber().doubleValue()).isEqualTo(32 / 7.0);
+        assertThat(new StandardDeviation().toResult(v).getTransformer().toNodeNumber().doubleValue()).isEqualTo(Math.sqrt(32 / 7.0));
+    }
+
+    @Test
+    void minAndMaxKeepElements() {
+        NodeRational third = new NodeRational(1, 3);
+        NodeVector mixed = new NodeVector(new Node[]{new NodeDouble(0.5), third, new NodeRational(7)});
+
+        assertThat(new Min().toResult(mixed)).isSameAs(third);
+        assertThat(new Max().toResult(mixed)).isEqualTo(new NodeRational(7));
+        assertThat(new Min().toResult(d)).isEqualTo(new NodeDouble(-2));
+        assertThat(new Max().toResult(d)).isEqualTo(new NodeDouble(8));
+    }
+
+    @Test
+    void product() {
+        assertThat(new Product().toResult(new NodeVector(new Node[]{new NodeRational(3), new NodeRational(4)}))).isEqualTo(new NodeRational(12));
+    }
+
+    @Test
+    void emptyVector() {
+        assertThrows(IllegalArgumentException.class, () -> new Mean().toResult(new NodeVector(new Node[0])));
+        assertThrows(IllegalArgumentException.class, () -> new Max().toResult(new NodeVector(new double[0])));
+    }
+
+    @Test
+    void matchStatUtils() {
+        Random random = new Random(9);
+
+        // a single block and many blocks reduced in parallel
+        for (int length : new int[]{1000, 200_000}) {
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = random.nextDouble() * 100;
+            }
+            NodeVector vector = new NodeVector(values);
+
+            assertThat(doubleValue(new Mean().toResult(vector))).isEqualTo(StatUtils.mean(values));
+            assertThat(doubleValue(new Median().toResult(vector))).isEqualTo(StatUtils.median(values));
+            assertThat(doubleValue(new Variance().toResult(vector))).isEqualTo(StatUtils.variance(values));
+            assertThat(doubleValue(new StandardDeviation().toResult(vector))).isEqualTo(StatUtils.standardDeviation(values));
+            assertThat(doubleValue(new Product().toResult(vector))).isEqualTo(StatUtils.product(values));
+            assertThat(doubleValue(new Min().toResult(vector))).isEqualTo(StatUtils.min(values));
+            assertThat(doubleValue(new Max().toResult(vector))).isEqualTo(StatUtils.max(values));
+            assertThat(doubleValue(new Percentile().toResult(vector, new NodeRational(9, 10)))).isEqualTo(StatUtils.percentile(values, 0.9));
+        }
+    }
+
+    private static double doubleValue(NodeConstant constant) {
+        return constant.getTransformer().toNodeNumber().doubleValue();
+    }
+}
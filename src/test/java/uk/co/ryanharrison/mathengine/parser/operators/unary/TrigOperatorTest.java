@@ -0,0 +1,34 @@
+package uk.co.ryanharrison.mathengine.parser.operators.unary;
+
+import org.junit.jupiter.api.Test;
+import uk.co.ryanharrison.mathengine.parser.AngleUnit;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeConstant;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeDouble;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeRational;
+import uk.co.ryanharrison.mathengine.parser.nodes.NodeVector;
+import uk.co.ryanharrison.mathengine.parser.operators.unary.simple.Cosine;
+import uk.co.ryanharrison.mathengine.parser.operators.unary.simple.Sine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TrigOperatorTest {
+
+    @Test
+    void anglesInGivenUnit() {
+        assertThat(value(new Sine().toResult(new NodeRational(90), AngleUnit.Degrees))).isCloseTo(1, within(1e-12));
+        assertThat(value(new Sine().toResult(new NodeRational(100), AngleUnit.Gradians))).isCloseTo(1, within(1e-12));
+        assertThat(value(new Sine().toResult(new NodeDouble(Math.PI / 2), AngleUnit.Radians))).isCloseTo(1, within(1e-12));
+    }
+
+    @Test
+    void vectorsOfDoublesInGivenUnit() {
+        NodeConstant result = new Cosine().toResult(new NodeVector(new double[]{0, 180}), AngleUnit.Degrees);
+
+        assertThat(((NodeVector) result).toDoubleArray()).containsExactly(new double[]{1, -1}, within(1e-12));
+    }
+
+    private static double value(NodeConstant node) {
+        return node.getTransformer().toNodeNumber().doubleValue();
+    }
+}